@@ -1,22 +1,38 @@
 package com.unfinitas.backend.api.controller;
 
 import com.unfinitas.backend.api.dto.AnalysisResponse;
+import com.unfinitas.backend.api.dto.BatchAnalysisRequest;
+import com.unfinitas.backend.api.dto.RescoreRequest;
+import com.unfinitas.backend.api.dto.ScopedAnalysisRequest;
+import com.unfinitas.backend.core.analysis.dto.AnalysisEstimate;
+import com.unfinitas.backend.core.analysis.dto.AnalysisScope;
 import com.unfinitas.backend.core.analysis.engine.ComplianceAnalysisEngine;
+import com.unfinitas.backend.core.analysis.engine.ThresholdRescorer;
 import com.unfinitas.backend.core.analysis.model.AnalysisResult;
+import com.unfinitas.backend.core.analysis.model.AnalysisUsage;
 import com.unfinitas.backend.core.analysis.model.ComplianceOutcome;
+import com.unfinitas.backend.core.analysis.model.enums.AnalysisStatus;
 import com.unfinitas.backend.core.analysis.repository.AnalysisResultRepository;
 import com.unfinitas.backend.core.analysis.repository.ComplianceOutcomeRepository;
+import com.unfinitas.backend.core.analysis.service.AnalysisEventStream;
+import com.unfinitas.backend.core.analysis.service.AnalysisJobService;
+import com.unfinitas.backend.core.regulation.model.Regulation;
 import com.unfinitas.backend.core.regulation.repository.RegulationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
 import java.util.*;
 
 @RestController
@@ -26,13 +42,21 @@ import java.util.*;
 public class AnalysisController {
 
     private final ComplianceAnalysisEngine analysisEngine;
+    private final AnalysisJobService analysisJobs;
+    private final ThresholdRescorer rescorer;
+    private final AnalysisEventStream analysisEvents;
     private final AnalysisResultRepository analysisRepo;
     private final ComplianceOutcomeRepository complianceOutcomeRepo;
     private final RegulationRepository regulationRepo;
 
+    @Value("${analysis.batch.max-pairs:50}")
+    private int maxBatchPairs;
+
     @PostMapping
     public ResponseEntity<AnalysisResponse> startAnalysis(
-            @RequestParam final UUID moeId
+            @RequestParam final UUID moeId,
+            @RequestParam(required = false) final Integer budgetSeconds,
+            @RequestParam(required = false) final UUID baseAnalysisId
     ) {
         final long count = regulationRepo.count();
 
@@ -52,9 +76,168 @@ public class AnalysisController {
 
         log.info("Auto-detected regulation {} for analysis", regulationId);
 
-        final UUID analysisId = analysisEngine.analyzeCompliance(moeId, regulationId);
+        final Duration timeBudget = budgetSeconds != null ? Duration.ofSeconds(budgetSeconds) : null;
+        final UUID analysisId = analysisEngine.createAnalysis(moeId, regulationId, timeBudget, baseAnalysisId);
 
-        return ResponseEntity.ok(new AnalysisResponse(analysisId, "Analysis started"));
+        try {
+            analysisJobs.runAsync(analysisId, timeBudget);
+        } catch (final TaskRejectedException e) {
+            analysisEngine.markFailed(analysisId, "Analysis queue is full");
+            return ResponseEntity.status(503)
+                    .body(new AnalysisResponse(analysisId, "Analysis queue is full. Please retry later."));
+        }
+
+        return ResponseEntity.accepted().body(new AnalysisResponse(analysisId,
+                baseAnalysisId != null ? "Incremental analysis started" : "Analysis started"));
+    }
+
+    /**
+     * Analyse every MOE against every regulation as one batch job, one analysis per pair.
+     * Each analysis can be followed through its own progress and event endpoints.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> startBatchAnalysis(@RequestBody final BatchAnalysisRequest request) {
+        final List<UUID> moeIds = request.moeIds() != null ? request.moeIds().stream().distinct().toList() : List.of();
+        final List<UUID> regulationIds =
+                request.regulationIds() != null ? request.regulationIds().stream().distinct().toList() : List.of();
+
+        if (moeIds.isEmpty() || regulationIds.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(new AnalysisResponse(null, "At least one MOE and one regulation are required."));
+        }
+        if (moeIds.size() * regulationIds.size() > maxBatchPairs) {
+            return ResponseEntity.badRequest()
+                    .body(new AnalysisResponse(null, "Batch exceeds " + maxBatchPairs + " MOE × regulation pairs."));
+        }
+
+        final Duration timeBudget =
+                request.budgetSeconds() != null ? Duration.ofSeconds(request.budgetSeconds()) : null;
+        final List<UUID> analysisIds = analysisEngine.createBatch(moeIds, regulationIds, timeBudget);
+
+        try {
+            analysisJobs.runBatchAsync(analysisIds, timeBudget);
+        } catch (final TaskRejectedException e) {
+            analysisIds.forEach(id -> analysisEngine.markFailed(id, "Analysis queue is full"));
+            return ResponseEntity.status(503)
+                    .body(new AnalysisResponse(null, "Analysis queue is full. Please retry later."));
+        }
+
+        final List<Map<String, Object>> pairs = new ArrayList<>();
+        int k = 0;
+        for (final UUID moeId : moeIds) {
+            for (final UUID regulationId : regulationIds) {
+                pairs.add(Map.of("analysisId", analysisIds.get(k++), "moeId", moeId, "regulationId", regulationId));
+            }
+        }
+
+        return ResponseEntity.accepted().body(Map.of(
+                "message", "Batch analysis started",
+                "analyses", pairs
+        ));
+    }
+
+    /**
+     * Re-check one slice of a completed analysis (a section subtree and/or some clauses)
+     * as a partial analysis linked to it.
+     */
+    @PostMapping("/{id}/scoped")
+    public ResponseEntity<AnalysisResponse> startScopedAnalysis(
+            @PathVariable final UUID id,
+            @RequestBody final ScopedAnalysisRequest request
+    ) {
+        final AnalysisScope scope = new AnalysisScope(
+                request.sectionPrefix(), request.clauseIds(), request.clauseTypes());
+        final Duration timeBudget =
+                request.budgetSeconds() != null ? Duration.ofSeconds(request.budgetSeconds()) : null;
+        final UUID analysisId = analysisEngine.createScopedAnalysis(id, scope, timeBudget);
+
+        try {
+            analysisJobs.runAsync(analysisId, timeBudget);
+        } catch (final TaskRejectedException e) {
+            analysisEngine.markFailed(analysisId, "Analysis queue is full");
+            return ResponseEntity.status(503)
+                    .body(new AnalysisResponse(analysisId, "Analysis queue is full. Please retry later."));
+        }
+
+        return ResponseEntity.accepted().body(new AnalysisResponse(analysisId, "Partial analysis started"));
+    }
+
+    /**
+     * Stage-level progress of a running analysis.
+     */
+    @GetMapping("/{id}/progress")
+    public ResponseEntity<?> getAnalysisProgress(@PathVariable final UUID id) {
+        return analysisRepo.findById(id)
+                .map(this::buildProgress)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Predict bands, LLM batches, tokens and wall-clock time without running the analysis.
+     */
+    @GetMapping("/estimate")
+    public ResponseEntity<?> estimateAnalysis(@RequestParam final UUID moeId) {
+        final List<Regulation> regulations = regulationRepo.findAll();
+
+        if (regulations.size() != 1) {
+            return ResponseEntity.status(409)
+                    .body(new AnalysisResponse(null,
+                            "System expects exactly ONE regulation, found " + regulations.size() + "."));
+        }
+
+        final AnalysisEstimate estimate = analysisEngine.estimate(moeId, regulations.getFirst().getId());
+        return ResponseEntity.ok(estimate);
+    }
+
+    /**
+     * Coverage, gaps, questions and score of a completed analysis under other thresholds,
+     * from its stored similarity matrix and verdicts. Nothing is persisted.
+     */
+    @PostMapping("/{id}/rescore")
+    public ResponseEntity<?> rescoreAnalysis(
+            @PathVariable final UUID id,
+            @RequestBody(required = false) final RescoreRequest request
+    ) {
+        final RescoreRequest r = request != null ? request : new RescoreRequest(null, null, null);
+        return ResponseEntity.ok(rescorer.rescore(id, r.covered(), r.partial(), r.relevance()));
+    }
+
+    /**
+     * How much of flat retrieval's top-k the section-first (hierarchical) mode finds, and
+     * the comparisons it saves.
+     */
+    @GetMapping("/retrieval-recall")
+    public ResponseEntity<?> measureRetrievalRecall(
+            @RequestParam final UUID moeId,
+            @RequestParam(defaultValue = "10") final int k,
+            @RequestParam(defaultValue = "${analysis.retrieval.top-sections:8}") final int topSections
+    ) {
+        final List<Regulation> regulations = regulationRepo.findAll();
+
+        if (regulations.size() != 1) {
+            return ResponseEntity.status(409)
+                    .body(new AnalysisResponse(null,
+                            "System expects exactly ONE regulation, found " + regulations.size() + "."));
+        }
+
+        return ResponseEntity.ok(analysisEngine.measureRetrievalRecall(
+                moeId, regulations.getFirst().getId(), k, topSections));
+    }
+
+    /**
+     * Server-sent events for a running analysis: {@code stage}, {@code progress} and one
+     * {@code clause} event per finalized clause, ending with {@code complete} or {@code failed}.
+     * Reconnects resume after {@code Last-Event-ID}.
+     */
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAnalysisEvents(
+            @PathVariable final UUID id,
+            @RequestHeader(value = "Last-Event-ID", required = false) final Long lastEventId
+    ) {
+        return analysisEvents.subscribe(id, lastEventId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping
@@ -115,18 +298,66 @@ public class AnalysisController {
         );
     }
 
+    private Map<String, Object> buildProgress(final AnalysisResult a) {
+        final Map<String, Object> m = new LinkedHashMap<>();
+        m.put("analysisId", a.getId());
+        m.put("status", a.getStatus());
+        m.put("llmBatchesTotal", Objects.requireNonNullElse(a.getLlmBatchesTotal(), 0));
+        m.put("llmBatchesDone", Objects.requireNonNullElse(a.getLlmBatchesDone(), 0));
+        m.put("createdAt", a.getCreatedAt());
+        m.put("startedAt", a.getStartedAt());
+        m.put("completedAt", a.getCompletedAt());
+        if (a.getStatus() == AnalysisStatus.FAILED) {
+            m.put("error", a.getExecutiveSummary());
+        }
+        return m;
+    }
+
     private Map<String, Object> buildReport(final AnalysisResult analysis) {
         final List<ComplianceOutcome> outcomes =
                 complianceOutcomeRepo.findByAnalysisId(analysis.getId());
-        return Map.of(
-                "analysisId", analysis.getId(),
-                "moeId", analysis.getMoeDocument().getId(),
-                "regulationVersion", analysis.getRegulation().getVersion(),
-                "totalRequirements", outcomes.size(),
-                "compliance", outcomes.stream()
-                        .map(this::buildComplianceDto)
-                        .toList()
-        );
+        final Map<String, Object> m = new LinkedHashMap<>();
+        m.put("analysisId", analysis.getId());
+        m.put("moeId", analysis.getMoeDocument().getId());
+        m.put("regulationVersion", analysis.getRegulation().getVersion());
+        m.put("status", analysis.getStatus());
+        m.put("totalRequirements", outcomes.size());
+        m.put("timeBudgetSeconds", Objects.requireNonNullElse(analysis.getTimeBudgetSeconds(), 0));
+        m.put("llmVerifiedClauses", Objects.requireNonNullElse(analysis.getLlmVerifiedCount(), 0));
+        if (analysis.getBaseAnalysis() != null) {
+            m.put("baseAnalysisId", analysis.getBaseAnalysis().getId());
+            m.put("carriedOverClauses", Objects.requireNonNullElse(analysis.getCarriedOverCount(), 0));
+        }
+        if (analysis.getParentAnalysis() != null) {
+            final AnalysisScope scope = AnalysisScope.fromStored(analysis.getScopeSectionPrefix(),
+                    analysis.getScopeClauseIds(), analysis.getScopeClauseTypes());
+            m.put("parentAnalysisId", analysis.getParentAnalysis().getId());
+            m.put("scope", scope);
+        }
+        m.put("usage", buildUsageDto(analysis.getUsage()));
+        m.put("compliance", outcomes.stream()
+                .map(this::buildComplianceDto)
+                .toList());
+        return m;
+    }
+
+    private Map<String, Object> buildUsageDto(final AnalysisUsage u) {
+        final Map<String, Object> m = new LinkedHashMap<>();
+        if (u == null) return m;
+        m.put("model", u.getModel());
+        m.put("llmCalls", u.getLlmCalls());
+        m.put("llmRetries", u.getLlmRetries());
+        m.put("llmIncompleteCalls", u.getLlmIncompleteCalls());
+        m.put("contextCachedCalls", u.getLlmContextCachedCalls());
+        m.put("promptTokens", u.getPromptTokens());
+        m.put("outputTokens", u.getOutputTokens());
+        m.put("cachedTokens", u.getCachedTokens());
+        m.put("latencyMillis", u.getLatencyMillis());
+        m.put("maxLatencyMillis", u.getMaxLatencyMillis());
+        m.put("coalescedItems", u.getCoalescedItems());
+        m.put("reusedJudgements", u.getReusedJudgements());
+        m.put("estimatedCostUsd", u.getEstimatedCostUsd());
+        return m;
     }
 
     private Map<String, Object> buildComplianceDto(final ComplianceOutcome o) {
@@ -138,6 +369,9 @@ public class AnalysisController {
         m.put("evidence", safeList(o.getEvidenceJson()));
         m.put("missing_elements", safeList(o.getMissingElementsJson()));
         m.put("recommended_actions", safeList(o.getRecommendedActionsJson()));
+        m.put("reused", Boolean.TRUE.equals(o.getReused()));
+        m.put("source_analysis_id", o.getSourceAnalysisId());
+        m.put("llm_tokens", o.getLlmTokens());
         return m;
     }
 
@@ -0,0 +1,52 @@
+package com.unfinitas.backend.api.controller;
+
+import com.unfinitas.backend.core.analysis.engine.ConfidenceCalibrator;
+import com.unfinitas.backend.core.analysis.model.CalibrationModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/calibration")
+@RequiredArgsConstructor
+@Slf4j
+public class CalibrationController {
+
+    private final ConfidenceCalibrator calibrator;
+
+    /**
+     * Fit a new calibration model on stored compliance outcomes.
+     */
+    @PostMapping("/fit")
+    public ResponseEntity<Map<String, Object>> fit() {
+        return ResponseEntity.ok(toDto(calibrator.fit()));
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> current() {
+        return calibrator.currentModel()
+                .map(this::toDto)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private Map<String, Object> toDto(final CalibrationModel m) {
+        final Map<String, Object> dto = new LinkedHashMap<>();
+        dto.put("id", m.getId());
+        dto.put("createdAt", m.getCreatedAt());
+        dto.put("sampleCount", m.getSampleCount());
+        dto.put("holdoutAccuracy", m.getHoldoutAccuracy());
+        dto.put("confidentAccuracy", m.getConfidentAccuracy());
+        dto.put("confidentCoverage", m.getConfidentCoverage());
+        dto.put("confidentCount", m.getConfidentCount());
+        dto.put("active", m.isActive());
+        return dto;
+    }
+}
@@ -1,7 +1,9 @@
 package com.unfinitas.backend.api.controller;
 
+import com.unfinitas.backend.core.analysis.embedding.CoalescingEmbeddingProvider;
 import com.unfinitas.backend.core.analysis.model.enums.AnalysisStatus;
 import com.unfinitas.backend.core.analysis.repository.AnalysisResultRepository;
+import com.unfinitas.backend.core.llm.LlmJudge;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -22,6 +24,8 @@ import java.util.Map;
 public class HealthController {
 
     private final AnalysisResultRepository analysisRepo;
+    private final LlmJudge llmJudge;
+    private final CoalescingEmbeddingProvider embeddingProvider;
 
     @GetMapping("/health")
     public ResponseEntity<?> health() {
@@ -57,7 +61,13 @@ public class HealthController {
                 "totalAnalyses", total,
                 "last30Days", recent,
                 "averageComplianceScore", avgScore != null ? avgScore : 0.0,
-                "period", "last 30 days"
+                "period", "last 30 days",
+                "coalescing", Map.of(
+                        "llmJudge", llmJudge.coalescingStats(),
+                        "embedding", embeddingProvider.stats()
+                ),
+                "embeddingUsage", embeddingProvider.usage(),
+                "judgePayloadAgreement", llmJudge.payloadAgreement()
         ));
     }
 }
@@ -17,9 +17,11 @@ import org.springframework.web.multipart.MultipartFile;
 import com.unfinitas.backend.api.dto.DocumentStatusResponse;
 import com.unfinitas.backend.api.dto.MoeIngestResponse;
 import com.unfinitas.backend.core.analysis.service.EmbeddingService;
+import com.unfinitas.backend.core.ingestion.dto.MoeDiff;
 import com.unfinitas.backend.core.ingestion.model.MoeDocument;
 import com.unfinitas.backend.core.ingestion.repository.MoeDocumentRepository;
 import com.unfinitas.backend.core.ingestion.repository.ParagraphRepository;
+import com.unfinitas.backend.core.ingestion.service.MoeDiffService;
 import com.unfinitas.backend.core.ingestion.service.MoeIngestionService;
 
 import lombok.RequiredArgsConstructor;
@@ -38,6 +40,7 @@ public class MoeDocumentController {
     private final MoeDocumentRepository moeDocumentRepository;
     private final ParagraphRepository paragraphRepository;
     private final EmbeddingService embeddingService;
+    private final MoeDiffService moeDiffService;
 
     /**
      * Upload and initiate document processing
@@ -90,6 +93,23 @@ public class MoeDocumentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Compare a revision against an earlier one
+     * Paragraphs are classified as added, removed, modified or moved
+     *
+     * @param documentId Revised document UUID
+     * @param baseId     Earlier revision to compare against
+     * @return Section and paragraph changes with counts
+     */
+    @GetMapping("/{documentId}/diff")
+    public ResponseEntity<MoeDiff> diffDocuments(
+            @PathVariable final UUID documentId,
+            @RequestParam final UUID baseId
+    ) {
+        log.info("Diff requested: {} against base {}", documentId, baseId);
+        return ResponseEntity.ok(moeDiffService.diff(baseId, documentId));
+    }
+
     /**
      * Get overall embedding statistics
      *
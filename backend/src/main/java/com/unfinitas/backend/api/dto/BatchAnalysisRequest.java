@@ -0,0 +1,10 @@
+package com.unfinitas.backend.api.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BatchAnalysisRequest(
+        List<UUID> moeIds,
+        List<UUID> regulationIds,
+        Integer budgetSeconds
+) {}
@@ -0,0 +1,10 @@
+package com.unfinitas.backend.api.dto;
+
+/**
+ * Thresholds to re-score with; null values keep the configured default.
+ */
+public record RescoreRequest(
+        Double covered,
+        Double partial,
+        Double relevance
+) {}
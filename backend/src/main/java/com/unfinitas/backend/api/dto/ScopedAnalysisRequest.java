@@ -0,0 +1,10 @@
+package com.unfinitas.backend.api.dto;
+
+import java.util.List;
+
+public record ScopedAnalysisRequest(
+        String sectionPrefix,
+        List<String> clauseIds,
+        List<String> clauseTypes,
+        Integer budgetSeconds
+) {}
@@ -5,12 +5,14 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @Configuration
 @RequiredArgsConstructor
 public class AppConfig {
 
     @Bean
+    @Lazy
     public Client geminiClient(@Value("${embedding.gemini.api-key:dump}") final String geminiKey) {
         return Client.builder()
                 .apiKey(geminiKey)
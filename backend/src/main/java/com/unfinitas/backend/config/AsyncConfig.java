@@ -41,4 +41,53 @@ public class AsyncConfig {
 
         return executor;
     }
+
+    /**
+     * Dedicated pool for analysis jobs so long LLM runs do not starve PDF processing
+     * - Core pool: 2 threads (each analysis already fans out judge batches)
+     * - Max pool: 4 threads
+     * - Queue: 50 jobs
+     * - Rejection: AbortPolicy (caller reports 503 instead of running inline)
+     */
+    @Bean(name = "analysisExecutor")
+    public Executor analysisExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("analysis-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        log.info("Analysis executor initialized: core={}, max={}, queue={}",
+                executor.getCorePoolSize(), executor.getMaxPoolSize(), executor.getQueueCapacity());
+
+        return executor;
+    }
+
+    /**
+     * Background similarity precomputation, strictly best effort
+     * - Single low-priority thread so it never competes with analyses or PDF processing
+     * - Queue: 20 documents
+     * - Rejection: DiscardPolicy (the analysis computes similarities itself)
+     */
+    @Bean(name = "precomputeExecutor")
+    public Executor precomputeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(20);
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setThreadNamePrefix("precompute-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+
+        log.info("Precompute executor initialized: core={}, max={}, queue={}",
+                executor.getCorePoolSize(), executor.getMaxPoolSize(), executor.getQueueCapacity());
+
+        return executor;
+    }
 }
@@ -0,0 +1,19 @@
+package com.unfinitas.backend.core.analysis.config;
+
+import com.unfinitas.backend.core.analysis.dto.CoverageThresholds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AnalysisConfig {
+
+    @Bean
+    public CoverageThresholds coverageThresholds(
+            @Value("${analysis.thresholds.covered:0.75}") final double covered,
+            @Value("${analysis.thresholds.partial:0.40}") final double partial,
+            @Value("${analysis.thresholds.relevance:0.30}") final double relevance
+    ) {
+        return new CoverageThresholds(covered, partial, relevance);
+    }
+}
@@ -1,5 +1,6 @@
 package com.unfinitas.backend.core.analysis.config;
 
+import com.unfinitas.backend.core.analysis.embedding.CoalescingEmbeddingProvider;
 import com.unfinitas.backend.core.analysis.embedding.GeminiEmbedProvider;
 import com.unfinitas.backend.core.analysis.embedding.OpenAiEmbeddingProvider;
 import com.unfinitas.backend.core.analysis.embedding.VectorEmbeddingProvider;
@@ -11,7 +12,7 @@ import org.springframework.context.annotation.Configuration;
 public class EmbeddingConfig {
 
     @Bean
-    public VectorEmbeddingProvider embeddingProvider(
+    public CoalescingEmbeddingProvider embeddingProvider(
             @Value("${embedding.provider}") final String provider,
             @Value("${embedding.openai.api-key:}") final String openAiKey,
             @Value("${embedding.openai.model:text-embedding-3-small}") final String openAiModel,
@@ -19,10 +20,12 @@ public class EmbeddingConfig {
             @Value("${embedding.gemini.model:gemini-embedding-001}") final String geminiModel
     ) {
 
-        return switch (provider.toLowerCase()) {
+        final VectorEmbeddingProvider delegate = switch (provider.toLowerCase()) {
             case "openai" -> new OpenAiEmbeddingProvider(openAiKey, openAiModel);
             case "gemini" -> new GeminiEmbedProvider(geminiKey, geminiModel);
             default -> throw new IllegalArgumentException("Unknown embedding provider: " + provider);
         };
+
+        return new CoalescingEmbeddingProvider(delegate);
     }
 }
@@ -0,0 +1,31 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+/**
+ * Predicted cost of an analysis, from the cosine stage only.
+ *
+ * @param ambiguousBand       clauses between the low and high similarity bands
+ * @param calibrated          ambiguous clauses the calibration model would resolve without the LLM
+ * @param reused              ambiguous clauses a prior judgement of the same candidates would answer
+ * @param judgeItems          LLM items after grouping
+ * @param estimatedSecondsP50 LLM stage wall-clock at median batch latency; null without recorded latencies
+ * @param estimatedSecondsP95 same at p95 batch latency
+ */
+public record AnalysisEstimate(
+        int totalClauses,
+        int highBand,
+        int lowBand,
+        int ambiguousBand,
+        int calibrated,
+        int reused,
+        int judgeItems,
+        int llmBatches,
+        long promptTokens,
+        long outputTokens,
+        int latencySamples,
+        Long p50BatchMillis,
+        Long p95BatchMillis,
+        Long estimatedSecondsP50,
+        Long estimatedSecondsP95,
+        long cosineStageMillis
+) {
+}
@@ -0,0 +1,92 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+import com.unfinitas.backend.core.regulation.model.RegulationClause;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Slice of an MOE × regulation pair re-checked by a partial analysis. Empty parts do not
+ * restrict.
+ *
+ * @param sectionPrefix MOE section subtree, e.g. "2.13" (the section and its descendants)
+ * @param clauseIds     regulation clause ids, e.g. "145.A.30"
+ * @param clauseTypes   clause types, e.g. REQUIREMENT, AMC, GM
+ */
+public record AnalysisScope(
+        String sectionPrefix,
+        List<String> clauseIds,
+        List<String> clauseTypes
+) {
+
+    // Column lengths on analysis_results
+    public static final int MAX_SECTION_PREFIX_LENGTH = 50;
+    public static final int MAX_CLAUSE_TYPES_LENGTH = 100;
+
+    public AnalysisScope {
+        sectionPrefix = sectionPrefix == null || sectionPrefix.isBlank() ? null : sectionPrefix.trim();
+        clauseIds = clauseIds == null ? List.of() : clauseIds.stream()
+                .filter(s -> s != null && !s.isBlank())
+                .map(String::trim)
+                .distinct()
+                .toList();
+        clauseTypes = clauseTypes == null ? List.of() : clauseTypes.stream()
+                .filter(s -> s != null && !s.isBlank())
+                .map(s -> s.trim().toUpperCase(Locale.ROOT))
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Rebuild from the comma-separated form stored on the analysis.
+     */
+    public static AnalysisScope fromStored(final String sectionPrefix, final String clauseIds, final String clauseTypes) {
+        return new AnalysisScope(sectionPrefix, split(clauseIds), split(clauseTypes));
+    }
+
+    public boolean isEmpty() {
+        return sectionPrefix == null && clauseIds.isEmpty() && clauseTypes.isEmpty();
+    }
+
+    /**
+     * @throws IllegalArgumentException if a part is too long to be stored with the analysis
+     */
+    public void requireStorable() {
+        if (sectionPrefix != null && sectionPrefix.length() > MAX_SECTION_PREFIX_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Section prefix is longer than " + MAX_SECTION_PREFIX_LENGTH + " characters");
+        }
+        final String types = clauseTypesCsv();
+        if (types != null && types.length() > MAX_CLAUSE_TYPES_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Clause types are longer than " + MAX_CLAUSE_TYPES_LENGTH + " characters combined");
+        }
+    }
+
+    /**
+     * Clauses matching both the id and the type filter.
+     */
+    public List<RegulationClause> filter(final List<RegulationClause> clauses) {
+        final Set<String> ids = Set.copyOf(clauseIds);
+        final Set<String> types = Set.copyOf(clauseTypes);
+        return clauses.stream()
+                .filter(c -> ids.isEmpty() || ids.contains(c.getClauseId()))
+                .filter(c -> types.isEmpty()
+                        || (c.getClauseType() != null && types.contains(c.getClauseType().toUpperCase(Locale.ROOT))))
+                .toList();
+    }
+
+    public String clauseIdsCsv() {
+        return clauseIds.isEmpty() ? null : String.join(",", clauseIds);
+    }
+
+    public String clauseTypesCsv() {
+        return clauseTypes.isEmpty() ? null : String.join(",", clauseTypes);
+    }
+
+    private static List<String> split(final String csv) {
+        return csv == null || csv.isBlank() ? List.of() : Arrays.asList(csv.split(","));
+    }
+}
@@ -0,0 +1,34 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+/**
+ * Cosine-stage features of one clause, used by the confidence calibration model.
+ *
+ * @param top1       best cosine similarity
+ * @param gap        top-1 minus top-5 similarity (how clearly the best match stands out)
+ * @param keyword    keyword Jaccard between clause text and the best paragraph
+ * @param clauseType REQUIREMENT / AMC / GM
+ */
+public record ClauseFeatures(
+        double top1,
+        double gap,
+        double keyword,
+        String clauseType
+) {
+
+    public static final int SIZE = 7;
+
+    /**
+     * Model input: bias, numeric features, clause type one-hot.
+     */
+    public double[] vector() {
+        return new double[]{
+                1.0,
+                top1,
+                gap,
+                keyword,
+                "REQUIREMENT".equals(clauseType) ? 1.0 : 0.0,
+                "AMC".equals(clauseType) ? 1.0 : 0.0,
+                "GM".equals(clauseType) ? 1.0 : 0.0
+        };
+    }
+}
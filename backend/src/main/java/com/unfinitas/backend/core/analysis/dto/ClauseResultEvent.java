@@ -0,0 +1,35 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+
+import java.util.List;
+
+/**
+ * Finalized clause result as pushed to event stream subscribers.
+ *
+ * @param paragraphIds matched MOE paragraphs, best first
+ * @param compliance   LLM (or reused / calibrated) verdict; null for cosine-only results
+ */
+public record ClauseResultEvent(
+        String clauseId,
+        String clauseTitle,
+        double bestSimilarity,
+        ClauseMatchResult.MatchQuality quality,
+        String evidence,
+        boolean llmVerified,
+        List<Long> paragraphIds,
+        ComplianceResult compliance
+) {
+    public static ClauseResultEvent from(final ClauseMatchResult r) {
+        return new ClauseResultEvent(
+                r.clauseId(),
+                r.clauseTitle(),
+                r.bestSimilarity(),
+                r.quality(),
+                r.evidence(),
+                r.complianceResult() != null,
+                r.matches().stream().map(m -> m.paragraph().getId()).toList(),
+                r.complianceResult()
+        );
+    }
+}
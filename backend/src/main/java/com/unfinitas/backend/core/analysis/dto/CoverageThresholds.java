@@ -0,0 +1,49 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+import com.unfinitas.backend.core.analysis.model.enums.CoverageStatus;
+
+/**
+ * Similarity cut-offs that turn clause scores into coverage statuses.
+ *
+ * @param covered   score at or above which a clause is COVERED
+ * @param partial   score at or above which a clause is PARTIAL
+ * @param relevance minimum cosine similarity for a paragraph to count as a match
+ */
+public record CoverageThresholds(
+        double covered,
+        double partial,
+        double relevance
+) {
+
+    public CoverageThresholds {
+        if (!(0.0 <= relevance && relevance <= partial && partial <= covered && covered <= 1.0)) {
+            throw new IllegalArgumentException(
+                    "Thresholds must satisfy 0 <= relevance <= partial <= covered <= 1, got "
+                            + relevance + " / " + partial + " / " + covered);
+        }
+    }
+
+    /**
+     * Copy with the given values replaced; nulls keep the current value.
+     */
+    public CoverageThresholds with(final Double covered, final Double partial, final Double relevance) {
+        return new CoverageThresholds(
+                covered != null ? covered : this.covered,
+                partial != null ? partial : this.partial,
+                relevance != null ? relevance : this.relevance
+        );
+    }
+
+    public CoverageStatus classify(final double score) {
+        if (score >= covered) return CoverageStatus.COVERED;
+        if (score >= partial) return CoverageStatus.PARTIAL;
+        return CoverageStatus.MISSING;
+    }
+
+    /**
+     * @return distance of the score to the closest of the COVERED and PARTIAL thresholds
+     */
+    public double boundaryDistance(final double score) {
+        return Math.min(Math.abs(score - covered), Math.abs(score - partial));
+    }
+}
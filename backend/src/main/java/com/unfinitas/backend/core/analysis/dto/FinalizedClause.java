@@ -0,0 +1,23 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A clause result that will not change any more, with what is needed to persist it.
+ *
+ * @param features   cosine-stage features; null unless the clause was ambiguous
+ * @param reusedFrom source analysis when the judgement was reused from a prior run
+ * @param llmTokens  prompt + output tokens attributed to the clause so far; null without LLM calls
+ * @param carriedFrom base analysis when the whole clause result was carried over unchanged
+ * @param judgedParagraphIds paragraphs the judge was shown for the verdict, best first; null without one
+ */
+public record FinalizedClause(
+        ClauseMatchResult match,
+        ClauseFeatures features,
+        UUID reusedFrom,
+        Long llmTokens,
+        UUID carriedFrom,
+        List<Long> judgedParagraphIds
+) {
+}
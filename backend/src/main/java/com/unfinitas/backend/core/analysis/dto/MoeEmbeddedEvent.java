@@ -0,0 +1,10 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+import java.util.UUID;
+
+/**
+ * Published when every paragraph of an MOE document has an embedding and the document
+ * is COMPLETED.
+ */
+public record MoeEmbeddedEvent(UUID documentId) {
+}
@@ -0,0 +1,33 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+import com.unfinitas.backend.core.analysis.model.enums.ApprovalRecommendation;
+import com.unfinitas.backend.core.analysis.model.enums.GapSeverity;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of re-scoring a completed analysis for other thresholds. Nothing is stored.
+ *
+ * @param storedComplianceScore score of the analysis as stored, for comparison
+ * @param statusChanges         clauses whose coverage status differs from the stored one
+ * @param durationMillis        time spent re-scoring
+ */
+public record RescoreResult(
+        UUID analysisId,
+        CoverageThresholds thresholds,
+        int totalItems,
+        int coveredCount,
+        int partialCount,
+        int missingCount,
+        BigDecimal complianceScore,
+        BigDecimal storedComplianceScore,
+        ApprovalRecommendation approvalRecommendation,
+        String executiveSummary,
+        Map<GapSeverity, Long> gapsBySeverity,
+        int questionCount,
+        int statusChanges,
+        long durationMillis
+) {
+}
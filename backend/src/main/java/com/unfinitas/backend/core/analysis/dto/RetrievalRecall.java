@@ -0,0 +1,24 @@
+package com.unfinitas.backend.core.analysis.dto;
+
+/**
+ * Hierarchical (section-first) against flat retrieval on one MOE × regulation pair.
+ *
+ * @param clausesMeasured clauses with at least one flat match, over which recall is averaged
+ * @param recallAtK       mean share of the flat top-k that the hierarchical top-k also returns
+ * @param flatComparisons         cosine comparisons of flat retrieval
+ * @param hierarchicalComparisons cosine comparisons of hierarchical retrieval, centroids included
+ */
+public record RetrievalRecall(
+        int clauses,
+        int paragraphs,
+        int sections,
+        int topSections,
+        int k,
+        int clausesMeasured,
+        double recallAtK,
+        long flatComparisons,
+        long hierarchicalComparisons,
+        long flatMillis,
+        long hierarchicalMillis
+) {
+}
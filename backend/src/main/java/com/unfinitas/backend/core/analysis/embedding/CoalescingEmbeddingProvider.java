@@ -0,0 +1,116 @@
+package com.unfinitas.backend.core.analysis.embedding;
+
+import com.unfinitas.backend.util.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent embedding requests for the same text into one provider call.
+ * <p>
+ * Parallel uploads and analyses often embed identical paragraphs (boilerplate,
+ * headers, repeated clauses) at the same moment; only the first caller reaches
+ * the provider, the rest wait for its vector. Also counts provider calls, texts,
+ * estimated tokens and latency.
+ */
+@Slf4j
+public class CoalescingEmbeddingProvider implements VectorEmbeddingProvider {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    // Longest wait for another caller's request for the same text
+    private static final Duration COALESCED_WAIT = Duration.ofSeconds(60);
+
+    private final VectorEmbeddingProvider delegate;
+    private final SingleFlight<String, List<Double>> flights = new SingleFlight<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder textCount = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder latencyMillis = new LongAdder();
+
+    public CoalescingEmbeddingProvider(final VectorEmbeddingProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<Double> embed(final String text) {
+        if (text == null || text.isBlank()) return delegate.embed(text);
+        return flights.execute(text, () -> timed(List.of(text), () -> delegate.embed(text)), COALESCED_WAIT);
+    }
+
+    @Override
+    public Map<String, List<Double>> embedBatch(final List<String> texts) {
+        if (texts == null || texts.isEmpty()) return delegate.embedBatch(texts);
+
+        final Map<String, SingleFlight.Claim<List<Double>>> claims = new LinkedHashMap<>();
+        final List<String> owned = new ArrayList<>();
+
+        for (final String text : new LinkedHashSet<>(texts)) {
+            final SingleFlight.Claim<List<Double>> claim = flights.claim(text);
+            claims.put(text, claim);
+            if (claim.owner()) owned.add(text);
+        }
+
+        final Map<String, List<Double>> result = new HashMap<>();
+
+        if (!owned.isEmpty()) {
+            try {
+                final Map<String, List<Double>> fetched = timed(owned, () -> delegate.embedBatch(owned));
+                for (final String text : owned) {
+                    final List<Double> vector = fetched.getOrDefault(text, Collections.emptyList());
+                    flights.complete(text, claims.get(text), vector);
+                    result.put(text, vector);
+                }
+            } catch (final Throwable e) {
+                owned.forEach(text -> flights.fail(text, claims.get(text), e));
+                throw e;
+            }
+        }
+
+        claims.forEach((text, claim) -> {
+            if (claim.owner()) return;
+            try {
+                result.put(text, flights.await(claim, COALESCED_WAIT));
+            } catch (final Exception e) {
+                log.debug("Coalesced embedding failed, retrying directly: {}", e.getMessage());
+                result.put(text, timed(List.of(text), () -> delegate.embed(text)));
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    public String model() {
+        return delegate.model();
+    }
+
+    public SingleFlight.Stats stats() {
+        return flights.stats();
+    }
+
+    public Usage usage() {
+        return new Usage(calls.sum(), textCount.sum(), chars.sum() / CHARS_PER_TOKEN, latencyMillis.sum());
+    }
+
+    private <T> T timed(final List<String> batch, final Supplier<T> call) {
+        final long start = System.currentTimeMillis();
+        try {
+            return call.get();
+        } finally {
+            calls.increment();
+            textCount.add(batch.size());
+            batch.forEach(t -> chars.add(t.length()));
+            latencyMillis.add(System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Provider traffic since startup. Embedding providers do not report token
+     * counts here, so tokens are estimated from text length.
+     */
+    public record Usage(long calls, long texts, long estimatedTokens, long latencyMillis) {}
+}
@@ -0,0 +1,36 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.unfinitas.backend.core.analysis.dto.FinalizedClause;
+import com.unfinitas.backend.core.analysis.model.enums.AnalysisStatus;
+
+import java.util.List;
+
+/**
+ * Callback for stage-level analysis progress.
+ * <p>
+ * Judge batch callbacks arrive from worker threads, so implementations must be thread-safe.
+ */
+public interface AnalysisProgress {
+
+    AnalysisProgress NONE = new AnalysisProgress() {};
+
+    default void onStage(final AnalysisStatus stage) {}
+
+    /**
+     * Called with the number of LLM batches planned so far. Batches are planned while
+     * the cosine stage is still classifying, so the total grows during the run.
+     */
+    default void onJudgeBatches(final int total) {}
+
+    /**
+     * Called when a batch is finished: judged, failed, or skipped by the time budget.
+     */
+    default void onJudgeBatchDone() {}
+
+    /**
+     * Called as soon as clause results are final: cosine-only, calibrated and reused ones
+     * as each chunk of clauses is classified, judged ones as each batch returns. Every
+     * clause is reported exactly once.
+     */
+    default void onResults(final List<FinalizedClause> results) {}
+}
@@ -0,0 +1,156 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.google.gson.Gson;
+import com.unfinitas.backend.core.analysis.dto.ClauseFeatures;
+import com.unfinitas.backend.core.analysis.dto.ClauseMatchResult;
+import com.unfinitas.backend.core.analysis.dto.CoverageThresholds;
+import com.unfinitas.backend.core.analysis.dto.FinalizedClause;
+import com.unfinitas.backend.core.analysis.dto.ParagraphMatch;
+import com.unfinitas.backend.core.analysis.model.AnalysisResult;
+import com.unfinitas.backend.core.analysis.model.ComplianceOutcome;
+import com.unfinitas.backend.core.analysis.model.CoverageResult;
+import com.unfinitas.backend.core.analysis.model.enums.MatchType;
+import com.unfinitas.backend.core.analysis.repository.AnalysisResultRepository;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk writer for finalized clauses (coverage rows, paragraph links and compliance
+ * outcomes).
+ * <p>
+ * Rows are persisted directly and flushed every {@code hibernate.jdbc.batch_size}
+ * entities, so with ordered inserts and sequence ids Hibernate sends one JDBC batch
+ * per table instead of a round trip per row. The persistence context is cleared
+ * after each flush to keep dirty checking cheap on large analyses.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalysisResultPersister {
+
+    private final AnalysisResultRepository analysisRepo;
+    private final EntityManager entityManager;
+    private final CoverageThresholds thresholds;
+    private final Gson gson = new Gson();
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    /**
+     * @return the coverage rows written, detached
+     */
+    @Transactional
+    public List<CoverageResult> persist(final UUID analysisId, final List<FinalizedClause> clauses) {
+        final List<CoverageResult> written = new ArrayList<>(clauses.size());
+        if (clauses.isEmpty()) return written;
+
+        final long start = System.currentTimeMillis();
+        AnalysisResult analysis = analysisRepo.getReferenceById(analysisId);
+        int pending = 0;
+
+        for (final FinalizedClause clause : clauses) {
+            final CoverageResult coverage = createCoverageResult(analysis, clause, thresholds);
+            entityManager.persist(coverage);
+            written.add(coverage);
+            pending++;
+
+            if (clause.match().complianceResult() != null) {
+                entityManager.persist(toComplianceOutcome(analysis, clause));
+                pending++;
+            }
+
+            if (pending >= batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                analysis = analysisRepo.getReferenceById(analysisId);
+                pending = 0;
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        log.debug("Persisted {} clause results for analysis {} in {} ms",
+                clauses.size(), analysisId, System.currentTimeMillis() - start);
+        return written;
+    }
+
+    private ComplianceOutcome toComplianceOutcome(final AnalysisResult analysis, final FinalizedClause clause) {
+        final ClauseMatchResult match = clause.match();
+        final var cr = match.complianceResult();
+        final ClauseFeatures f = clause.features();
+
+        return ComplianceOutcome.builder()
+                .analysis(analysis)
+                .requirementId(cr.requirement_id())
+                .complianceStatus(cr.compliance_status())
+                .findingLevel(cr.finding_level())
+                .justification(cr.justification())
+                .evidenceJson(gson.toJson(cr.evidence()))
+                .missingElementsJson(gson.toJson(cr.missing_elements()))
+                .recommendedActionsJson(gson.toJson(cr.recommended_actions()))
+                .featureTop1(f != null ? f.top1() : null)
+                .featureGap(f != null ? f.gap() : null)
+                .featureKeyword(f != null ? f.keyword() : null)
+                .clauseType(f != null ? f.clauseType() : null)
+                .candidateParagraphIds(clause.judgedParagraphIds() != null
+                        ? clause.judgedParagraphIds().stream()
+                                .map(String::valueOf)
+                                .collect(Collectors.joining(","))
+                        : null)
+                .reused(clause.reusedFrom() != null)
+                .sourceAnalysisId(clause.reusedFrom())
+                .llmTokens(clause.llmTokens())
+                .build();
+    }
+
+    static CoverageResult createCoverageResult(final AnalysisResult analysis,
+                                               final FinalizedClause clause,
+                                               final CoverageThresholds thresholds) {
+        final ClauseMatchResult matchResult = clause.match();
+
+        final String moeEvidence = matchResult.matches().stream()
+                .limit(3)
+                .map(m -> {
+                    final String section = m.paragraph().getSection() != null
+                            ? m.paragraph().getSection().getSectionNumber()
+                            : "N/A";
+                    return String.format("Section %s (%.0f%%)", section, m.similarity() * 100);
+                })
+                .collect(Collectors.joining(", "));
+
+        final List<Paragraph> paragraphs = matchResult.matches().stream()
+                .limit(5)
+                .map(ParagraphMatch::paragraph)
+                .toList();
+
+        final MatchType matchType = paragraphs.size() > 1
+                ? MatchType.AGGREGATE
+                : MatchType.SINGLE;
+
+        return CoverageResult.builder()
+                .analysisResult(analysis)
+                .clauseId(matchResult.clauseId())
+                .clauseTitle(matchResult.clauseTitle())
+                .status(thresholds.classify(matchResult.bestSimilarity()))
+                .similarity(BigDecimal.valueOf(matchResult.bestSimilarity()))
+                .matchType(matchType)
+                .matchedParagraphs(paragraphs)
+                .moeExcerpt(moeEvidence)
+                .explanation(matchResult.evidence())
+                .llmVerified(matchResult.complianceResult() != null)
+                .sourceAnalysisId(clause.carriedFrom())
+                .build();
+    }
+}
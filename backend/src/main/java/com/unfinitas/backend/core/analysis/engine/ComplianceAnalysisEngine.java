@@ -1,38 +1,60 @@
 package com.unfinitas.backend.core.analysis.engine;
 
-import com.google.gson.Gson;
-import com.unfinitas.backend.core.analysis.dto.ClauseMatchResult;
+import com.unfinitas.backend.core.analysis.dto.AnalysisEstimate;
+import com.unfinitas.backend.core.analysis.dto.AnalysisScope;
+import com.unfinitas.backend.core.analysis.dto.ClauseResultEvent;
+import com.unfinitas.backend.core.analysis.dto.CoverageThresholds;
 import com.unfinitas.backend.core.analysis.dto.DecisionSupportReport;
+import com.unfinitas.backend.core.analysis.dto.FinalizedClause;
 import com.unfinitas.backend.core.analysis.dto.GapAnalysisResult;
-import com.unfinitas.backend.core.analysis.dto.ParagraphMatch;
+import com.unfinitas.backend.core.analysis.dto.RetrievalRecall;
+import com.unfinitas.backend.core.analysis.matcher.TextMatcher;
 import com.unfinitas.backend.core.analysis.model.*;
+import com.unfinitas.backend.core.analysis.model.enums.AnalysisStatus;
 import com.unfinitas.backend.core.analysis.model.enums.AnalysisType;
 import com.unfinitas.backend.core.analysis.model.enums.CoverageStatus;
-import com.unfinitas.backend.core.analysis.model.enums.MatchType;
 import com.unfinitas.backend.core.analysis.repository.AnalysisResultRepository;
-import com.unfinitas.backend.core.analysis.repository.ComplianceOutcomeRepository;
+import com.unfinitas.backend.core.analysis.service.AnalysisEventStream;
 import com.unfinitas.backend.core.ingestion.model.MoeDocument;
 import com.unfinitas.backend.core.ingestion.model.Paragraph;
 import com.unfinitas.backend.core.ingestion.model.ProcessingStatus;
 import com.unfinitas.backend.core.ingestion.repository.MoeDocumentRepository;
 import com.unfinitas.backend.core.ingestion.repository.ParagraphRepository;
+import com.unfinitas.backend.core.llm.UsageCollector;
+import com.unfinitas.backend.core.llm.provider.LlmProvider;
 import com.unfinitas.backend.core.regulation.model.Regulation;
 import com.unfinitas.backend.core.regulation.model.RegulationClause;
 import com.unfinitas.backend.core.regulation.repository.RegulationRepository;
 import com.unfinitas.backend.core.regulation.service.RegulationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -40,134 +62,626 @@ import java.util.stream.Collectors;
 public class ComplianceAnalysisEngine {
 
     private final AnalysisResultRepository analysisRepo;
-    private final ComplianceOutcomeRepository complianceOutcomeRepo;
+    private final AnalysisResultPersister resultPersister;
     private final MoeDocumentRepository moeDocRepo;
     private final ParagraphRepository paragraphRepo;
     private final RegulationService regulationService;
     private final RegulationRepository regulationRepository;
     private final SemanticAnalyzer semanticAnalyzer;
+    private final TextMatcher textMatcher;
+    private final IncrementalAnalysisPlanner incrementalPlanner;
+    private final SimilarityMatrixStore matrixStore;
+    private final LexicalIndexStore lexicalStore;
+    private final CoverageThresholds thresholds;
     private final GapDetector gapDetector;
     private final QuestionGenerator questionGenerator;
     private final DecisionSupportGenerator decisionGenerator;
-    private final Gson gson = new Gson();
+    private final LlmProvider llmProvider;
+    private final TransactionTemplate transactionTemplate;
+    private final AnalysisEventStream events;
+
+    // USD per million tokens, for cost estimates
+    @Value("${llm.pricing.input-per-million:0}")
+    private double inputPricePerMillion;
+
+    @Value("${llm.pricing.cached-input-per-million:0}")
+    private double cachedInputPricePerMillion;
+
+    @Value("${llm.pricing.output-per-million:0}")
+    private double outputPricePerMillion;
+
+    @Value("${analysis.pipeline.write-batch-size:50}")
+    private int writeBatchSize;
+
+    @Value("${analysis.pipeline.write-queue-capacity:500}")
+    private int writeQueueCapacity;
+
+    @Value("${analysis.batch.concurrency:2}")
+    private int batchConcurrency;
 
-    @Transactional
     public UUID analyzeCompliance(final UUID moeId, final UUID regulationId) {
+        return analyzeCompliance(moeId, regulationId, null);
+    }
 
-        // 1. Validate MOE exists
-        final MoeDocument moeDoc = moeDocRepo.findById(moeId)
-                .orElseThrow(() ->
-                        new ResponseStatusException(HttpStatus.NOT_FOUND, "MOE not found: " + moeId));
+    /**
+     * Create and run an analysis on the calling thread.
+     *
+     * @param timeBudget wall-clock budget for the run ("anytime" mode). Ambiguous clauses are
+     *                   judged most important first; once the budget is spent no further LLM
+     *                   calls are issued and remaining clauses keep cosine-only results.
+     *                   Null = no budget.
+     */
+    public UUID analyzeCompliance(final UUID moeId, final UUID regulationId, final Duration timeBudget) {
+        final UUID analysisId = createAnalysis(moeId, regulationId, timeBudget);
+        runAnalysis(analysisId, timeBudget);
+        return analysisId;
+    }
 
-        if (moeDoc.getProcessingStatus() != ProcessingStatus.COMPLETED) {
-            throw new ResponseStatusException(
-                    HttpStatus.CONFLICT,
-                    "MOE ingestion not completed. Current status: " + moeDoc.getProcessingStatus()
-            );
-        }
+    public UUID createAnalysis(final UUID moeId, final UUID regulationId, final Duration timeBudget) {
+        return createAnalysis(moeId, regulationId, timeBudget, null);
+    }
+
+    /**
+     * Validate inputs and store a PENDING analysis for {@link #runAnalysis}.
+     *
+     * @param baseAnalysisId completed analysis of a previous MOE revision; when set, clauses
+     *                       whose candidate paragraphs are unchanged are carried over from it
+     *                       instead of being recomputed. Null = full analysis.
+     */
+    public UUID createAnalysis(final UUID moeId,
+                               final UUID regulationId,
+                               final Duration timeBudget,
+                               final UUID baseAnalysisId) {
+        final UUID analysisId = transactionTemplate.execute(status ->
+                storeAnalysis(moeId, regulationId, timeBudget, baseAnalysisId));
+        events.open(analysisId);
+        return analysisId;
+    }
+
+    /**
+     * Must run inside a transaction; the caller opens the event stream once it commits.
+     */
+    private UUID storeAnalysis(final UUID moeId,
+                               final UUID regulationId,
+                               final Duration timeBudget,
+                               final UUID baseAnalysisId) {
+        // 1. Validate MOE exists
+        final MoeDocument moeDoc = requireCompletedMoe(moeId);
 
         // 2. Validate regulation
-        final Regulation regulation = regulationRepository.findById(regulationId)
-                .orElseThrow(() ->
-                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Regulation not found: " + regulationId));
+        final Regulation regulation = requireEmbeddedRegulation(regulationId);
 
-        if (!regulationService.allClausesEmbedded(regulation.getId())) {
-            throw new ResponseStatusException(
-                    HttpStatus.CONFLICT,
-                    "Regulation clauses not embedded yet. Please retry later."
-            );
-        }
+        // 3. Validate base analysis for incremental mode
+        final AnalysisResult base = baseAnalysisId != null
+                ? requireIncrementalBase(baseAnalysisId, regulation)
+                : null;
 
-        AnalysisResult analysis = AnalysisResult.builder()
+        final AnalysisResult analysis = AnalysisResult.builder()
                 .moeDocument(moeDoc)
                 .analysisType(AnalysisType.REGULATION_COMPLIANCE)
                 .regulation(regulation)
+                .baseAnalysis(base)
+                .baseMoeDocument(base != null ? base.getMoeDocument() : null)
                 .createdAt(LocalDateTime.now())
+                .timeBudgetSeconds(timeBudget != null ? (int) timeBudget.toSeconds() : null)
                 .build();
 
-        analysis = analysisRepo.save(analysis);
-        analysis.start();
+        return analysisRepo.save(analysis).getId();
+    }
 
-        try {
-            final List<Paragraph> moeParagraphs = paragraphRepo.findByMoeDocument(moeDoc);
-            final List<RegulationClause> allClauses = regulationService.loadClauses(regulation.getId());
-            final List<RegulationClause> clauses = filterPart145SectionA(allClauses);
+    /**
+     * Store a PENDING partial analysis that re-checks one slice of a completed full
+     * analysis: the paragraphs of a section subtree and/or a subset of clauses. It runs
+     * like any analysis but only over that slice, and is linked to its parent.
+     *
+     * @throws IllegalArgumentException if the scope is empty, too long to store, or selects
+     *                                  no paragraphs or clauses
+     */
+    public UUID createScopedAnalysis(final UUID parentAnalysisId,
+                                     final AnalysisScope scope,
+                                     final Duration timeBudget) {
+        if (scope.isEmpty()) {
+            throw new IllegalArgumentException("Scope needs a section prefix, clause ids or clause types");
+        }
+        scope.requireStorable();
 
-            final var semanticResult = semanticAnalyzer.analyze(moeParagraphs, clauses);
+        final UUID analysisId = transactionTemplate.execute(status -> {
+            final AnalysisResult parent = requireScopeParent(parentAnalysisId);
+            final UUID moeId = parent.getMoeDocument().getId();
 
-            // Save coverage
-            for (final ClauseMatchResult match : semanticResult.clauseMatches()) {
-                final CoverageResult cov = createCoverageResult(analysis, match);
-                analysis.addCoverageResult(cov);
+            if (scope.sectionPrefix() != null
+                    && paragraphRepo.findBySectionAndDescendants(moeId, scope.sectionPrefix()).isEmpty()) {
+                throw new IllegalArgumentException("No MOE paragraphs under section " + scope.sectionPrefix());
+            }
+            if (scope.filter(loadClauses(parent.getRegulation().getId())).isEmpty()) {
+                throw new IllegalArgumentException("No regulation clauses match the clause filter");
             }
 
-            // Save compliance outcomes
-            saveComplianceOutcomes(semanticResult, analysis);
+            final AnalysisResult analysis = AnalysisResult.builder()
+                    .moeDocument(parent.getMoeDocument())
+                    .analysisType(parent.getAnalysisType())
+                    .regulation(parent.getRegulation())
+                    .parentAnalysis(parent)
+                    .scopeSectionPrefix(scope.sectionPrefix())
+                    .scopeClauseIds(scope.clauseIdsCsv())
+                    .scopeClauseTypes(scope.clauseTypesCsv())
+                    .createdAt(LocalDateTime.now())
+                    .timeBudgetSeconds(timeBudget != null ? (int) timeBudget.toSeconds() : null)
+                    .build();
 
-            // Gap detection
-            final GapAnalysisResult gapResult = gapDetector.detectGaps(semanticResult, clauses);
-            gapResult.gaps().forEach(analysis::addGapFinding);
+            return analysisRepo.save(analysis).getId();
+        });
+        events.open(analysisId);
+        return analysisId;
+    }
 
-            // Questions
-            final List<AuditorQuestion> questions = questionGenerator.generate(
-                    analysis.getCoverageResults(), gapResult);
-            questions.forEach(analysis::addQuestion);
+    /**
+     * Store one PENDING analysis per MOE × regulation pair, all or none.
+     *
+     * @return analysis ids, MOE-major
+     */
+    public List<UUID> createBatch(final List<UUID> moeIds,
+                                  final List<UUID> regulationIds,
+                                  final Duration timeBudget) {
+        final List<UUID> ids = transactionTemplate.execute(status -> {
+            final List<UUID> stored = new ArrayList<>();
+            for (final UUID moeId : moeIds) {
+                for (final UUID regulationId : regulationIds) {
+                    stored.add(storeAnalysis(moeId, regulationId, timeBudget, null));
+                }
+            }
+            return stored;
+        });
+        ids.forEach(events::open);
+        return ids;
+    }
 
-            // Decision support
-            final DecisionSupportReport decision =
-                    decisionGenerator.generate(analysis.getCoverageResults(), gapResult);
+    /**
+     * Run PENDING analyses as one batch. Paragraphs and their parsed embeddings are loaded
+     * once per MOE and clauses once per regulation; up to {@code analysis.batch.concurrency}
+     * pairs run at a time, so identical judge items of different pairs are coalesced by the
+     * judge and share its regulation context cache. A failed pair does not stop the others.
+     */
+    public void runBatch(final List<UUID> analysisIds, final Duration timeBudget) {
+        final BatchInputs inputs = new BatchInputs();
+        final Semaphore slots = new Semaphore(batchConcurrency);
+        final AtomicInteger failed = new AtomicInteger();
+        final long start = System.currentTimeMillis();
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (final UUID analysisId : analysisIds) {
+                pool.submit(() -> {
+                    slots.acquire();
+                    try {
+                        runAnalysis(analysisId, timeBudget, inputs);
+                    } catch (final Exception e) {
+                        failed.incrementAndGet();
+                        log.warn("Batch analysis {} failed: {}", analysisId, e.getMessage());
+                    } finally {
+                        slots.release();
+                    }
+                    return null;
+                });
+            }
+        }
 
-            // Score
-            final int total = clauses.size();
-            final int covered = (int) analysis.getCoverageResults().stream()
-                    .filter(c -> c.getStatus() == CoverageStatus.COVERED).count();
-            final int partial = (int) analysis.getCoverageResults().stream()
-                    .filter(c -> c.getStatus() == CoverageStatus.PARTIAL).count();
-            final int missing = total - covered - partial;
+        log.info("Batch of {} analyses finished in {}ms: {} MOEs, {} regulations loaded, {} failed",
+                analysisIds.size(), System.currentTimeMillis() - start,
+                inputs.paragraphs.size(), inputs.clauses.size(), failed.get());
+    }
 
-            final BigDecimal score = calculateComplianceScore(covered, partial, missing, total);
+    /**
+     * Run a PENDING analysis. No transaction spans the LLM stage: inputs are loaded in a
+     * short transaction, finished clauses are written in batches while others are still
+     * being judged, and gaps, questions and the score are stored at the end. Stage /
+     * batch progress is committed as it happens.
+     */
+    public void runAnalysis(final UUID analysisId, final Duration timeBudget) {
+        runAnalysis(analysisId, timeBudget, null);
+    }
 
-            analysis.complete(total, covered, partial, missing, score);
-            analysis.setApprovalRecommendation(decision.recommendation());
-            analysis.setExecutiveSummary(decision.executiveSummary());
+    private void runAnalysis(final UUID analysisId, final Duration timeBudget, final BatchInputs shared) {
+        final ResultWriter writer = new ResultWriter(analysisId);
+        final AnalysisProgress progress = trackProgress(analysisId, writer);
 
-            analysisRepo.save(analysis);
-            return analysis.getId();
+        try {
+            final AnalysisInput input = transactionTemplate.execute(status -> startAnalysis(analysisId, shared));
+            final Instant deadline = timeBudget != null ? Instant.now().plus(timeBudget) : null;
+
+            final IncrementalAnalysisPlanner.Plan plan = input.baseAnalysisId() != null
+                    ? incrementalPlanner.plan(input.baseAnalysisId(), input.paragraphs(), input.clauses())
+                    : IncrementalAnalysisPlanner.Plan.full(input.clauses());
+            if (!plan.carried().isEmpty()) progress.onResults(plan.carried());
+
+            final SimilarityMatrixStore.StoredMatrix cached = input.cachedMatrix();
+            final var semanticResult = semanticAnalyzer
+                    .analyze(input.index(), plan.recompute(), deadline, progress,
+                            cached != null ? cached.matrix() : null, input.regulationClauses())
+                    .withCarried(plan.carried());
+            final SimilarityMatrixStore.StoredMatrix matrix =
+                    cached == null && plan.carried().isEmpty() && input.scope() == null && textMatcher.isFlat()
+                            ? storeMatrix(input, semanticResult)
+                            : cached;
+
+            progress.onStage(AnalysisStatus.PERSISTING);
+            final List<CoverageResult> coverage = writer.finish();
+            final AnalysisResult analysis = transactionTemplate.execute(status -> finishAnalysis(
+                    analysisId, input.clauses(), semanticResult, coverage, plan.carried().size(), matrix));
+
+            events.close(analysisId, "complete", Map.of(
+                    "status", AnalysisStatus.COMPLETED,
+                    "complianceScore", analysis.getComplianceScore(),
+                    "totalItems", analysis.getTotalItems()
+            ));
 
         } catch (final Exception e) {
-            analysis.fail(e.getMessage());
-            analysisRepo.save(analysis);
+            writer.abort();
+            markFailed(analysisId, e.getMessage());
             throw new RuntimeException("Analysis failed", e);
         }
     }
 
+    /**
+     * Keep the run's similarity matrix for threshold re-scoring and later runs. Incremental
+     * and partial runs only match part of the pair, hierarchical runs only score the
+     * paragraphs of the top sections, and runs that read a stored matrix have nothing new;
+     * all leave it alone, since a stored matrix is read as exact. Best effort: a failure
+     * here does not fail the analysis.
+     *
+     * @return the stored matrix, or null if none was stored
+     */
+    private SimilarityMatrixStore.StoredMatrix storeMatrix(final AnalysisInput input,
+                                                           final SemanticAnalyzer.SemanticAnalysisResult result) {
+        final String embeddingModel = SimilarityMatrixStore.embeddingModel(input.paragraphs());
+        if (embeddingModel == null) return null;
+
+        try {
+            return matrixStore.save(input.moeId(), input.regulationId(), embeddingModel, result.matrix());
+        } catch (final Exception e) {
+            log.warn("Could not store similarity matrix for MOE {} × regulation {}: {}",
+                    input.moeId(), input.regulationId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Mark an analysis FAILED in its own transaction.
+     */
+    public void markFailed(final UUID analysisId, final String reason) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    analysisRepo.findById(analysisId).ifPresent(a -> a.fail(reason)));
+        } catch (final Exception e) {
+            log.error("Failed to mark analysis {} as FAILED: {}", analysisId, e.getMessage());
+        }
+        events.close(analysisId, "failed", Map.of(
+                "status", AnalysisStatus.FAILED,
+                "error", Objects.toString(reason, "unknown error")
+        ));
+    }
+
+    /**
+     * Cosine-stage dry run: band counts, expected LLM batches/tokens and wall-clock time.
+     * Persists nothing and makes no LLM calls.
+     */
+    @Transactional(readOnly = true)
+    public AnalysisEstimate estimate(final UUID moeId, final UUID regulationId) {
+        requireCompletedMoe(moeId);
+        requireEmbeddedRegulation(regulationId);
+
+        // Same inputs as a full run: sections for hierarchical retrieval, lexical index, stored matrix
+        final List<Paragraph> moeParagraphs = paragraphRepo.findWithSectionByMoeDocumentId(moeId);
+        final List<RegulationClause> clauses = loadClauses(regulationId);
+        final SimilarityMatrixStore.StoredMatrix cached = matrixStore
+                .findUsable(moeId, regulationId, moeParagraphs, clauses)
+                .orElse(null);
+
+        return semanticAnalyzer.estimate(
+                index(moeId, moeParagraphs), clauses, cached != null ? cached.matrix() : null);
+    }
+
+    /**
+     * Recall@k of hierarchical (section-first) retrieval against flat retrieval, with the
+     * comparisons and time each takes. Persists nothing.
+     */
+    @Transactional(readOnly = true)
+    public RetrievalRecall measureRetrievalRecall(final UUID moeId,
+                                                  final UUID regulationId,
+                                                  final int k,
+                                                  final int topSections) {
+        final MoeDocument moeDoc = requireCompletedMoe(moeId);
+        final Regulation regulation = requireEmbeddedRegulation(regulationId);
+
+        final List<Paragraph> moeParagraphs = paragraphRepo.findByMoeDocument(moeDoc);
+        final List<RegulationClause> clauses =
+                filterPart145SectionA(regulationService.loadClauses(regulation.getId()));
+
+        return textMatcher.measureRecall(
+                clauses, textMatcher.index(moeParagraphs), thresholds.relevance(), k, topSections);
+    }
+
     // =====================================================================================
     // INTERNAL HELPERS
     // =====================================================================================
 
-    private void saveComplianceOutcomes(
-            final SemanticAnalyzer.SemanticAnalysisResult semantic,
-            final AnalysisResult analysis) {
+    /**
+     * @param shared inputs already loaded by other analyses of the same batch; null outside a batch
+     */
+    private AnalysisInput startAnalysis(final UUID analysisId, final BatchInputs shared) {
+        final AnalysisResult analysis = analysisRepo.findWithAll(analysisId)
+                .orElseThrow(() -> new IllegalStateException("Analysis not found: " + analysisId));
+        analysis.start();
 
-        for (final ClauseMatchResult match : semantic.clauseMatches()) {
-            if (match.complianceResult() == null) continue;
+        final UUID moeId = analysis.getMoeDocument().getId();
+        final UUID regulationId = analysis.getRegulation().getId();
 
-            final var cr = match.complianceResult();
+        if (analysis.getParentAnalysis() != null) {
+            return startScoped(analysis, moeId, regulationId);
+        }
 
-            final ComplianceOutcome o = ComplianceOutcome.builder()
-                    .analysis(analysis)
-                    .requirementId(cr.requirement_id())
-                    .complianceStatus(cr.compliance_status())
-                    .findingLevel(cr.finding_level())
-                    .justification(cr.justification())
-                    .evidenceJson(gson.toJson(cr.evidence()))
-                    .missingElementsJson(gson.toJson(cr.missing_elements()))
-                    .recommendedActionsJson(gson.toJson(cr.recommended_actions()))
-                    .build();
+        // Sections are fetched eagerly: paragraphs are used after this transaction ends
+        final List<Paragraph> moeParagraphs = shared != null
+                ? shared.load(shared.paragraphs, moeId, paragraphRepo::findWithSectionByMoeDocumentId)
+                : paragraphRepo.findWithSectionByMoeDocumentId(moeId);
+        final TextMatcher.ParagraphIndex index = shared != null
+                ? shared.load(shared.indexes, moeId, id -> index(id, moeParagraphs))
+                : index(moeId, moeParagraphs);
+        final List<RegulationClause> clauses = shared != null
+                ? shared.load(shared.clauses, regulationId, this::loadClauses)
+                : loadClauses(regulationId);
+
+        final UUID baseAnalysisId = analysis.getBaseAnalysis() != null ? analysis.getBaseAnalysis().getId() : null;
+        final SimilarityMatrixStore.StoredMatrix cachedMatrix = matrixStore
+                .findUsable(moeId, regulationId, moeParagraphs, clauses)
+                .orElse(null);
+        return new AnalysisInput(
+                moeId, regulationId, moeParagraphs, index, clauses, clauses, baseAnalysisId, cachedMatrix, null);
+    }
+
+    /**
+     * Inputs of a partial analysis: only the paragraphs of the section subtree and the
+     * clauses passing the filter. A stored matrix is used only without a section prefix,
+     * since its top-K entries are ranked over the whole MOE.
+     */
+    private AnalysisInput startScoped(final AnalysisResult analysis, final UUID moeId, final UUID regulationId) {
+        final AnalysisScope scope = AnalysisScope.fromStored(
+                analysis.getScopeSectionPrefix(), analysis.getScopeClauseIds(), analysis.getScopeClauseTypes());
+
+        final List<Paragraph> moeParagraphs = scope.sectionPrefix() != null
+                ? paragraphRepo.findBySectionAndDescendants(moeId, scope.sectionPrefix())
+                : paragraphRepo.findWithSectionByMoeDocumentId(moeId);
+        final List<RegulationClause> regulationClauses = loadClauses(regulationId);
+        final List<RegulationClause> clauses = scope.filter(regulationClauses);
+
+        final SimilarityMatrixStore.StoredMatrix cachedMatrix = scope.sectionPrefix() == null
+                ? matrixStore.findUsable(moeId, regulationId, moeParagraphs, clauses).orElse(null)
+                : null;
+
+        log.info("Partial analysis {} of {}: {} paragraphs (section {}), {} clauses",
+                analysis.getId(), analysis.getParentAnalysis().getId(), moeParagraphs.size(),
+                Objects.requireNonNullElse(scope.sectionPrefix(), "all"), clauses.size());
+
+        return new AnalysisInput(moeId, regulationId, moeParagraphs, index(moeId, moeParagraphs),
+                clauses, regulationClauses, null, cachedMatrix, scope);
+    }
 
-            complianceOutcomeRepo.save(o);
-            analysis.getComplianceOutcomes().add(o);
+    /**
+     * Paragraph index with the stored lexical index attached when hybrid retrieval is on.
+     */
+    private TextMatcher.ParagraphIndex index(final UUID moeId, final List<Paragraph> moeParagraphs) {
+        return textMatcher.isHybrid()
+                ? textMatcher.index(moeParagraphs, lexicalStore.find(moeId).orElse(null))
+                : textMatcher.index(moeParagraphs);
+    }
+
+    private List<RegulationClause> loadClauses(final UUID regulationId) {
+        return filterPart145SectionA(regulationService.loadClauses(regulationId));
+    }
+
+    /**
+     * Gaps, questions, decision support and score, from the coverage already written.
+     *
+     * @param matrix stored matrix the run read or wrote; a partial analysis without one
+     *               takes its parent's, since it re-checks a slice of the same pair
+     */
+    private AnalysisResult finishAnalysis(
+            final UUID analysisId,
+            final List<RegulationClause> clauses,
+            final SemanticAnalyzer.SemanticAnalysisResult semanticResult,
+            final List<CoverageResult> coverage,
+            final int carriedOver,
+            final SimilarityMatrixStore.StoredMatrix matrix) {
+
+        final AnalysisResult analysis = analysisRepo.findById(analysisId)
+                .orElseThrow(() -> new IllegalStateException("Analysis not found: " + analysisId));
+
+        analysis.setUsage(toUsage(semanticResult));
+        analysis.setCarriedOverCount(carriedOver);
+        if (matrix != null) {
+            analysis.setMatrixEmbeddingModel(matrix.embeddingModel());
+            analysis.setMatrixCreatedAt(matrix.createdAt());
+        } else if (analysis.getParentAnalysis() != null) {
+            analysis.setMatrixEmbeddingModel(analysis.getParentAnalysis().getMatrixEmbeddingModel());
+            analysis.setMatrixCreatedAt(analysis.getParentAnalysis().getMatrixCreatedAt());
         }
+
+        // Gap detection
+        final GapAnalysisResult gapResult = gapDetector.detectGaps(semanticResult, clauses);
+        gapResult.gaps().forEach(analysis::addGapFinding);
+
+        // Questions
+        final List<AuditorQuestion> questions = questionGenerator.generate(coverage, gapResult);
+        questions.forEach(analysis::addQuestion);
+
+        // Decision support
+        final DecisionSupportReport decision = decisionGenerator.generate(coverage, gapResult);
+
+        // Score
+        final int total = clauses.size();
+        final int covered = (int) coverage.stream()
+                .filter(c -> c.getStatus() == CoverageStatus.COVERED).count();
+        final int partial = (int) coverage.stream()
+                .filter(c -> c.getStatus() == CoverageStatus.PARTIAL).count();
+        final int missing = total - covered - partial;
+
+        final BigDecimal score = calculateComplianceScore(covered, partial, missing, total);
+
+        analysis.setLlmVerifiedCount((int) coverage.stream()
+                .filter(c -> Boolean.TRUE.equals(c.getLlmVerified())).count());
+        analysis.complete(total, covered, partial, missing, score);
+        analysis.setApprovalRecommendation(decision.recommendation());
+        analysis.setExecutiveSummary(decision.executiveSummary());
+
+        return analysisRepo.save(analysis);
+    }
+
+    /**
+     * Progress is best-effort: a failed update must not fail the analysis.
+     * Stage, batch and clause events are also pushed to the analysis event stream.
+     */
+    private AnalysisProgress trackProgress(final UUID analysisId, final ResultWriter writer) {
+        return new AnalysisProgress() {
+            private final AtomicInteger batchesTotal = new AtomicInteger();
+            private final AtomicInteger batchesDone = new AtomicInteger();
+
+            @Override
+            public void onStage(final AnalysisStatus stage) {
+                update(() -> analysisRepo.updateStatus(analysisId, stage));
+                events.publish(analysisId, "stage", Map.of("status", stage));
+            }
+
+            @Override
+            public void onJudgeBatches(final int total) {
+                batchesTotal.set(total);
+                update(() -> analysisRepo.updateLlmBatchesTotal(analysisId, total));
+                publishBatches(0);
+            }
+
+            @Override
+            public void onJudgeBatchDone() {
+                update(() -> analysisRepo.incrementLlmBatchesDone(analysisId));
+                publishBatches(batchesDone.incrementAndGet());
+            }
+
+            @Override
+            public void onResults(final List<FinalizedClause> results) {
+                writer.accept(results);
+                results.forEach(r -> events.publish(analysisId, "clause", ClauseResultEvent.from(r.match())));
+            }
+
+            private void publishBatches(final int done) {
+                events.publish(analysisId, "progress", Map.of(
+                        "llmBatchesDone", done,
+                        "llmBatchesTotal", batchesTotal.get()
+                ));
+            }
+
+            private void update(final Runnable r) {
+                try {
+                    r.run();
+                } catch (final Exception e) {
+                    log.debug("Progress update failed for analysis {}: {}", analysisId, e.getMessage());
+                }
+            }
+        };
+    }
+
+    private MoeDocument requireCompletedMoe(final UUID moeId) {
+        final MoeDocument moeDoc = moeDocRepo.findById(moeId)
+                .orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "MOE not found: " + moeId));
+
+        if (moeDoc.getProcessingStatus() != ProcessingStatus.COMPLETED) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "MOE ingestion not completed. Current status: " + moeDoc.getProcessingStatus()
+            );
+        }
+        return moeDoc;
+    }
+
+    private Regulation requireEmbeddedRegulation(final UUID regulationId) {
+        final Regulation regulation = regulationRepository.findById(regulationId)
+                .orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Regulation not found: " + regulationId));
+
+        if (!regulationService.allClausesEmbedded(regulation.getId())) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Regulation clauses not embedded yet. Please retry later."
+            );
+        }
+        return regulation;
+    }
+
+    private AnalysisResult requireIncrementalBase(final UUID baseAnalysisId, final Regulation regulation) {
+        final AnalysisResult base = analysisRepo.findById(baseAnalysisId)
+                .orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Base analysis not found: " + baseAnalysisId));
+
+        if (base.getStatus() != AnalysisStatus.COMPLETED) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Base analysis not completed. Current status: " + base.getStatus()
+            );
+        }
+        if (!base.getRegulation().getId().equals(regulation.getId())) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Base analysis was run against a different regulation"
+            );
+        }
+        if (base.getParentAnalysis() != null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Base must be a full analysis, not a partial one"
+            );
+        }
+        return base;
+    }
+
+    private AnalysisResult requireScopeParent(final UUID parentAnalysisId) {
+        final AnalysisResult parent = analysisRepo.findById(parentAnalysisId)
+                .orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Parent analysis not found: " + parentAnalysisId));
+
+        if (parent.getStatus() != AnalysisStatus.COMPLETED) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Parent analysis not completed. Current status: " + parent.getStatus()
+            );
+        }
+        if (parent.getParentAnalysis() != null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Parent must be a full analysis, not a partial one"
+            );
+        }
+        return parent;
+    }
+
+    private AnalysisUsage toUsage(final SemanticAnalyzer.SemanticAnalysisResult semantic) {
+        final UsageCollector.Summary u = semantic.usage();
+
+        final double cost = ((u.promptTokens() - u.cachedTokens()) * inputPricePerMillion
+                + u.cachedTokens() * cachedInputPricePerMillion
+                + u.outputTokens() * outputPricePerMillion) / 1_000_000.0;
+
+        return AnalysisUsage.builder()
+                .llmCalls(u.calls())
+                .llmRetries(u.hedges())
+                .llmIncompleteCalls(u.incomplete())
+                .llmContextCachedCalls(u.contextCachedCalls())
+                .promptTokens(u.promptTokens())
+                .outputTokens(u.outputTokens())
+                .cachedTokens(u.cachedTokens())
+                .latencyMillis(u.latencyMillis())
+                .maxLatencyMillis(u.maxLatencyMillis())
+                .coalescedItems(u.coalescedItems())
+                .reusedJudgements(semantic.reusedFrom().size())
+                .model(llmProvider.model())
+                .estimatedCostUsd(BigDecimal.valueOf(cost).setScale(6, RoundingMode.HALF_UP))
+                .build();
     }
 
     private List<RegulationClause> filterPart145SectionA(final List<RegulationClause> all) {
@@ -181,51 +695,142 @@ public class ComplianceAnalysisEngine {
         return type.equals("REQUIREMENT") || type.equals("AMC") || type.equals("GM");
     }
 
-    private CoverageResult createCoverageResult(
-            final AnalysisResult analysis,
-            final ClauseMatchResult matchResult) {
-
-        final CoverageStatus status = classifyMatch(matchResult.bestSimilarity());
-
-        final String moeEvidence = matchResult.matches().stream()
-                .limit(3)
-                .map(m -> {
-                    final String section = m.paragraph().getSection() != null
-                            ? m.paragraph().getSection().getSectionNumber()
-                            : "N/A";
-                    return String.format("Section %s (%.0f%%)", section, m.similarity() * 100);
-                })
-                .collect(Collectors.joining(", "));
-
-        final List<Paragraph> paragraphs = matchResult.matches().stream()
-                .limit(5)
-                .map(ParagraphMatch::paragraph)
-                .toList();
-
-        final MatchType matchType = paragraphs.size() > 1
-                ? MatchType.AGGREGATE
-                : MatchType.SINGLE;
-
-        return CoverageResult.builder()
-                .analysisResult(analysis)
-                .clauseId(matchResult.clauseId())
-                .clauseTitle(matchResult.clauseTitle())
-                .status(status)
-                .similarity(BigDecimal.valueOf(matchResult.bestSimilarity()))
-                .matchType(matchType)
-                .matchedParagraphs(paragraphs)
-                .moeExcerpt(moeEvidence)
-                .explanation(matchResult.evidence())
-                .build();
+    /**
+     * @param clauses           clauses this run matches
+     * @param regulationClauses all clauses a full run of the pair matches, for the judge's
+     *                          shared regulation context
+     */
+    private record AnalysisInput(UUID moeId,
+                                 UUID regulationId,
+                                 List<Paragraph> paragraphs,
+                                 TextMatcher.ParagraphIndex index,
+                                 List<RegulationClause> clauses,
+                                 List<RegulationClause> regulationClauses,
+                                 UUID baseAnalysisId,
+                                 SimilarityMatrixStore.StoredMatrix cachedMatrix,
+                                 AnalysisScope scope) {}
+
+    /**
+     * Paragraphs, parsed paragraph embeddings and clauses loaded once per batch.
+     */
+    private static final class BatchInputs {
+        final Map<UUID, CompletableFuture<List<Paragraph>>> paragraphs = new ConcurrentHashMap<>();
+        final Map<UUID, CompletableFuture<TextMatcher.ParagraphIndex>> indexes = new ConcurrentHashMap<>();
+        final Map<UUID, CompletableFuture<List<RegulationClause>>> clauses = new ConcurrentHashMap<>();
+
+        /**
+         * The first caller for a key loads it outside the map's locks; concurrent callers
+         * wait for that load. A failed load is removed so a later pair retries it.
+         */
+        <T> T load(final Map<UUID, CompletableFuture<T>> loaded, final UUID key, final Function<UUID, T> loader) {
+            final CompletableFuture<T> claim = new CompletableFuture<>();
+            final CompletableFuture<T> existing = loaded.putIfAbsent(key, claim);
+            if (existing != null) {
+                try {
+                    return existing.join();
+                } catch (final CompletionException e) {
+                    if (e.getCause() instanceof final RuntimeException cause) throw cause;
+                    throw e;
+                }
+            }
+
+            try {
+                final T value = loader.apply(key);
+                claim.complete(value);
+                return value;
+            } catch (final Throwable e) {
+                loaded.remove(key, claim);
+                claim.completeExceptionally(e);
+                throw e;
+            }
+        }
     }
 
-    private CoverageStatus classifyMatch(final double score) {
-        if (score >= 0.75) return CoverageStatus.COVERED;
-        if (score >= 0.40) return CoverageStatus.PARTIAL;
-        return CoverageStatus.MISSING;
+    /**
+     * Writes finalized clauses (coverage + compliance outcome) in batches on its own
+     * thread while the analysis is still judging. The queue is bounded, so a slow
+     * database throttles the judge instead of buffering without limit.
+     */
+    private final class ResultWriter {
+
+        private final FinalizedClause end = new FinalizedClause(null, null, null, null, null, null);
+
+        private final UUID analysisId;
+        private final BlockingQueue<FinalizedClause> queue = new ArrayBlockingQueue<>(writeQueueCapacity);
+        private final List<CoverageResult> written = new ArrayList<>();
+        private final Thread thread;
+        private volatile Exception failure;
+
+        ResultWriter(final UUID analysisId) {
+            this.analysisId = analysisId;
+            this.thread = Thread.ofVirtual().name("analysis-writer-" + analysisId).start(this::drain);
+        }
+
+        void accept(final List<FinalizedClause> results) {
+            try {
+                for (final FinalizedClause r : results) queue.put(r);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing results", e);
+            }
+        }
+
+        /**
+         * Flush what is queued and wait for the writer.
+         *
+         * @return coverage rows written for this analysis
+         */
+        List<CoverageResult> finish() throws InterruptedException {
+            queue.put(end);
+            thread.join();
+            if (failure != null) {
+                throw new IllegalStateException("Persisting clause results failed", failure);
+            }
+            return written;
+        }
+
+        void abort() {
+            try {
+                queue.put(end);
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void drain() {
+            final List<FinalizedClause> batch = new ArrayList<>(writeBatchSize);
+            boolean done = false;
+
+            while (!done) {
+                try {
+                    batch.add(queue.take());
+                } catch (final InterruptedException e) {
+                    failure = e;
+                    return;
+                }
+                queue.drainTo(batch, writeBatchSize - 1);
+                done = batch.removeIf(c -> c == end);
+
+                // After a failure keep draining so producers never block on a full queue
+                if (failure == null && !batch.isEmpty()) {
+                    try {
+                        write(batch);
+                    } catch (final Exception e) {
+                        log.error("Writing results for analysis {} failed: {}", analysisId, e.getMessage());
+                        failure = e;
+                    }
+                }
+                batch.clear();
+            }
+        }
+
+        private void write(final List<FinalizedClause> batch) {
+            written.addAll(resultPersister.persist(analysisId, batch));
+        }
     }
 
-    private BigDecimal calculateComplianceScore(
+    static BigDecimal calculateComplianceScore(
             final int covered, final int partial, final int missing, final int total) {
 
         if (total == 0) return BigDecimal.ZERO;
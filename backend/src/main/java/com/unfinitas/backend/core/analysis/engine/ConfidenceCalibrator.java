@@ -0,0 +1,266 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unfinitas.backend.core.analysis.dto.ClauseFeatures;
+import com.unfinitas.backend.core.analysis.model.CalibrationModel;
+import com.unfinitas.backend.core.analysis.model.ComplianceOutcome;
+import com.unfinitas.backend.core.analysis.repository.CalibrationModelRepository;
+import com.unfinitas.backend.core.analysis.repository.ComplianceOutcomeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Predicts the judge's compliance status from cosine-stage features so that
+ * clauses the model is sure about can skip the LLM.
+ * <p>
+ * The model is a softmax regression over {@link ClauseFeatures}, fit offline on
+ * stored {@link ComplianceOutcome} rows (LLM verdicts). Every fifth row is held
+ * out; the model only becomes active when at least
+ * {@code analysis.calibration.min-confident-holdout} hold-out predictions are
+ * confident and their accuracy reaches {@code analysis.calibration.min-accuracy}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConfidenceCalibrator {
+
+    static final String[] STATUSES = {"non", "partial", "full"};
+
+    private static final int EPOCHS = 400;
+    private static final double LEARNING_RATE = 0.5;
+    private static final double L2 = 1e-3;
+    private static final int HOLDOUT_EVERY = 5;
+
+    private final ComplianceOutcomeRepository outcomeRepo;
+    private final CalibrationModelRepository modelRepo;
+    private final ObjectMapper objectMapper;
+
+    private volatile double[][] weights;
+    private volatile boolean loaded;
+
+    @Value("${analysis.calibration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${analysis.calibration.min-confidence:0.90}")
+    private double minConfidence;
+
+    @Value("${analysis.calibration.min-samples:200}")
+    private int minSamples;
+
+    @Value("${analysis.calibration.min-accuracy:0.95}")
+    private double minAccuracy;
+
+    // A handful of confident hold-out hits would otherwise pass min-accuracy by chance
+    @Value("${analysis.calibration.min-confident-holdout:30}")
+    private int minConfidentHoldout;
+
+    /**
+     * @return the predicted status when the active model is confident enough to skip
+     *         the LLM, otherwise empty
+     */
+    public Optional<Prediction> confidentPrediction(final ClauseFeatures features) {
+        if (!enabled || features == null) return Optional.empty();
+
+        final double[][] w = activeWeights();
+        if (w == null) return Optional.empty();
+
+        final Prediction p = predict(w, features.vector());
+        return p.probability() >= minConfidence ? Optional.of(p) : Optional.empty();
+    }
+
+    /**
+     * Fit a new model on all original (not reused or carried-over) outcomes with stored
+     * features and persist it.
+     */
+    @Transactional
+    public CalibrationModel fit() {
+        final List<double[]> train = new ArrayList<>();
+        final List<Integer> trainLabels = new ArrayList<>();
+        final List<double[]> holdout = new ArrayList<>();
+        final List<Integer> holdoutLabels = new ArrayList<>();
+
+        int i = 0;
+        for (final ComplianceOutcome o : outcomeRepo.findOriginalWithFeatures()) {
+            final double[] x = new ClauseFeatures(
+                    o.getFeatureTop1(),
+                    o.getFeatureGap() != null ? o.getFeatureGap() : 0.0,
+                    o.getFeatureKeyword() != null ? o.getFeatureKeyword() : 0.0,
+                    o.getClauseType()
+            ).vector();
+            final int y = label(o.getComplianceStatus());
+
+            if (i++ % HOLDOUT_EVERY == 0) {
+                holdout.add(x);
+                holdoutLabels.add(y);
+            } else {
+                train.add(x);
+                trainLabels.add(y);
+            }
+        }
+
+        final int samples = train.size() + holdout.size();
+        if (samples < minSamples) {
+            throw new IllegalStateException(
+                    "Not enough labelled outcomes to fit calibration: " + samples + " < " + minSamples);
+        }
+
+        final double[][] w = train(train, trainLabels);
+
+        int correct = 0;
+        int confident = 0;
+        int confidentCorrect = 0;
+        for (int k = 0; k < holdout.size(); k++) {
+            final Prediction p = predict(w, holdout.get(k));
+            final boolean hit = p.label() == holdoutLabels.get(k);
+            if (hit) correct++;
+            if (p.probability() >= minConfidence) {
+                confident++;
+                if (hit) confidentCorrect++;
+            }
+        }
+
+        final double accuracy = holdout.isEmpty() ? 0.0 : (double) correct / holdout.size();
+        final double confidentAccuracy = confident == 0 ? 0.0 : (double) confidentCorrect / confident;
+        final double coverage = holdout.isEmpty() ? 0.0 : (double) confident / holdout.size();
+        final boolean active = confident >= minConfidentHoldout && confidentAccuracy >= minAccuracy;
+
+        final CalibrationModel model;
+        try {
+            model = CalibrationModel.builder()
+                    .createdAt(LocalDateTime.now())
+                    .weightsJson(objectMapper.writeValueAsString(w))
+                    .sampleCount(samples)
+                    .holdoutAccuracy(accuracy)
+                    .confidentAccuracy(confidentAccuracy)
+                    .confidentCoverage(coverage)
+                    .confidentCount(confident)
+                    .active(active)
+                    .build();
+        } catch (final Exception e) {
+            throw new IllegalStateException("Cannot serialize calibration weights", e);
+        }
+
+        modelRepo.save(model);
+        this.weights = active ? w : null;
+        this.loaded = true;
+
+        log.info("Calibration fit on {} outcomes: accuracy={}, confident accuracy={} on {} hold-out clauses ({}), active={}",
+                samples, String.format("%.3f", accuracy), String.format("%.3f", confidentAccuracy),
+                confident, String.format("%.0f%%", coverage * 100), active);
+
+        return model;
+    }
+
+    public Optional<CalibrationModel> currentModel() {
+        return modelRepo.findTopByOrderByCreatedAtDesc();
+    }
+
+    private double[][] activeWeights() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    try {
+                        this.weights = currentModel()
+                                .filter(CalibrationModel::isActive)
+                                .map(m -> readWeights(m.getWeightsJson()))
+                                .orElse(null);
+                    } catch (final Exception e) {
+                        log.warn("Cannot load calibration model: {}", e.getMessage());
+                    }
+                    this.loaded = true;
+                }
+            }
+        }
+        return weights;
+    }
+
+    private double[][] readWeights(final String json) {
+        try {
+            return objectMapper.readValue(json, double[][].class);
+        } catch (final Exception e) {
+            throw new IllegalStateException("Corrupt calibration weights", e);
+        }
+    }
+
+    /**
+     * Batch gradient descent on softmax cross-entropy with L2 on non-bias weights.
+     */
+    private double[][] train(final List<double[]> xs, final List<Integer> ys) {
+        final int classes = STATUSES.length;
+        final double[][] w = new double[classes][ClauseFeatures.SIZE];
+        final int n = xs.size();
+
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            final double[][] grad = new double[classes][ClauseFeatures.SIZE];
+
+            for (int k = 0; k < n; k++) {
+                final double[] x = xs.get(k);
+                final double[] p = softmax(w, x);
+                final int y = ys.get(k);
+
+                for (int c = 0; c < classes; c++) {
+                    final double err = p[c] - (c == y ? 1.0 : 0.0);
+                    for (int f = 0; f < x.length; f++) {
+                        grad[c][f] += err * x[f];
+                    }
+                }
+            }
+
+            for (int c = 0; c < classes; c++) {
+                for (int f = 0; f < ClauseFeatures.SIZE; f++) {
+                    final double reg = f == 0 ? 0.0 : L2 * w[c][f];
+                    w[c][f] -= LEARNING_RATE * (grad[c][f] / n + reg);
+                }
+            }
+        }
+
+        return w;
+    }
+
+    private static Prediction predict(final double[][] w, final double[] x) {
+        final double[] p = softmax(w, x);
+        int best = 0;
+        for (int c = 1; c < p.length; c++) {
+            if (p[c] > p[best]) best = c;
+        }
+        return new Prediction(best, STATUSES[best], p[best]);
+    }
+
+    private static double[] softmax(final double[][] w, final double[] x) {
+        final double[] z = new double[w.length];
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < w.length; c++) {
+            double s = 0.0;
+            for (int f = 0; f < x.length; f++) s += w[c][f] * x[f];
+            z[c] = s;
+            max = Math.max(max, s);
+        }
+
+        double sum = 0.0;
+        for (int c = 0; c < z.length; c++) {
+            z[c] = Math.exp(z[c] - max);
+            sum += z[c];
+        }
+        for (int c = 0; c < z.length; c++) z[c] /= sum;
+        return z;
+    }
+
+    private static int label(final String status) {
+        if ("full".equals(status)) return 2;
+        if ("partial".equals(status)) return 1;
+        return 0;
+    }
+
+    /**
+     * @param status compliance status in the judge's vocabulary (full / partial / non)
+     */
+    public record Prediction(int label, String status, double probability) {}
+}
@@ -1,6 +1,7 @@
 package com.unfinitas.backend.core.analysis.engine;
 
 import com.unfinitas.backend.core.analysis.dto.ClauseMatchResult;
+import com.unfinitas.backend.core.analysis.dto.CoverageThresholds;
 import com.unfinitas.backend.core.analysis.dto.GapAnalysisResult;
 import com.unfinitas.backend.core.analysis.model.GapFinding;
 import com.unfinitas.backend.core.analysis.model.enums.GapSeverity;
@@ -19,9 +20,21 @@ import java.util.stream.Collectors;
 @Slf4j
 public class GapDetector {
 
+    private final CoverageThresholds thresholds;
+
     public GapAnalysisResult detectGaps(
             final SemanticAnalyzer.SemanticAnalysisResult semanticResult,
             final List<RegulationClause> clauses) {
+        return detectGaps(semanticResult, clauses, thresholds);
+    }
+
+    /**
+     * @param thresholds cut-offs for "no gap" (covered) and "not found" (relevance)
+     */
+    public GapAnalysisResult detectGaps(
+            final SemanticAnalyzer.SemanticAnalysisResult semanticResult,
+            final List<RegulationClause> clauses,
+            final CoverageThresholds thresholds) {
 
         log.info("Starting gap detection for {} clauses", clauses.size());
 
@@ -55,14 +68,14 @@ public class GapDetector {
                 continue;
             }
 
-            final GapSeverity severity = determineSeverity(match, clause);
+            final GapSeverity severity = determineSeverity(match, clause, thresholds);
 
             if (severity != null) {
                 final GapFinding gap = GapFinding.builder()
                         .clauseId(match.clauseId())
                         .clauseTitle(match.clauseTitle())
                         .severity(severity)
-                        .description(generateDescription(match, clause))
+                        .description(generateDescription(match, clause, thresholds))
                         .missingElements(identifyMissingElements(match, clause))
                         .suggestedActions(generateActions(match, clause))
                         .estimatedEffort(estimateEffort(severity))
@@ -84,15 +97,17 @@ public class GapDetector {
         return new GapAnalysisResult(gaps);
     }
 
-    private GapSeverity determineSeverity(final ClauseMatchResult match, final RegulationClause clause) {
+    private GapSeverity determineSeverity(final ClauseMatchResult match,
+                                          final RegulationClause clause,
+                                          final CoverageThresholds thresholds) {
         final boolean isMandatory = clause.isRequirement();
         final double similarity = match.bestSimilarity();
 
-        if (similarity >= 0.75) {
+        if (similarity >= thresholds.covered()) {
             return null; // No gap
         }
 
-        if (similarity < 0.30) {
+        if (similarity < thresholds.relevance()) {
             return isMandatory ? GapSeverity.CRITICAL : GapSeverity.MINOR;
         }
 
@@ -103,10 +118,12 @@ public class GapDetector {
         return GapSeverity.INFORMATIONAL;
     }
 
-    private String generateDescription(final ClauseMatchResult match, final RegulationClause clause) {
+    private String generateDescription(final ClauseMatchResult match,
+                                       final RegulationClause clause,
+                                       final CoverageThresholds thresholds) {
         final double similarity = match.bestSimilarity();
 
-        if (match.matches().isEmpty() || similarity < 0.30) {
+        if (match.matches().isEmpty() || similarity < thresholds.relevance()) {
             return String.format(
                     "Required clause %s not found in MOE",
                     clause.getClauseId()
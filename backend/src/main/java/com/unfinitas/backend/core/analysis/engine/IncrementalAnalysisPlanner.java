@@ -0,0 +1,241 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.unfinitas.backend.core.analysis.dto.ClauseFeatures;
+import com.unfinitas.backend.core.analysis.dto.ClauseMatchResult;
+import com.unfinitas.backend.core.analysis.dto.CoverageThresholds;
+import com.unfinitas.backend.core.analysis.dto.FinalizedClause;
+import com.unfinitas.backend.core.analysis.dto.ParagraphMatch;
+import com.unfinitas.backend.core.analysis.matcher.TextMatcher;
+import com.unfinitas.backend.core.analysis.model.AnalysisResult;
+import com.unfinitas.backend.core.analysis.model.ComplianceOutcome;
+import com.unfinitas.backend.core.analysis.model.CoverageResult;
+import com.unfinitas.backend.core.analysis.repository.AnalysisResultRepository;
+import com.unfinitas.backend.core.analysis.repository.ComplianceOutcomeRepository;
+import com.unfinitas.backend.core.analysis.repository.CoverageResultRepository;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.ingestion.repository.ParagraphRepository;
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+import com.unfinitas.backend.core.regulation.model.RegulationClause;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which clauses of a revised MOE must be recomputed and which can be carried
+ * over from the analysis of the previous revision.
+ * <p>
+ * Paragraphs are aligned to the base revision by content hash. A clause is carried over
+ * when every paragraph it matched in the base analysis still exists unchanged and no
+ * new or edited paragraph reaches the relevance threshold for it, i.e. its candidate
+ * set cannot have changed. Its coverage and LLM judgement are then copied with
+ * paragraph ids remapped and the base analysis recorded as source.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IncrementalAnalysisPlanner {
+
+    private final AnalysisResultRepository analysisRepo;
+    private final CoverageResultRepository coverageRepo;
+    private final ComplianceOutcomeRepository outcomeRepo;
+    private final ParagraphRepository paragraphRepo;
+    private final JudgementReuseIndex reuseIndex;
+    private final TextMatcher textMatcher;
+    private final CoverageThresholds thresholds;
+
+    /**
+     * @param paragraphs current MOE paragraphs, sections loaded
+     * @param clauses    clauses in scope for the new analysis
+     */
+    @Transactional(readOnly = true)
+    public Plan plan(final UUID baseAnalysisId,
+                     final List<Paragraph> paragraphs,
+                     final List<RegulationClause> clauses) {
+
+        final AnalysisResult base = analysisRepo.findById(baseAnalysisId)
+                .orElseThrow(() -> new IllegalStateException("Base analysis not found: " + baseAnalysisId));
+
+        // 1. Align base paragraphs to current ones by content hash, in document order
+        final Map<Long, Paragraph> aligned = align(
+                paragraphRepo.findByMoeDocumentIdOrderByParagraphOrder(base.getMoeDocument().getId()),
+                paragraphs);
+        final Set<Long> alignedCurrent = aligned.values().stream()
+                .map(Paragraph::getId)
+                .collect(Collectors.toSet());
+        final List<Paragraph> changed = paragraphs.stream()
+                .filter(p -> !alignedCurrent.contains(p.getId()))
+                .toList();
+
+        final Map<String, CoverageResult> baseCoverage = coverageRepo.findByAnalysisResultWithParagraphs(base)
+                .stream()
+                .collect(Collectors.toMap(CoverageResult::getClauseId, Function.identity(), (a, b) -> a));
+        final Map<String, ComplianceOutcome> baseOutcomes = outcomeRepo.findByAnalysisId(baseAnalysisId)
+                .stream()
+                .collect(Collectors.toMap(ComplianceOutcome::getRequirementId, Function.identity(), (a, b) -> a));
+
+        // 2. Clauses whose base candidates all survived unchanged
+        final List<RegulationClause> recompute = new ArrayList<>();
+        final List<RegulationClause> unchanged = new ArrayList<>();
+        for (final RegulationClause clause : clauses) {
+            final CoverageResult coverage = baseCoverage.get(clause.getClauseId());
+            final ComplianceOutcome outcome = baseOutcomes.get(clause.getClauseId());
+
+            final boolean survived = coverage != null
+                    && coverage.getMatchedParagraphs().stream().allMatch(p -> aligned.containsKey(p.getId()))
+                    && (outcome == null || parseIds(outcome.getCandidateParagraphIds()).stream()
+                            .allMatch(aligned::containsKey));
+
+            (survived ? unchanged : recompute).add(clause);
+        }
+
+        // 3. ... and that no new or edited paragraph could join
+        if (!changed.isEmpty() && !unchanged.isEmpty()) {
+            final Map<UUID, List<TextMatcher.ParagraphMatchResult>> newcomers = textMatcher.batchFindMatches(
+                    unchanged, textMatcher.index(changed), thresholds.relevance());
+
+            final Iterator<RegulationClause> it = unchanged.iterator();
+            while (it.hasNext()) {
+                final RegulationClause clause = it.next();
+                if (!newcomers.getOrDefault(clause.getId(), List.of()).isEmpty()) {
+                    it.remove();
+                    recompute.add(clause);
+                }
+            }
+        }
+
+        // 4. Copy the rest
+        final Map<Long, Long> idMapping = aligned.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getId()));
+
+        final List<FinalizedClause> carried = new ArrayList<>();
+        for (final RegulationClause clause : unchanged) {
+            final FinalizedClause c = carryOver(base, clause, baseCoverage.get(clause.getClauseId()),
+                    baseOutcomes.get(clause.getClauseId()), aligned, idMapping);
+            if (c != null) {
+                carried.add(c);
+            } else {
+                recompute.add(clause);
+            }
+        }
+
+        log.info("Incremental analysis from {}: {} paragraphs aligned, {} new or edited; {} clauses carried over, {} recomputed",
+                baseAnalysisId, aligned.size(), changed.size(), carried.size(), recompute.size());
+
+        // Keep regulation order so requirements stay ahead of their AMC/GM in the cosine chunks
+        final Set<UUID> toRecompute = recompute.stream().map(RegulationClause::getId).collect(Collectors.toSet());
+        return new Plan(
+                clauses.stream().filter(c -> toRecompute.contains(c.getId())).toList(),
+                carried,
+                aligned.size(),
+                changed.size());
+    }
+
+    /**
+     * Greedy in-order pairing of identical paragraphs; duplicates pair first-to-first.
+     *
+     * @return base paragraph id → current paragraph
+     */
+    private static Map<Long, Paragraph> align(final List<Paragraph> base, final List<Paragraph> current) {
+        final Map<String, Deque<Paragraph>> byHash = new HashMap<>();
+        for (final Paragraph p : current) {
+            byHash.computeIfAbsent(p.getContentHash(), k -> new ArrayDeque<>()).add(p);
+        }
+
+        final Map<Long, Paragraph> aligned = new HashMap<>();
+        for (final Paragraph p : base) {
+            final Deque<Paragraph> same = byHash.get(p.getContentHash());
+            if (same != null && !same.isEmpty()) aligned.put(p.getId(), same.poll());
+        }
+        return aligned;
+    }
+
+    /**
+     * @return the base result on current paragraphs, or null if the stored judgement cannot be rebuilt
+     */
+    private FinalizedClause carryOver(final AnalysisResult base,
+                                      final RegulationClause clause,
+                                      final CoverageResult coverage,
+                                      final ComplianceOutcome outcome,
+                                      final Map<Long, Paragraph> aligned,
+                                      final Map<Long, Long> idMapping) {
+
+        ComplianceResult compliance = null;
+        ClauseFeatures features = null;
+        UUID reusedFrom = null;
+        List<Long> judgedParagraphIds = null;
+
+        if (outcome != null) {
+            compliance = reuseIndex.toResult(outcome, idMapping);
+            if (compliance == null) return null;
+
+            if (outcome.getFeatureTop1() != null) {
+                features = new ClauseFeatures(
+                        outcome.getFeatureTop1(),
+                        outcome.getFeatureGap() != null ? outcome.getFeatureGap() : 0.0,
+                        outcome.getFeatureKeyword() != null ? outcome.getFeatureKeyword() : 0.0,
+                        outcome.getClauseType());
+            }
+            reusedFrom = Boolean.TRUE.equals(outcome.getReused()) && outcome.getSourceAnalysisId() != null
+                    ? outcome.getSourceAnalysisId()
+                    : base.getId();
+            if (outcome.getCandidateParagraphIds() != null) {
+                judgedParagraphIds = parseIds(outcome.getCandidateParagraphIds()).stream()
+                        .map(id -> idMapping.getOrDefault(id, id))
+                        .toList();
+            }
+        }
+
+        final List<Paragraph> current = coverage.getMatchedParagraphs().stream()
+                .map(p -> aligned.get(p.getId()))
+                .toList();
+        final List<ParagraphMatch> matches = textMatcher.rank(clause, current).stream()
+                .map(r -> new ParagraphMatch(
+                        r.paragraph(), r.similarity(), SemanticAnalyzer.extractContext(r.paragraph())))
+                .toList();
+
+        final double similarity = coverage.getSimilarity() != null ? coverage.getSimilarity().doubleValue() : 0.0;
+        final ClauseMatchResult match = new ClauseMatchResult(
+                clause.getClauseId(),
+                clause.getTitle(),
+                matches,
+                similarity,
+                matches.isEmpty()
+                        ? ClauseMatchResult.MatchQuality.NOT_FOUND
+                        : SemanticAnalyzer.determineQuality(similarity),
+                coverage.getExplanation(),
+                compliance
+        );
+
+        return new FinalizedClause(match, features, reusedFrom, null, base.getId(), judgedParagraphIds);
+    }
+
+    private static List<Long> parseIds(final String csv) {
+        if (csv == null || csv.isBlank()) return List.of();
+        return Arrays.stream(csv.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(Long::valueOf)
+                .toList();
+    }
+
+    /**
+     * @param recompute          clauses that go through the full cosine + LLM pipeline
+     * @param carried            base results carried over onto the current paragraphs
+     * @param alignedParagraphs  current paragraphs identical to one in the base revision
+     * @param changedParagraphs  current paragraphs that are new or edited
+     */
+    public record Plan(List<RegulationClause> recompute,
+                       List<FinalizedClause> carried,
+                       int alignedParagraphs,
+                       int changedParagraphs) {
+
+        public static Plan full(final List<RegulationClause> clauses) {
+            return new Plan(clauses, List.of(), 0, 0);
+        }
+    }
+}
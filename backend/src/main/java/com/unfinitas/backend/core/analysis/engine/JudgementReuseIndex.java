@@ -0,0 +1,198 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unfinitas.backend.core.analysis.model.ComplianceOutcome;
+import com.unfinitas.backend.core.analysis.repository.ComplianceOutcomeRepository;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.ingestion.repository.ParagraphRepository;
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Finds prior LLM judgements that can be reused for a clause because its candidate
+ * paragraphs are semantically unchanged.
+ * <p>
+ * Exact text keys miss MOE revisions that only touch whitespace or a revision date.
+ * Here a prior {@link ComplianceOutcome} for the same clause and regulation matches
+ * when the paragraphs its judge was shown and the ones the judge would be shown now
+ * pair one-to-one at cosine similarity &ge; {@code analysis.reuse.min-similarity}.
+ * Evidence paragraph ids are remapped to the current paragraphs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JudgementReuseIndex {
+
+    /** Most recent prior outcomes tried per clause. */
+    private static final int MAX_PRIOR_PER_CLAUSE = 3;
+
+    private final ComplianceOutcomeRepository outcomeRepo;
+    private final ParagraphRepository paragraphRepo;
+    private final ObjectMapper objectMapper;
+
+    @Value("${analysis.reuse.enabled:false}")
+    private boolean enabled;
+
+    @Value("${analysis.reuse.min-similarity:0.98}")
+    private double minSimilarity;
+
+    /**
+     * @param candidates paragraphs the judge would be shown now per clause id, best first
+     * @return reusable judgements keyed by clause id
+     */
+    public Map<String, ReusedJudgement> findReusable(final UUID regulationId,
+                                                     final Map<String, List<Paragraph>> candidates) {
+        if (!enabled || regulationId == null || candidates.isEmpty()) return Map.of();
+
+        final Map<String, List<ComplianceOutcome>> priorByClause = new HashMap<>();
+        for (final ComplianceOutcome o : outcomeRepo.findReusable(regulationId, candidates.keySet())) {
+            final List<ComplianceOutcome> list =
+                    priorByClause.computeIfAbsent(o.getRequirementId(), k -> new ArrayList<>());
+            if (list.size() < MAX_PRIOR_PER_CLAUSE) list.add(o);
+        }
+        if (priorByClause.isEmpty()) return Map.of();
+
+        final Set<Long> priorIds = priorByClause.values().stream()
+                .flatMap(List::stream)
+                .flatMap(o -> parseIds(o.getCandidateParagraphIds()).stream())
+                .collect(Collectors.toSet());
+
+        final Map<Long, float[]> priorEmbeddings = new HashMap<>();
+        for (final Paragraph p : paragraphRepo.findAllById(priorIds)) {
+            final float[] e = p.getEmbeddingArray();
+            if (e != null) priorEmbeddings.put(p.getId(), e);
+        }
+
+        final Map<String, ReusedJudgement> reusable = new HashMap<>();
+
+        candidates.forEach((clauseId, current) -> {
+            final List<ComplianceOutcome> prior = priorByClause.get(clauseId);
+            if (prior == null || current.isEmpty()) return;
+
+            for (final ComplianceOutcome o : prior) {
+                final Map<Long, Long> mapping = pair(current, parseIds(o.getCandidateParagraphIds()), priorEmbeddings);
+                if (mapping == null) continue;
+
+                final ComplianceResult result = toResult(o, mapping);
+                if (result == null) continue;
+
+                final UUID source = Boolean.TRUE.equals(o.getReused()) && o.getSourceAnalysisId() != null
+                        ? o.getSourceAnalysisId()
+                        : o.getAnalysis().getId();
+                reusable.put(clauseId, new ReusedJudgement(result, source));
+                break;
+            }
+        });
+
+        log.info("Judgement reuse: {}/{} ambiguous clauses matched a prior outcome",
+                reusable.size(), candidates.size());
+        return reusable;
+    }
+
+    /**
+     * Greedy one-to-one pairing of current to prior candidates. Both lists are exactly
+     * what the judge sees, so a verdict given on more or fewer paragraphs never pairs.
+     *
+     * @return prior → current paragraph ids, or null if any candidate has no close enough partner
+     */
+    private Map<Long, Long> pair(final List<Paragraph> current,
+                                 final List<Long> prior,
+                                 final Map<Long, float[]> priorEmbeddings) {
+        if (current.size() != prior.size()) return null;
+
+        final Map<Long, Long> mapping = new HashMap<>();
+        final Set<Long> used = new HashSet<>();
+
+        for (final Paragraph p : current) {
+            final float[] a = p.getEmbeddingArray();
+            if (a == null) return null;
+
+            Long best = null;
+            double bestSim = minSimilarity;
+            for (final Long id : prior) {
+                if (used.contains(id)) continue;
+                final double sim = id.equals(p.getId()) ? 1.0 : cosine(a, priorEmbeddings.get(id));
+                if (sim >= bestSim) {
+                    best = id;
+                    bestSim = sim;
+                }
+            }
+
+            if (best == null) return null;
+            used.add(best);
+            mapping.put(best, p.getId());
+        }
+
+        return mapping;
+    }
+
+    /**
+     * Rebuild a stored judgement with evidence paragraph ids remapped (prior → current).
+     *
+     * @return null if the stored JSON cannot be read
+     */
+    ComplianceResult toResult(final ComplianceOutcome o, final Map<Long, Long> mapping) {
+        try {
+            final List<ComplianceResult.EvidenceItem> evidence = read(o.getEvidenceJson(), new TypeReference<>() {});
+            final List<ComplianceResult.EvidenceItem> remapped = evidence.stream()
+                    .map(e -> new ComplianceResult.EvidenceItem(
+                            mapping.getOrDefault(e.moe_paragraph_id(), e.moe_paragraph_id()),
+                            e.relevant_excerpt(),
+                            e.similarity_score(),
+                            e.rerank_score()))
+                    .toList();
+
+            return new ComplianceResult(
+                    o.getRequirementId(),
+                    remapped,
+                    o.getComplianceStatus(),
+                    o.getJustification(),
+                    read(o.getMissingElementsJson(), new TypeReference<>() {}),
+                    o.getFindingLevel(),
+                    read(o.getRecommendedActionsJson(), new TypeReference<>() {})
+            );
+
+        } catch (final Exception e) {
+            log.debug("Cannot rebuild outcome {} for reuse: {}", o.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private <T> List<T> read(final String json, final TypeReference<List<T>> type) throws Exception {
+        if (json == null || json.isBlank() || json.equals("null")) return List.of();
+        return objectMapper.readValue(json, type);
+    }
+
+    private static List<Long> parseIds(final String csv) {
+        if (csv == null || csv.isBlank()) return List.of();
+        return Arrays.stream(csv.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(Long::valueOf)
+                .toList();
+    }
+
+    private static double cosine(final float[] a, final float[] b) {
+        if (a == null || b == null || a.length != b.length) return 0.0;
+
+        double dot = 0.0, na = 0.0, nb = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return na == 0.0 || nb == 0.0 ? 0.0 : dot / (Math.sqrt(na) * Math.sqrt(nb));
+    }
+
+    /**
+     * @param sourceAnalysisId analysis whose LLM call produced the judgement
+     */
+    public record ReusedJudgement(ComplianceResult result, UUID sourceAnalysisId) {}
+}
@@ -0,0 +1,56 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.unfinitas.backend.core.analysis.matcher.Bm25Index;
+import com.unfinitas.backend.core.analysis.model.LexicalIndex;
+import com.unfinitas.backend.core.analysis.repository.LexicalIndexRepository;
+import com.unfinitas.backend.core.ingestion.model.MoeDocument;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps one BM25 index per MOE, built from its paragraphs at ingestion. Analyses that
+ * find none, or one missing some of their paragraphs, build it in memory instead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LexicalIndexStore {
+
+    private final LexicalIndexRepository lexicalRepo;
+
+    /**
+     * Runs in its own transaction so a failure cannot roll back the caller's ingestion.
+     *
+     * @param paragraphs persisted paragraphs of the document (ids assigned)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void save(final MoeDocument document, final List<Paragraph> paragraphs) {
+        final Bm25Index index = Bm25Index.build(paragraphs);
+        final byte[] data = index.encode();
+
+        final LexicalIndex row = lexicalRepo.findByMoeDocumentId(document.getId())
+                .orElseGet(() -> LexicalIndex.builder().moeDocument(document).build());
+        row.setParagraphCount(index.docCount());
+        row.setTermCount(index.termCount());
+        row.setData(data);
+        row.setCreatedAt(LocalDateTime.now());
+        lexicalRepo.save(row);
+
+        log.info("Stored lexical index for MOE {}: {} paragraphs, {} terms, {} bytes",
+                document.getId(), index.docCount(), index.termCount(), data.length);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Bm25Index> find(final UUID moeId) {
+        return lexicalRepo.findByMoeDocumentId(moeId).map(l -> Bm25Index.decode(l.getData()));
+    }
+}
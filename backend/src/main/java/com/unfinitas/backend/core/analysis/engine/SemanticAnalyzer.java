@@ -1,161 +1,705 @@
 package com.unfinitas.backend.core.analysis.engine;
 
+import com.unfinitas.backend.core.analysis.dto.AnalysisEstimate;
+import com.unfinitas.backend.core.analysis.dto.ClauseFeatures;
 import com.unfinitas.backend.core.analysis.dto.ClauseMatchResult;
+import com.unfinitas.backend.core.analysis.dto.CoverageThresholds;
+import com.unfinitas.backend.core.analysis.dto.FinalizedClause;
 import com.unfinitas.backend.core.analysis.dto.MoeParagraphCandidate;
 import com.unfinitas.backend.core.analysis.dto.ParagraphMatch;
+import com.unfinitas.backend.core.analysis.matcher.KeywordSimilarityStrategy;
+import com.unfinitas.backend.core.analysis.matcher.TokenizedText;
+import com.unfinitas.backend.core.analysis.matcher.SparseSimilarityMatrix;
 import com.unfinitas.backend.core.analysis.matcher.TextMatcher;
+import com.unfinitas.backend.core.analysis.model.enums.AnalysisStatus;
 import com.unfinitas.backend.core.ingestion.model.Paragraph;
 import com.unfinitas.backend.core.llm.LlmJudge;
+import com.unfinitas.backend.core.llm.RegulationContextCache;
+import com.unfinitas.backend.core.llm.UsageCollector;
+import com.unfinitas.backend.core.llm.RegulationContextCache.RegulationContext;
 import com.unfinitas.backend.core.llm.dto.ComplianceResult;
 import com.unfinitas.backend.core.regulation.model.RegulationClause;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SemanticAnalyzer {
 
-    private static final double RELEVANCE_THRESHOLD = 0.30;
     private static final double HIGH_SIMILARITY = 0.90;
     private static final double LOW_SIMILARITY  = 0.25;
 
-    private static final int MAX_MATCHES_FOR_UI   = 10;
-    private static final int MAX_CANDIDATES_FOR_LLM = 5;
+    static final int MAX_MATCHES_FOR_UI   = 10;
+    static final int MAX_CANDIDATES_FOR_LLM = 5;
+    static final String CALIBRATED_EVIDENCE = "Calibrated prediction";
     private static final int BATCH_SIZE = 5;
+    private static final int MAX_CLAUSES_PER_BATCH = 12;
+
+    // Pipeline: clauses per cosine chunk, and classified chunks buffered ahead of the judge
+    private static final int COSINE_CHUNK_SIZE = 64;
+    private static final int PIPELINE_QUEUE_CHUNKS = 16;
 
     private final TextMatcher textMatcher;
+    private final KeywordSimilarityStrategy keywordMatcher;
+    private final ConfidenceCalibrator calibrator;
+    private final JudgementReuseIndex reuseIndex;
     private final LlmJudge judge;
+    private final RegulationContextCache contextCache;
+    private final CoverageThresholds thresholds;
+    private final SimilarityMatrixStore matrixStore;
+
+    @Value("${analysis.llm.group-clauses:false}")
+    private boolean groupClauses;
 
     public SemanticAnalysisResult analyze(
             final List<Paragraph> moeParagraphs,
             final List<RegulationClause> clauses) {
+        return analyze(moeParagraphs, clauses, null);
+    }
+
+    /**
+     * @param deadline when set, ambiguous clauses are judged in priority order and no
+     *                 LLM batch is issued after this instant; the rest stay cosine-only
+     */
+    public SemanticAnalysisResult analyze(
+            final List<Paragraph> moeParagraphs,
+            final List<RegulationClause> clauses,
+            final Instant deadline) {
+        return analyze(moeParagraphs, clauses, deadline, AnalysisProgress.NONE);
+    }
+
+    /**
+     * Staged pipeline: clauses are matched and classified chunk by chunk on one thread
+     * while ambiguous ones are judged as soon as a full LLM batch is pending. Finished
+     * clauses are reported through {@code progress} as they become final, so callers
+     * can persist them while other clauses are still being judged.
+     */
+    public SemanticAnalysisResult analyze(
+            final List<Paragraph> moeParagraphs,
+            final List<RegulationClause> clauses,
+            final Instant deadline,
+            final AnalysisProgress progress) {
+        return analyze(textMatcher.index(moeParagraphs), clauses, deadline, progress);
+    }
+
+    /**
+     * @param index MOE paragraphs with parsed embeddings, shareable between analyses of the same MOE
+     */
+    public SemanticAnalysisResult analyze(
+            final TextMatcher.ParagraphIndex index,
+            final List<RegulationClause> clauses,
+            final Instant deadline,
+            final AnalysisProgress progress) {
+        return analyze(index, clauses, deadline, progress, null);
+    }
 
-        log.info("Starting semantic analysis: {} clauses vs {} paragraphs",
-                clauses.size(), moeParagraphs.size());
+    /**
+     * @param cached precomputed similarity matrix covering {@code clauses}; when set the
+     *               cosine stage reads it instead of scanning the index
+     */
+    public SemanticAnalysisResult analyze(
+            final TextMatcher.ParagraphIndex index,
+            final List<RegulationClause> clauses,
+            final Instant deadline,
+            final AnalysisProgress progress,
+            final SparseSimilarityMatrix cached) {
+        return analyze(index, clauses, deadline, progress, cached, clauses);
+    }
+
+    /**
+     * @param regulationClauses every clause of the regulation a full run would match; the
+     *                          judge's cached regulation context holds these, so runs over
+     *                          a subset of {@code clauses} reuse the full run's context
+     */
+    public SemanticAnalysisResult analyze(
+            final TextMatcher.ParagraphIndex index,
+            final List<RegulationClause> clauses,
+            final Instant deadline,
+            final AnalysisProgress progress,
+            final SparseSimilarityMatrix cached,
+            final List<RegulationClause> regulationClauses) {
+
+        progress.onStage(AnalysisStatus.COSINE);
+        log.info("Starting semantic analysis: {} clauses vs {} paragraphs{}",
+                clauses.size(), index.size(), cached != null ? " (precomputed similarities)" : "");
+
+        final AnalysisRun run = new AnalysisRun(clauses, regulationClauses, deadline, progress, matrixStore.newBuilder());
+        final List<ClauseMatchResult> results = new ArrayList<>();
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            final Future<List<ClauseMatchResult>> cosine = pool.submit(() -> classifyInChunks(run, index, cached));
+
+            final List<ClauseMatchResult> judged;
+            try {
+                judged = judgeAsClassified(run, pool);
+            } catch (final RuntimeException | InterruptedException e) {
+                run.abandonJudging();
+                cosine.cancel(true);
+                throw e;
+            }
+
+            results.addAll(cosine.get());
+            results.addAll(judged);
+
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Cosine stage failed", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Semantic analysis interrupted", e);
+        }
+
+        final UsageCollector.Summary u = run.usage.summary();
+        if (u.calls() > 0) {
+            log.info("Judge prompts: {} batches, ~{} tokens sent, ~{} tokens saved by paragraph dedup",
+                    u.payloadBatches(), u.estimatedSentTokens(), u.estimatedSavedTokens());
+            log.info("Judge usage: {} calls ({} hedged, {} incomplete), {} prompt / {} output / {} cached tokens, {}ms total",
+                    u.calls(), u.hedges(), u.incomplete(),
+                    u.promptTokens(), u.outputTokens(), u.cachedTokens(), u.latencyMillis());
+        }
+
+        return new SemanticAnalysisResult(
+                results, Map.copyOf(run.features), Map.copyOf(run.reusedFrom), u, run.matrix.build());
+    }
+
+    /**
+     * Run only the cosine stage and predict what a full analysis would cost.
+     * Clauses are classified exactly as {@link #analyze} would: same matrix, retrieval
+     * mode, candidate fusion and judgement reuse. No LLM calls are made; batch prompt
+     * sizes are computed from the real payloads and wall-clock time from recorded judge
+     * batch latencies.
+     *
+     * @param cached precomputed similarity matrix the analysis would read; may be null
+     */
+    public AnalysisEstimate estimate(
+            final TextMatcher.ParagraphIndex index,
+            final List<RegulationClause> clauses,
+            final SparseSimilarityMatrix cached) {
+
+        final long start = System.currentTimeMillis();
+        final AnalysisRun run = new AnalysisRun(clauses, clauses, null, AnalysisProgress.NONE, matrixStore.newBuilder());
+        final UUID regulationId = clauses.isEmpty() ? null : regulationId(clauses);
+
+        int high = 0;
+        int low = 0;
+        int calibrated = 0;
+        int reused = 0;
+        final List<AmbiguousClause> ambiguous = new ArrayList<>();
+
+        for (final List<RegulationClause> chunk : chunkAtRequirements(clauses)) {
+            final ChunkClassification c = classifyChunk(run, regulationId, chunk, index, cached);
+            high += c.high();
+            low += c.low();
+            calibrated += c.calibrated();
+            reused += c.reused();
+            ambiguous.addAll(c.toJudge());
+        }
+        final long cosineMillis = System.currentTimeMillis() - start;
+
+        final List<ClauseGroup> items = toJudgeItems(ambiguous);
+        final List<List<ClauseGroup>> batches = toBatches(items);
+
+        long promptTokens = 0;
+        long outputTokens = 0;
+        for (final List<ClauseGroup> batch : batches) {
+            final LlmJudge.TokenEstimate t = judge.estimateTokens(toInputs(batch));
+            promptTokens += t.promptTokens();
+            outputTokens += t.outputTokens();
+        }
+
+        final int samples = judge.batchLatencySamples();
+        final Duration p50 = judge.batchLatency(0.50);
+        final Duration p95 = judge.batchLatency(0.95);
+        final int waves = (batches.size() + judgeConcurrency() - 1) / judgeConcurrency();
+
+        return new AnalysisEstimate(
+                clauses.size(),
+                high,
+                low,
+                ambiguous.size() + calibrated + reused,
+                calibrated,
+                reused,
+                items.size(),
+                batches.size(),
+                promptTokens,
+                outputTokens,
+                samples,
+                samples > 0 ? p50.toMillis() : null,
+                samples > 0 ? p95.toMillis() : null,
+                samples > 0 ? waves * p50.toMillis() / 1000 : null,
+                samples > 0 ? waves * p95.toMillis() / 1000 : null,
+                cosineMillis
+        );
+    }
+
+    /**
+     * Cosine stage. Runs chunk by chunk; cosine-final results are reported right away
+     * and ambiguous clauses without a reusable judgement are queued for the judge.
+     * Always ends the queue, also on failure.
+     */
+    private List<ClauseMatchResult> classifyInChunks(final AnalysisRun run,
+                                                     final TextMatcher.ParagraphIndex index,
+                                                     final SparseSimilarityMatrix cached)
+            throws InterruptedException {
+
+        final List<ClauseMatchResult> results = new ArrayList<>();
+        final UUID regulationId = run.clauses.isEmpty() ? null : regulationId(run.clauses);
+        int calibrated = 0;
+        int lexicalOnly = 0;
+
+        try {
+            for (final List<RegulationClause> chunk : chunkAtRequirements(run.clauses)) {
+                final ChunkClassification c = classifyChunk(run, regulationId, chunk, index, cached);
+                calibrated += c.calibrated();
+                lexicalOnly += c.lexicalOnly();
+
+                results.addAll(c.finalized());
+                run.emit(c.finalized());
+
+                if (!c.toJudge().isEmpty()) run.publish(c.toJudge());
+            }
+        } finally {
+            run.endOfStream();
+        }
+
+        if (calibrated > 0) {
+            log.info("Calibration model resolved {} ambiguous clauses without the LLM", calibrated);
+        }
+        if (lexicalOnly > 0) {
+            log.info("{} clauses without a cosine match were sent to the judge on exact references", lexicalOnly);
+        }
 
-        final Map<UUID, List<TextMatcher.ParagraphMatchResult>> batchResults =
-                textMatcher.batchFindMatches(clauses, moeParagraphs, RELEVANCE_THRESHOLD);
+        return results;
+    }
 
-        log.info("Batch similarity computation complete.");
+    /**
+     * Classify one chunk of clauses. Similarities down to the matrix floor are recorded
+     * for later re-scoring, only those above the relevance threshold count as matches.
+     * With hybrid retrieval a clause without matches is still judged when BM25 finds one
+     * of its rare exact references.
+     */
+    private ChunkClassification classifyChunk(final AnalysisRun run,
+                                              final UUID regulationId,
+                                              final List<RegulationClause> chunk,
+                                              final TextMatcher.ParagraphIndex index,
+                                              final SparseSimilarityMatrix cached) {
+        final double floor = matrixStore.floor();
+        final Map<UUID, List<TextMatcher.ParagraphMatchResult>> batchResults = cached != null
+                ? fromMatrix(cached, chunk, index, floor)
+                : textMatcher.batchFindMatches(chunk, index, floor);
 
-        final List<RegulationClause> highClauses = new ArrayList<>();
-        final List<RegulationClause> lowClauses = new ArrayList<>();
-        final List<AmbiguousClause> ambiguousClauses = new ArrayList<>();
+        final List<ClauseMatchResult> finalized = new ArrayList<>();
+        final List<AmbiguousClause> ambiguous = new ArrayList<>();
+        int high = 0;
+        int low = 0;
+        int calibrated = 0;
+        int lexicalOnly = 0;
 
-        // Classify clauses
-        for (final RegulationClause clause : clauses) {
+        for (final RegulationClause clause : chunk) {
+            final List<TextMatcher.ParagraphMatchResult> scored = batchResults.get(clause.getId());
+            if (scored != null) run.matrix.add(clause.getId(), scored);
 
-            final List<TextMatcher.ParagraphMatchResult> clauseMatches =
-                    batchResults.getOrDefault(clause.getId(), List.of());
+            final List<TextMatcher.ParagraphMatchResult> clauseMatches = scored == null
+                    ? List.of()
+                    : scored.stream().takeWhile(m -> m.similarity() >= thresholds.relevance()).toList();
 
             if (clauseMatches.isEmpty()) {
-                lowClauses.add(clause);
+                // A rare exact reference only BM25 finds goes to the judge; nothing to band on
+                final List<TextMatcher.ParagraphMatchResult> lexical = textMatcher.lexicalOnly(clause, index);
+                if (lexical.isEmpty()) {
+                    finalized.add(noMatchResult(clause));
+                    low++;
+                } else {
+                    ambiguous.add(new AmbiguousClause(clause, toMatches(lexical), toCandidates(lexical),
+                            lexical.stream().mapToDouble(TextMatcher.ParagraphMatchResult::similarity).max().orElse(0.0)));
+                    lexicalOnly++;
+                }
                 continue;
             }
 
+            // Bands and features stay on cosine; hybrid retrieval only reorders and extends the candidates
             final double bestSim = clauseMatches.getFirst().similarity();
-            final List<ParagraphMatch> matches = clauseMatches.stream()
-                    .limit(MAX_MATCHES_FOR_UI)
-                    .map(r -> new ParagraphMatch(
-                            r.paragraph(), r.similarity(), extractContext(r.paragraph())))
-                    .toList();
+            final List<TextMatcher.ParagraphMatchResult> ranked = textMatcher.fuse(clause, clauseMatches, index);
+            final List<ParagraphMatch> matches = toMatches(ranked);
+
+            // HIGH / LOW → cosine-only
+            if (bestSim >= HIGH_SIMILARITY || bestSim <= LOW_SIMILARITY) {
+                finalized.add(buildCosineOnlyResult(clause, matches, bestSim));
+                if (bestSim >= HIGH_SIMILARITY) high++;
+                else low++;
+                continue;
+            }
 
-            if (bestSim >= HIGH_SIMILARITY) {
-                highClauses.add(clause);
-            } else if (bestSim <= LOW_SIMILARITY) {
-                lowClauses.add(clause);
-            } else {
-                final List<MoeParagraphCandidate> candidates = clauseMatches.stream()
-                        .limit(MAX_CANDIDATES_FOR_LLM)
-                        .map(r -> new MoeParagraphCandidate(
-                                r.paragraph().getId(),
-                                r.paragraph().getContent(),
-                                r.similarity(),
-                                r.paragraph().getSection() != null ?
-                                        r.paragraph().getSection().getSectionNumber() : "N/A",
-                                r.paragraph().getParagraphOrder()))
-                        .toList();
+            final ClauseFeatures f = extractFeatures(clause, clauseMatches, run.tokenized);
+            run.features.put(clause.getClauseId(), f);
 
-                ambiguousClauses.add(new AmbiguousClause(
-                        clause, matches, candidates, bestSim
-                ));
+            final Optional<ConfidenceCalibrator.Prediction> predicted = calibrator.confidentPrediction(f);
+            if (predicted.isPresent()) {
+                finalized.add(buildCalibratedResult(clause, matches, predicted.get()));
+                calibrated++;
+                continue;
             }
+
+            ambiguous.add(new AmbiguousClause(clause, matches, toCandidates(ranked), bestSim));
         }
 
-        final List<ClauseMatchResult> results = new ArrayList<>();
+        final List<AmbiguousClause> toJudge = reuseOrJudge(run, regulationId, ambiguous, finalized);
+        return new ChunkClassification(finalized, toJudge,
+                high, low, calibrated, lexicalOnly, ambiguous.size() - toJudge.size());
+    }
 
-        // HIGH → cosine-only
-        for (final RegulationClause clause : highClauses) {
-            final List<TextMatcher.ParagraphMatchResult> clauseMatches =
-                    batchResults.get(clause.getId());
+    /**
+     * Outcome of classifying one chunk.
+     *
+     * @param finalized   cosine-only, calibrated, no-match and reused results
+     * @param toJudge     ambiguous clauses that still need the LLM
+     * @param lexicalOnly clauses in {@code toJudge} found only by their exact references
+     * @param reused      ambiguous clauses answered by a prior judgement
+     */
+    private record ChunkClassification(List<ClauseMatchResult> finalized,
+                                       List<AmbiguousClause> toJudge,
+                                       int high,
+                                       int low,
+                                       int calibrated,
+                                       int lexicalOnly,
+                                       int reused) {}
 
-            final List<ParagraphMatch> matches = clauseMatches.stream()
-                    .limit(MAX_MATCHES_FOR_UI)
-                    .map(r -> new ParagraphMatch(r.paragraph(), r.similarity(), extractContext(r.paragraph())))
-                    .toList();
+    private static Map<UUID, List<TextMatcher.ParagraphMatchResult>> fromMatrix(
+            final SparseSimilarityMatrix matrix,
+            final List<RegulationClause> chunk,
+            final TextMatcher.ParagraphIndex index,
+            final double floor) {
+        final Map<UUID, List<TextMatcher.ParagraphMatchResult>> results = new HashMap<>();
+        for (final RegulationClause clause : chunk) {
+            if (matrix.contains(clause.getId())) {
+                results.put(clause.getId(), matrix.matches(clause.getId(), floor, index::paragraph));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * AMBIGUOUS → prior judgement if candidates are unchanged.
+     *
+     * @return clauses that still need the LLM
+     */
+    private List<AmbiguousClause> reuseOrJudge(final AnalysisRun run,
+                                               final UUID regulationId,
+                                               final List<AmbiguousClause> ambiguous,
+                                               final List<ClauseMatchResult> finalized) {
+        if (ambiguous.isEmpty()) return ambiguous;
+
+        // Compared with what the judge would be shown for the clause on its own
+        final Map<String, List<Long>> judgedIds = new HashMap<>();
+        final Map<String, List<Paragraph>> candidateParagraphs = new HashMap<>();
+        for (final AmbiguousClause ac : ambiguous) {
+            final Map<Long, Paragraph> byId = new HashMap<>();
+            for (final ParagraphMatch m : ac.matches) byId.putIfAbsent(m.paragraph().getId(), m.paragraph());
 
-            results.add(buildCosineOnlyResult(clause, matches, clauseMatches.getFirst().similarity()));
+            final List<Long> ids = judge.judgedParagraphIds(new LlmJudge.ClauseBatchInput(
+                    ac.clause.getClauseId(), ac.clause.getContent(), ac.candidates));
+            if (!byId.keySet().containsAll(ids)) continue;
+
+            judgedIds.put(ac.clause.getClauseId(), ids);
+            candidateParagraphs.put(ac.clause.getClauseId(), ids.stream().map(byId::get).toList());
         }
 
-        // LOW → cosine-only
-        for (final RegulationClause clause : lowClauses) {
-            final List<TextMatcher.ParagraphMatchResult> clauseMatches =
-                    batchResults.getOrDefault(clause.getId(), List.of());
+        final Map<String, JudgementReuseIndex.ReusedJudgement> reusable =
+                reuseIndex.findReusable(regulationId, candidateParagraphs);
 
-            if (clauseMatches.isEmpty()) {
-                results.add(noMatchResult(clause));
+        final List<AmbiguousClause> toJudge = new ArrayList<>();
+        for (final AmbiguousClause ac : ambiguous) {
+            final JudgementReuseIndex.ReusedJudgement prior = reusable.get(ac.clause.getClauseId());
+            if (prior == null) {
+                toJudge.add(ac);
                 continue;
             }
+            run.reusedFrom.put(ac.clause.getClauseId(), prior.sourceAnalysisId());
+            run.judgedCandidates.put(ac.clause.getClauseId(), judgedIds.get(ac.clause.getClauseId()));
+            finalized.add(buildJudgedResult(ac, prior.result()));
+        }
+        return toJudge;
+    }
 
-            final List<ParagraphMatch> matches = clauseMatches.stream()
-                    .limit(MAX_MATCHES_FOR_UI)
-                    .map(r -> new ParagraphMatch(r.paragraph(), r.similarity(), extractContext(r.paragraph())))
-                    .toList();
+    /**
+     * LLM stage. Pending judge items are kept in priority order; a batch is issued as
+     * soon as a full one is pending (or classification has finished) and a slot is free,
+     * so the deadline still cuts off the least important items first.
+     */
+    private List<ClauseMatchResult> judgeAsClassified(final AnalysisRun run, final ExecutorService pool)
+            throws InterruptedException {
+
+        final PriorityQueue<ClauseGroup> pending = new PriorityQueue<>(judgePriority());
+        final Semaphore slots = new Semaphore(judgeConcurrency());
+        final Map<Future<List<ClauseMatchResult>>, List<ClauseGroup>> issued = new LinkedHashMap<>();
+        final List<ClauseMatchResult> results = new ArrayList<>();
+
+        boolean judging = false;
+        boolean classified = false;
+        int planned = 0;
+        int unjudged = 0;
 
-            results.add(buildCosineOnlyResult(clause, matches, clauseMatches.getFirst().similarity()));
+        while (!classified || !pending.isEmpty()) {
+            while (!classified && !fullBatchPending(pending)) {
+                classified = accept(run.ambiguous.take(), pending, run);
+            }
+            if (pending.isEmpty()) continue;
+
+            if (!judging) {
+                run.progress.onStage(AnalysisStatus.LLM_JUDGING);
+                judging = true;
+            }
+
+            final boolean slot = acquireBefore(slots, run.deadline);
+
+            // Clauses classified while waiting for a slot compete for this batch too
+            final List<List<AmbiguousClause>> ready = new ArrayList<>();
+            run.ambiguous.drainTo(ready);
+            for (final List<AmbiguousClause> chunk : ready) {
+                classified |= accept(chunk, pending, run);
+            }
+
+            final List<ClauseGroup> batch = nextBatch(pending);
+            run.progress.onJudgeBatches(++planned);
+
+            if (!slot) {
+                final List<ClauseMatchResult> skipped = cosineOnly(batch);
+                results.addAll(skipped);
+                unjudged += batch.stream().mapToInt(ClauseGroup::size).sum();
+                run.emit(skipped);
+                run.progress.onJudgeBatchDone();
+                continue;
+            }
+
+            issued.put(pool.submit(() -> {
+                try {
+                    // Resolved per batch: judging can outlive the cached context's TTL
+                    final RegulationContext context = contextCache.contextFor(run.regulationClauses);
+                    final List<ClauseMatchResult> judged = processBatch(batch, context, run);
+                    run.emit(judged);
+                    return judged;
+                } finally {
+                    slots.release();
+                    run.progress.onJudgeBatchDone();
+                }
+            }), batch);
+        }
+
+        for (final Map.Entry<Future<List<ClauseMatchResult>>, List<ClauseGroup>> e : issued.entrySet()) {
+            try {
+                results.addAll(e.getKey().get());
+            } catch (final ExecutionException ex) {
+                log.error("Judge batch failed, cosine-only for {} items", e.getValue().size(), ex.getCause());
+                final List<ClauseMatchResult> fallback = cosineOnly(e.getValue());
+                results.addAll(fallback);
+                run.emit(fallback);
+            }
         }
 
-        // AMBIGUOUS → LLM
-        if (!ambiguousClauses.isEmpty()) {
-            results.addAll(processAmbiguousClausesInParallel(ambiguousClauses));
+        if (groupClauses && run.judgeItems > 0) {
+            log.info("Grouped {} ambiguous clauses into {} judge items", run.judgeClauses, run.judgeItems);
+        }
+        if (unjudged > 0) {
+            log.info("Time budget exhausted: {} ambiguous clauses finalized cosine-only", unjudged);
         }
 
-        return new SemanticAnalysisResult(results);
+        return results;
     }
 
-    private List<ClauseMatchResult> processAmbiguousClausesInParallel(
-            final List<AmbiguousClause> ambiguous) {
+    /**
+     * @return true when {@code chunk} is the end-of-classification marker
+     */
+    private boolean accept(final List<AmbiguousClause> chunk,
+                           final PriorityQueue<ClauseGroup> pending,
+                           final AnalysisRun run) {
+        if (chunk.isEmpty()) return true;
 
-        final List<List<AmbiguousClause>> batches = new ArrayList<>();
+        final List<ClauseGroup> items = toJudgeItems(chunk);
+        run.judgeClauses += chunk.size();
+        run.judgeItems += items.size();
+        pending.addAll(items);
+        return false;
+    }
 
-        for (int i = 0; i < ambiguous.size(); i += BATCH_SIZE) {
-            batches.add(ambiguous.subList(i, Math.min(i + BATCH_SIZE, ambiguous.size())));
+    private static boolean fullBatchPending(final PriorityQueue<ClauseGroup> pending) {
+        return pending.size() >= BATCH_SIZE
+                || pending.stream().mapToInt(ClauseGroup::size).sum() >= MAX_CLAUSES_PER_BATCH;
+    }
+
+    /**
+     * Take the highest-priority items that fit one batch (same limits as {@link #toBatches}).
+     */
+    private static List<ClauseGroup> nextBatch(final PriorityQueue<ClauseGroup> pending) {
+        final List<ClauseGroup> batch = new ArrayList<>();
+        int clausesInBatch = 0;
+
+        while (!pending.isEmpty() && batch.size() < BATCH_SIZE) {
+            final ClauseGroup g = pending.peek();
+            if (!batch.isEmpty() && clausesInBatch + g.size() > MAX_CLAUSES_PER_BATCH) break;
+            batch.add(pending.poll());
+            clausesInBatch += g.size();
         }
+        return batch;
+    }
 
-        return batches.parallelStream()
-                .flatMap(batch -> processBatch(batch).stream())
-                .collect(Collectors.toList());
+    /**
+     * Split clauses into cosine chunks. Chunks only end before a REQUIREMENT so that,
+     * with clause grouping on, AMC/GM children are classified with their parent.
+     */
+    private static List<List<RegulationClause>> chunkAtRequirements(final List<RegulationClause> clauses) {
+        final List<List<RegulationClause>> chunks = new ArrayList<>();
+        List<RegulationClause> current = new ArrayList<>();
+
+        for (final RegulationClause c : clauses) {
+            if (current.size() >= COSINE_CHUNK_SIZE && c.isRequirement()) {
+                chunks.add(current);
+                current = new ArrayList<>();
+            }
+            current.add(c);
+        }
+        if (!current.isEmpty()) chunks.add(current);
+
+        return chunks;
     }
 
-    private List<ClauseMatchResult> processBatch(final List<AmbiguousClause> batch) {
+    /**
+     * Judge items (single clauses or REQUIREMENT groups) in priority order.
+     */
+    private List<ClauseGroup> toJudgeItems(final List<AmbiguousClause> ambiguous) {
+        return (groupClauses
+                ? groupWithChildren(ambiguous)
+                : ambiguous.stream().map(ac -> new ClauseGroup(ac, List.of())).toList())
+                .stream()
+                .sorted(judgePriority())
+                .toList();
+    }
 
-        final List<LlmJudge.ClauseBatchInput> inputs = batch.stream()
-                .map(ac -> new LlmJudge.ClauseBatchInput(
-                        ac.clause.getClauseId(),
-                        ac.clause.getContent(),
-                        ac.candidates))
+    private List<List<ClauseGroup>> toBatches(final List<ClauseGroup> groups) {
+        final List<List<ClauseGroup>> batches = new ArrayList<>();
+        List<ClauseGroup> current = new ArrayList<>();
+        int clausesInBatch = 0;
+
+        for (final ClauseGroup g : groups) {
+            if (!current.isEmpty()
+                    && (current.size() >= BATCH_SIZE || clausesInBatch + g.size() > MAX_CLAUSES_PER_BATCH)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                clausesInBatch = 0;
+            }
+            current.add(g);
+            clausesInBatch += g.size();
+        }
+        if (!current.isEmpty()) batches.add(current);
+
+        return batches;
+    }
+
+    private static int judgeConcurrency() {
+        return Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    private boolean acquireBefore(final Semaphore slots, final Instant deadline) {
+        try {
+            if (deadline == null) {
+                slots.acquire();
+                return true;
+            }
+            final long remaining = Duration.between(Instant.now(), deadline).toMillis();
+            return remaining > 0 && slots.tryAcquire(remaining, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private List<ClauseMatchResult> cosineOnly(final List<ClauseGroup> batch) {
+        return batch.stream()
+                .flatMap(g -> g.members().stream())
+                .map(ac -> buildCosineOnlyResult(ac.clause, ac.matches, ac.bestSim))
                 .toList();
+    }
+
+    /**
+     * Mandatory REQUIREMENT clauses first, then those closest to a COVERED/PARTIAL
+     * threshold, where the cosine verdict is least trustworthy and the LLM matters most.
+     */
+    private Comparator<ClauseGroup> judgePriority() {
+        return Comparator
+                .comparing((ClauseGroup g) -> !g.lead.clause.isRequirement())
+                .thenComparingDouble(g -> thresholds.boundaryDistance(g.lead.bestSim));
+    }
+
+    /**
+     * Attach ambiguous AMC/GM clauses to their ambiguous parent REQUIREMENT so the
+     * group is judged once against shared candidates. Clauses without an ambiguous
+     * parent stay on their own.
+     */
+    private List<ClauseGroup> groupWithChildren(final List<AmbiguousClause> ambiguous) {
+        final Map<String, AmbiguousClause> requirements = new LinkedHashMap<>();
+        for (final AmbiguousClause ac : ambiguous) {
+            if (ac.clause.isRequirement()) {
+                requirements.putIfAbsent(ac.clause.getClauseId(), ac);
+            }
+        }
+
+        final Map<String, List<AmbiguousClause>> children = new HashMap<>();
+        final List<ClauseGroup> groups = new ArrayList<>();
+
+        for (final AmbiguousClause ac : ambiguous) {
+            final String parent = ac.clause.getParentClause();
+            if (!ac.clause.isRequirement() && parent != null && requirements.containsKey(parent)) {
+                children.computeIfAbsent(parent, k -> new ArrayList<>()).add(ac);
+            }
+        }
+
+        for (final AmbiguousClause ac : ambiguous) {
+            if (ac.clause.isRequirement() && requirements.get(ac.clause.getClauseId()) == ac) {
+                groups.add(new ClauseGroup(ac, children.getOrDefault(ac.clause.getClauseId(), List.of())));
+            } else if (ac.clause.isRequirement()
+                    || ac.clause.getParentClause() == null
+                    || !requirements.containsKey(ac.clause.getParentClause())) {
+                groups.add(new ClauseGroup(ac, List.of()));
+            }
+        }
+
+        return groups;
+    }
 
-        final Map<String, ComplianceResult> llmResults = judge.judgeBatch(inputs);
+    private List<ClauseMatchResult> processBatch(final List<ClauseGroup> batch,
+                                                 final RegulationContext regulationContext,
+                                                 final AnalysisRun run) {
+
+        final List<AmbiguousClause> members = batch.stream()
+                .flatMap(g -> g.members().stream())
+                .toList();
+
+        // Circuit open → don't wait out timeouts, fall back to cosine-only
+        if (!judge.isAvailable()) {
+            log.debug("LLM judge unavailable, cosine-only for {} clauses", members.size());
+            return cosineOnly(batch);
+        }
+
+        final List<LlmJudge.ClauseBatchInput> inputs = toInputs(batch);
+        final Map<String, ComplianceResult> llmResults = judge.judgeBatch(inputs, regulationContext, run.usage);
+
+        // Members of a group share the candidates the judge was shown for it
+        for (int i = 0; i < batch.size(); i++) {
+            final List<Long> judgedIds = judge.judgedParagraphIds(inputs.get(i));
+            for (final AmbiguousClause ac : batch.get(i).members()) {
+                run.judgedCandidates.put(ac.clause.getClauseId(), judgedIds);
+            }
+        }
 
         final List<ClauseMatchResult> results = new ArrayList<>();
 
-        for (final AmbiguousClause ac : batch) {
+        for (final AmbiguousClause ac : members) {
             final ComplianceResult compliance = llmResults.get(ac.clause.getClauseId());
 
             if (compliance == null) {
@@ -163,24 +707,43 @@ public class SemanticAnalyzer {
                 continue;
             }
 
-            final double complianceScore = mapComplianceScore(compliance.compliance_status());
-            final ClauseMatchResult.MatchQuality quality = determineQuality(complianceScore);
-            final String evidence = buildEvidenceFromCompliance(compliance);
-
-            results.add(new ClauseMatchResult(
-                    ac.clause.getClauseId(),
-                    ac.clause.getTitle(),
-                    ac.matches,
-                    complianceScore,
-                    quality,
-                    evidence,
-                    compliance // ✔ FULL LLM RESULT HERE
-            ));
+            results.add(buildJudgedResult(ac, compliance));
         }
 
         return results;
     }
 
+    private List<LlmJudge.ClauseBatchInput> toInputs(final List<ClauseGroup> batch) {
+        return batch.stream()
+                .map(g -> new LlmJudge.ClauseBatchInput(
+                        g.lead.clause.getClauseId(),
+                        g.lead.clause.getContent(),
+                        g.sharedCandidates(),
+                        g.children.stream()
+                                .map(c -> new LlmJudge.RelatedClause(
+                                        c.clause.getClauseId(),
+                                        c.clause.getClauseType(),
+                                        c.clause.getContent()))
+                                .toList()))
+                .toList();
+    }
+
+    private ClauseMatchResult buildJudgedResult(final AmbiguousClause ac, final ComplianceResult compliance) {
+        final double complianceScore = mapComplianceScore(compliance.compliance_status());
+        final ClauseMatchResult.MatchQuality quality = determineQuality(complianceScore);
+        final String evidence = buildEvidenceFromCompliance(compliance);
+
+        return new ClauseMatchResult(
+                ac.clause.getClauseId(),
+                ac.clause.getTitle(),
+                ac.matches,
+                complianceScore,
+                quality,
+                evidence,
+                compliance // ✔ FULL LLM RESULT HERE
+        );
+    }
+
     // -------------------------------------------------------------------------
     // COSINE-ONLY (no LLM)
     // -------------------------------------------------------------------------
@@ -202,6 +765,25 @@ public class SemanticAnalyzer {
         );
     }
 
+    private ClauseMatchResult buildCalibratedResult(
+            final RegulationClause clause,
+            final List<ParagraphMatch> matches,
+            final ConfidenceCalibrator.Prediction prediction) {
+
+        final double score = mapComplianceScore(prediction.status());
+
+        return new ClauseMatchResult(
+                clause.getClauseId(),
+                clause.getTitle(),
+                matches,
+                score,
+                determineQuality(score),
+                String.format(CALIBRATED_EVIDENCE + ": %s (p=%.2f), LLM skipped.",
+                        prediction.status(), prediction.probability()),
+                null // ✔ no LLM
+        );
+    }
+
     private ClauseMatchResult noMatchResult(final RegulationClause clause) {
         return new ClauseMatchResult(
                 clause.getClauseId(),
@@ -217,12 +799,61 @@ public class SemanticAnalyzer {
     // -------------------------------------------------------------------------
     // Helpers
     // -------------------------------------------------------------------------
-    private String extractContext(final Paragraph p) {
+    private static List<ParagraphMatch> toMatches(final List<TextMatcher.ParagraphMatchResult> ranked) {
+        return ranked.stream()
+                .limit(MAX_MATCHES_FOR_UI)
+                .map(r -> new ParagraphMatch(r.paragraph(), r.similarity(), extractContext(r.paragraph())))
+                .toList();
+    }
+
+    private List<MoeParagraphCandidate> toCandidates(final List<TextMatcher.ParagraphMatchResult> clauseMatches) {
+        return clauseMatches.stream()
+                .limit(MAX_CANDIDATES_FOR_LLM)
+                .map(r -> new MoeParagraphCandidate(
+                        r.paragraph().getId(),
+                        r.paragraph().getContent(),
+                        r.similarity(),
+                        r.paragraph().getSection() != null ?
+                                r.paragraph().getSection().getSectionNumber() : "N/A",
+                        r.paragraph().getParagraphOrder()))
+                .toList();
+    }
+
+    /**
+     * @param tokenized best paragraphs already tokenized for keyword overlap, by paragraph id;
+     *                  many clauses share the same best paragraph
+     */
+    private ClauseFeatures extractFeatures(
+            final RegulationClause clause,
+            final List<TextMatcher.ParagraphMatchResult> clauseMatches,
+            final Map<Long, TokenizedText> tokenized) {
+
+        final double top1 = clauseMatches.getFirst().similarity();
+        final double top5 = clauseMatches.get(Math.min(4, clauseMatches.size() - 1)).similarity();
+        final Paragraph best = clauseMatches.getFirst().paragraph();
+        final TokenizedText bestText = tokenized.computeIfAbsent(best.getId(),
+                id -> keywordMatcher.prepare(best.getContent() != null ? best.getContent() : ""));
+
+        return new ClauseFeatures(
+                top1,
+                top1 - top5,
+                keywordMatcher.calculateSimilarity(
+                        keywordMatcher.prepare(clause.getContent() != null ? clause.getContent() : ""), bestText),
+                clause.getClauseType()
+        );
+    }
+
+    private UUID regulationId(final List<RegulationClause> clauses) {
+        final RegulationClause first = clauses.getFirst();
+        return first.getRegulation() != null ? first.getRegulation().getId() : null;
+    }
+
+    static String extractContext(final Paragraph p) {
         final String t = p.getContent();
         return t.length() > 200 ? t.substring(0,200) + "…" : t;
     }
 
-    private double mapComplianceScore(final String status) {
+    static double mapComplianceScore(final String status) {
         return switch (status) {
             case "full" -> 1.0;
             case "partial" -> 0.5;
@@ -230,7 +861,7 @@ public class SemanticAnalyzer {
         };
     }
 
-    private ClauseMatchResult.MatchQuality determineQuality(final double score) {
+    static ClauseMatchResult.MatchQuality determineQuality(final double score) {
         if (score >= 0.90) return ClauseMatchResult.MatchQuality.EXCELLENT;
         if (score >= 0.75) return ClauseMatchResult.MatchQuality.GOOD;
         if (score >= 0.60) return ClauseMatchResult.MatchQuality.ADEQUATE;
@@ -249,5 +880,149 @@ public class SemanticAnalyzer {
             double bestSim
     ) {}
 
-    public record SemanticAnalysisResult(List<ClauseMatchResult> clauseMatches) {}
+    /**
+     * A REQUIREMENT with its AMC/GM children, judged as one LLM item.
+     */
+    private record ClauseGroup(AmbiguousClause lead, List<AmbiguousClause> children) {
+
+        List<AmbiguousClause> members() {
+            final List<AmbiguousClause> all = new ArrayList<>();
+            all.add(lead);
+            all.addAll(children);
+            return all;
+        }
+
+        int size() {
+            return 1 + children.size();
+        }
+
+        /** Union of member candidates, best score first, one entry per paragraph. */
+        List<MoeParagraphCandidate> sharedCandidates() {
+            if (children.isEmpty()) return lead.candidates;
+
+            final Map<Long, MoeParagraphCandidate> best = new HashMap<>();
+            for (final AmbiguousClause ac : members()) {
+                for (final MoeParagraphCandidate c : ac.candidates) {
+                    best.merge(c.paragraphId(), c,
+                            (a, b) -> a.similarityScore() >= b.similarityScore() ? a : b);
+                }
+            }
+
+            return best.values().stream()
+                    .sorted(Comparator.comparing(MoeParagraphCandidate::similarityScore).reversed())
+                    .limit(MAX_CANDIDATES_FOR_LLM)
+                    .toList();
+        }
+    }
+
+    /**
+     * State of one {@link #analyze} call, shared by the cosine and judge stages.
+     */
+    private static final class AnalysisRun {
+        final List<RegulationClause> clauses;
+        final List<RegulationClause> regulationClauses;
+        final Instant deadline;
+        final AnalysisProgress progress;
+        final UsageCollector usage = new UsageCollector();
+        final Map<String, ClauseFeatures> features = new ConcurrentHashMap<>();
+        final Map<String, UUID> reusedFrom = new ConcurrentHashMap<>();
+        final Map<String, List<Long>> judgedCandidates = new ConcurrentHashMap<>();
+        final Map<Long, TokenizedText> tokenized = new ConcurrentHashMap<>();
+        final SparseSimilarityMatrix.Builder matrix;
+
+        /** Classified ambiguous clauses per chunk; an empty list ends the stream. */
+        final BlockingQueue<List<AmbiguousClause>> ambiguous = new ArrayBlockingQueue<>(PIPELINE_QUEUE_CHUNKS);
+
+        /** Set when the judge stage failed; nothing drains {@link #ambiguous} any more. */
+        private volatile boolean judgingAbandoned;
+
+        // Judge-stage counters, dispatcher thread only
+        int judgeClauses;
+        int judgeItems;
+
+        AnalysisRun(final List<RegulationClause> clauses,
+                    final List<RegulationClause> regulationClauses,
+                    final Instant deadline,
+                    final AnalysisProgress progress,
+                    final SparseSimilarityMatrix.Builder matrix) {
+            this.clauses = clauses;
+            this.regulationClauses = regulationClauses;
+            this.deadline = deadline;
+            this.progress = progress;
+            this.matrix = matrix;
+        }
+
+        /**
+         * Hand a chunk to the judge stage, waiting while the queue is full; dropped once
+         * the judge stage has gone.
+         */
+        void publish(final List<AmbiguousClause> chunk) throws InterruptedException {
+            while (!judgingAbandoned) {
+                if (ambiguous.offer(chunk, 100, TimeUnit.MILLISECONDS)) return;
+            }
+        }
+
+        /**
+         * End-of-stream marker; never blocks once the judge stage has gone, also when
+         * called from a cancelled producer.
+         */
+        void endOfStream() {
+            if (ambiguous.offer(List.of())) return;
+            try {
+                publish(List.of());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Called by the judge stage when it fails: releases a producer waiting on the queue.
+         */
+        void abandonJudging() {
+            judgingAbandoned = true;
+            ambiguous.clear();
+        }
+
+        void emit(final List<ClauseMatchResult> finalized) {
+            if (finalized.isEmpty()) return;
+            progress.onResults(finalized.stream()
+                    .map(r -> {
+                        final String id = r.complianceResult() != null
+                                ? r.complianceResult().requirement_id()
+                                : r.clauseId();
+                        return new FinalizedClause(r, features.get(id), reusedFrom.get(id), usage.tokensFor(id), null,
+                                r.complianceResult() != null ? judgedCandidates.get(id) : null);
+                    })
+                    .toList());
+        }
+    }
+
+    /**
+     * @param features   cosine-stage features of ambiguous clauses, keyed by clause id
+     * @param reusedFrom clause id → source analysis for judgements reused from a prior run
+     * @param usage      LLM calls, tokens and latency spent on this analysis
+     * @param matrix     top-K cosine similarities of the clauses matched in this run
+     */
+    public record SemanticAnalysisResult(List<ClauseMatchResult> clauseMatches,
+                                         Map<String, ClauseFeatures> features,
+                                         Map<String, UUID> reusedFrom,
+                                         UsageCollector.Summary usage,
+                                         SparseSimilarityMatrix matrix) {
+
+        /**
+         * Add clause results carried over from a base analysis, so gap detection sees
+         * every clause. Usage and reuse counts stay those of this run.
+         */
+        public SemanticAnalysisResult withCarried(final List<FinalizedClause> carried) {
+            if (carried.isEmpty()) return this;
+
+            final List<ClauseMatchResult> matches = new ArrayList<>(clauseMatches);
+            final Map<String, ClauseFeatures> allFeatures = new HashMap<>(features);
+            for (final FinalizedClause c : carried) {
+                matches.add(c.match());
+                if (c.features() != null) allFeatures.put(c.match().clauseId(), c.features());
+            }
+            return new SemanticAnalysisResult(matches, Map.copyOf(allFeatures), reusedFrom, usage, matrix);
+        }
+    }
 }
@@ -0,0 +1,145 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.unfinitas.backend.core.analysis.dto.CoverageThresholds;
+import com.unfinitas.backend.core.analysis.matcher.SparseSimilarityMatrix;
+import com.unfinitas.backend.core.analysis.model.SimilarityMatrix;
+import com.unfinitas.backend.core.analysis.repository.SimilarityMatrixRepository;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.ingestion.repository.MoeDocumentRepository;
+import com.unfinitas.backend.core.regulation.model.RegulationClause;
+import com.unfinitas.backend.core.regulation.repository.RegulationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Keeps one similarity matrix per (MOE, regulation, embedding model); a new flat run replaces
+ * the previous one. A stored matrix stands in for the cosine stage of a later analysis
+ * as long as it is newer than every embedding it was computed from.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SimilarityMatrixStore {
+
+    private final SimilarityMatrixRepository matrixRepo;
+    private final MoeDocumentRepository moeDocRepo;
+    private final RegulationRepository regulationRepo;
+    private final CoverageThresholds thresholds;
+
+    @Value("${analysis.matrix.top-k:20}")
+    private int topK;
+
+    @Value("${analysis.matrix.min-similarity:0.20}")
+    private double minSimilarity;
+
+    public SparseSimilarityMatrix.Builder newBuilder() {
+        return SparseSimilarityMatrix.builder(topK);
+    }
+
+    /**
+     * Lowest similarity recorded in new matrices; never above the relevance threshold.
+     */
+    public double floor() {
+        return Math.min(thresholds.relevance(), minSimilarity);
+    }
+
+    /**
+     * Stored matrix usable in place of the cosine stage: same embedding model, computed
+     * after the newest paragraph and clause embedding, deep and low enough for the
+     * current settings, and with a row for every embedded clause in scope.
+     */
+    @Transactional(readOnly = true)
+    public Optional<StoredMatrix> findUsable(final UUID moeId,
+                                                       final UUID regulationId,
+                                                       final List<Paragraph> paragraphs,
+                                                       final List<RegulationClause> clauses) {
+
+        final String embeddingModel = embeddingModel(paragraphs);
+        if (embeddingModel == null) return Optional.empty();
+
+        final Optional<SimilarityMatrix> stored = matrixRepo
+                .findByMoeDocumentIdAndRegulationIdAndEmbeddingModel(moeId, regulationId, embeddingModel)
+                .filter(m -> m.getTopK() >= topK && m.getMinSimilarity() <= floor());
+        if (stored.isEmpty()) return Optional.empty();
+
+        final Instant createdAt = stored.get().getCreatedAt().atZone(ZoneId.systemDefault()).toInstant();
+        final boolean fresh = Stream.concat(
+                        paragraphs.stream().map(Paragraph::getEmbeddedAt),
+                        clauses.stream().map(RegulationClause::getEmbeddedAt))
+                .filter(Objects::nonNull)
+                .noneMatch(t -> t.isAfter(createdAt));
+        if (!fresh) {
+            log.debug("Similarity matrix for MOE {} × regulation {} is older than its embeddings", moeId, regulationId);
+            return Optional.empty();
+        }
+
+        final SparseSimilarityMatrix matrix = SparseSimilarityMatrix.decode(stored.get().getData());
+        final boolean complete = clauses.stream()
+                .filter(c -> c.getEmbedding() != null)
+                .allMatch(c -> matrix.contains(c.getId()));
+        return complete
+                ? Optional.of(new StoredMatrix(matrix, embeddingModel, stored.get().getCreatedAt()))
+                : Optional.empty();
+    }
+
+    /**
+     * @return embedding model of the first embedded paragraph, or null if none is embedded
+     */
+    public static String embeddingModel(final List<Paragraph> paragraphs) {
+        return paragraphs.stream()
+                .map(Paragraph::getEmbeddingModel)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * @return the matrix with the creation time it was stored under
+     */
+    @Transactional
+    public StoredMatrix save(final UUID moeId,
+                     final UUID regulationId,
+                     final String embeddingModel,
+                     final SparseSimilarityMatrix matrix) {
+
+        final byte[] data = matrix.encode();
+        final SimilarityMatrix row = matrixRepo
+                .findByMoeDocumentIdAndRegulationIdAndEmbeddingModel(moeId, regulationId, embeddingModel)
+                .orElseGet(() -> SimilarityMatrix.builder()
+                        .moeDocument(moeDocRepo.getReferenceById(moeId))
+                        .regulation(regulationRepo.getReferenceById(regulationId))
+                        .embeddingModel(embeddingModel)
+                        .build());
+
+        row.setTopK(topK);
+        row.setMinSimilarity(floor());
+        row.setClauseCount(matrix.rowCount());
+        row.setEntryCount(matrix.entryCount());
+        row.setData(data);
+        // Millisecond precision survives the database round trip, so analyses can compare it
+        row.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        matrixRepo.save(row);
+
+        log.info("Stored similarity matrix for MOE {} × regulation {}: {} clauses, {} entries, {} bytes",
+                moeId, regulationId, matrix.rowCount(), matrix.entryCount(), data.length);
+        return new StoredMatrix(matrix, embeddingModel, row.getCreatedAt());
+    }
+
+    /**
+     * A decoded matrix with the key an analysis records to re-score against exactly it later.
+     */
+    public record StoredMatrix(SparseSimilarityMatrix matrix, String embeddingModel, LocalDateTime createdAt) {}
+}
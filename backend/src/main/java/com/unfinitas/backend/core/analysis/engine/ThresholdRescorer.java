@@ -0,0 +1,249 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.unfinitas.backend.core.analysis.dto.ClauseMatchResult;
+import com.unfinitas.backend.core.analysis.dto.CoverageThresholds;
+import com.unfinitas.backend.core.analysis.dto.DecisionSupportReport;
+import com.unfinitas.backend.core.analysis.dto.FinalizedClause;
+import com.unfinitas.backend.core.analysis.dto.GapAnalysisResult;
+import com.unfinitas.backend.core.analysis.dto.ParagraphMatch;
+import com.unfinitas.backend.core.analysis.dto.RescoreResult;
+import com.unfinitas.backend.core.analysis.matcher.SparseSimilarityMatrix;
+import com.unfinitas.backend.core.analysis.model.AnalysisResult;
+import com.unfinitas.backend.core.analysis.model.ComplianceOutcome;
+import com.unfinitas.backend.core.analysis.model.CoverageResult;
+import com.unfinitas.backend.core.analysis.model.GapFinding;
+import com.unfinitas.backend.core.analysis.model.SimilarityMatrix;
+import com.unfinitas.backend.core.analysis.model.enums.AnalysisStatus;
+import com.unfinitas.backend.core.analysis.model.enums.CoverageStatus;
+import com.unfinitas.backend.core.analysis.repository.AnalysisResultRepository;
+import com.unfinitas.backend.core.analysis.repository.ComplianceOutcomeRepository;
+import com.unfinitas.backend.core.analysis.repository.CoverageResultRepository;
+import com.unfinitas.backend.core.analysis.repository.SimilarityMatrixRepository;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.ingestion.repository.ParagraphRepository;
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+import com.unfinitas.backend.core.regulation.model.RegulationClause;
+import com.unfinitas.backend.core.regulation.service.RegulationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Recomputes coverage status, gaps, questions and score of a completed analysis for
+ * other thresholds, from the similarity matrix the analysis was scored against and its
+ * LLM verdicts. No embeddings, cosine scans or LLM calls are involved and nothing is
+ * written.
+ * <p>
+ * Clauses the LLM or the calibration model decided keep their verdict score; only
+ * cosine-only clauses move with the relevance threshold. A clause that would now fall
+ * into the ambiguous band is not sent to the judge; run a new analysis for that.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ThresholdRescorer {
+
+    private final AnalysisResultRepository analysisRepo;
+    private final CoverageResultRepository coverageRepo;
+    private final ComplianceOutcomeRepository outcomeRepo;
+    private final SimilarityMatrixRepository matrixRepo;
+    private final ParagraphRepository paragraphRepo;
+    private final RegulationService regulationService;
+    private final JudgementReuseIndex reuseIndex;
+    private final GapDetector gapDetector;
+    private final QuestionGenerator questionGenerator;
+    private final DecisionSupportGenerator decisionGenerator;
+    private final CoverageThresholds defaults;
+
+    /**
+     * @param covered   null keeps the configured threshold, as do the others
+     * @throws IllegalArgumentException if the thresholds are inconsistent or relevance is
+     *                                  below the floor of the stored matrix
+     * @throws IllegalStateException    if the analysis is not completed, recorded no matrix,
+     *                                  or its matrix has since been replaced
+     */
+    @Transactional(readOnly = true)
+    public RescoreResult rescore(final UUID analysisId,
+                                 final Double covered,
+                                 final Double partial,
+                                 final Double relevance) {
+
+        final long start = System.currentTimeMillis();
+        final CoverageThresholds thresholds = defaults.with(covered, partial, relevance);
+
+        final AnalysisResult analysis = analysisRepo.findWithAll(analysisId)
+                .orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Analysis not found: " + analysisId));
+        if (analysis.getStatus() != AnalysisStatus.COMPLETED) {
+            throw new IllegalStateException(
+                    "Only completed analyses can be re-scored; " + analysisId + " is " + analysis.getStatus());
+        }
+
+        final UUID moeId = analysis.getMoeDocument().getId();
+        final UUID regulationId = analysis.getRegulation().getId();
+        if (analysis.getMatrixCreatedAt() == null) {
+            throw new IllegalStateException("Analysis " + analysisId
+                    + " did not read or store a similarity matrix; run a full flat analysis first");
+        }
+        final SimilarityMatrix stored = matrixRepo
+                .findByMoeDocumentIdAndRegulationIdAndEmbeddingModel(moeId, regulationId, analysis.getMatrixEmbeddingModel())
+                .filter(m -> m.getCreatedAt().equals(analysis.getMatrixCreatedAt()))
+                .orElseThrow(() -> new IllegalStateException("The similarity matrix analysis " + analysisId
+                        + " was scored against has been replaced; run a new analysis"));
+        if (thresholds.relevance() < stored.getMinSimilarity()) {
+            throw new IllegalArgumentException(String.format(
+                    "Relevance %.2f is below the stored matrix floor %.2f", thresholds.relevance(), stored.getMinSimilarity()));
+        }
+        final SparseSimilarityMatrix matrix = SparseSimilarityMatrix.decode(stored.getData());
+
+        // Stored results and verdicts
+        final List<CoverageResult> priorCoverage = coverageRepo.findByAnalysisResultOrderByClauseId(analysis);
+        final Map<String, ComplianceOutcome> outcomes = outcomeRepo.findByAnalysisId(analysisId).stream()
+                .collect(Collectors.toMap(ComplianceOutcome::getRequirementId, Function.identity(), (a, b) -> a));
+        final Map<String, RegulationClause> clauses = regulationService.loadClauses(regulationId).stream()
+                .collect(Collectors.toMap(RegulationClause::getClauseId, Function.identity(), (a, b) -> a));
+        final String sectionPrefix = analysis.getScopeSectionPrefix();
+        final Set<Long> paragraphIds = matrix.paragraphIds();
+        final List<Paragraph> loaded = paragraphRepo.findWithSectionByIdIn(paragraphIds);
+        if (loaded.size() < paragraphIds.size()) {
+            throw new IllegalStateException("Similarity matrix of analysis " + analysisId + " references "
+                    + (paragraphIds.size() - loaded.size()) + " paragraphs that no longer exist");
+        }
+        final Map<Long, Paragraph> paragraphs = loaded.stream()
+                .filter(p -> sectionPrefix == null || inSection(p, sectionPrefix))
+                .collect(Collectors.toMap(Paragraph::getId, Function.identity()));
+
+        // Re-classify
+        final List<RegulationClause> scope = new ArrayList<>(priorCoverage.size());
+        final List<ClauseMatchResult> matches = new ArrayList<>(priorCoverage.size());
+        final List<CoverageResult> coverage = new ArrayList<>(priorCoverage.size());
+        int statusChanges = 0;
+
+        for (final CoverageResult prior : priorCoverage) {
+            final RegulationClause clause = clauses.get(prior.getClauseId());
+            if (clause == null) {
+                log.debug("Clause {} of analysis {} no longer in regulation; skipped", prior.getClauseId(), analysisId);
+                continue;
+            }
+
+            final ClauseMatchResult match = rebuild(
+                    clause, prior, outcomes.get(prior.getClauseId()), matrix.row(clause.getId()), paragraphs, thresholds);
+            final CoverageResult result = AnalysisResultPersister.createCoverageResult(
+                    analysis, new FinalizedClause(match, null, null, null, prior.getSourceAnalysisId(), null), thresholds);
+
+            scope.add(clause);
+            matches.add(match);
+            coverage.add(result);
+            if (result.getStatus() != prior.getStatus()) statusChanges++;
+        }
+
+        // Gaps, questions, decision support and score as in a full run
+        final GapAnalysisResult gapResult = gapDetector.detectGaps(
+                new SemanticAnalyzer.SemanticAnalysisResult(matches, Map.of(), Map.of(), null, null),
+                scope,
+                thresholds);
+        final int questions = questionGenerator.generate(coverage, gapResult).size();
+        final DecisionSupportReport decision = decisionGenerator.generate(coverage, gapResult);
+
+        final int total = coverage.size();
+        final int coveredCount = (int) coverage.stream()
+                .filter(c -> c.getStatus() == CoverageStatus.COVERED).count();
+        final int partialCount = (int) coverage.stream()
+                .filter(c -> c.getStatus() == CoverageStatus.PARTIAL).count();
+        final int missingCount = total - coveredCount - partialCount;
+        final BigDecimal score = ComplianceAnalysisEngine.calculateComplianceScore(
+                coveredCount, partialCount, missingCount, total);
+
+        final long duration = System.currentTimeMillis() - start;
+        log.info("Re-scored analysis {} with {}: score {} → {}, {} status changes in {}ms",
+                analysisId, thresholds, analysis.getComplianceScore(), score, statusChanges, duration);
+
+        return new RescoreResult(
+                analysisId,
+                thresholds,
+                total,
+                coveredCount,
+                partialCount,
+                missingCount,
+                score,
+                analysis.getComplianceScore(),
+                decision.recommendation(),
+                decision.executiveSummary(),
+                gapResult.gaps().stream()
+                        .collect(Collectors.groupingBy(GapFinding::getSeverity, TreeMap::new, Collectors.counting())),
+                questions,
+                statusChanges,
+                duration
+        );
+    }
+
+    /**
+     * Partial analyses over a section subtree only see paragraphs inside it.
+     */
+    private static boolean inSection(final Paragraph p, final String prefix) {
+        if (p.getSection() == null || p.getSection().getSectionNumber() == null) return false;
+        final String number = p.getSection().getSectionNumber();
+        return number.equals(prefix) || number.startsWith(prefix + ".");
+    }
+
+    /**
+     * Matches above the new relevance threshold from the matrix; the score is the stored
+     * verdict where there is one, otherwise the best cosine similarity.
+     */
+    private ClauseMatchResult rebuild(final RegulationClause clause,
+                                      final CoverageResult prior,
+                                      final ComplianceOutcome outcome,
+                                      final SparseSimilarityMatrix.Row row,
+                                      final Map<Long, Paragraph> paragraphs,
+                                      final CoverageThresholds thresholds) {
+
+        final List<ParagraphMatch> matches = new ArrayList<>();
+        for (int i = 0; i < row.size() && matches.size() < SemanticAnalyzer.MAX_MATCHES_FOR_UI; i++) {
+            if (row.similarity(i) < thresholds.relevance()) break;
+            final Paragraph p = paragraphs.get(row.paragraphId(i));
+            if (p != null) {
+                matches.add(new ParagraphMatch(p, row.similarity(i), SemanticAnalyzer.extractContext(p)));
+            }
+        }
+
+        final ComplianceResult compliance = outcome != null ? reuseIndex.toResult(outcome, Map.of()) : null;
+        final boolean calibrated = prior.getExplanation() != null
+                && prior.getExplanation().startsWith(SemanticAnalyzer.CALIBRATED_EVIDENCE);
+
+        final double score;
+        final String evidence;
+        if (compliance != null) {
+            score = SemanticAnalyzer.mapComplianceScore(compliance.compliance_status());
+            evidence = prior.getExplanation();
+        } else if (calibrated) {
+            score = prior.getSimilarity() != null ? prior.getSimilarity().doubleValue() : 0.0;
+            evidence = prior.getExplanation();
+        } else if (matches.isEmpty()) {
+            score = 0.0;
+            evidence = "No matching content found.";
+        } else {
+            score = matches.getFirst().similarity();
+            evidence = "Top matches (embeddings only).";
+        }
+
+        return new ClauseMatchResult(
+                clause.getClauseId(),
+                clause.getTitle(),
+                matches,
+                score,
+                matches.isEmpty()
+                        ? ClauseMatchResult.MatchQuality.NOT_FOUND
+                        : SemanticAnalyzer.determineQuality(score),
+                evidence,
+                compliance
+        );
+    }
+}
@@ -0,0 +1,304 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * BM25 inverted index over the paragraphs of one MOE.
+ * <p>
+ * Term dictionary plus, per term, postings as parallel primitive arrays of document
+ * numbers (ascending) and term frequencies. Tokens keep dotted / dashed references such
+ * as "145.A.30" whole, next to their parts, so exact references score highly.
+ * <p>
+ * Binary form (deflated): magic, version, document count, paragraph ids (delta), document
+ * lengths, term count, then per term the term, document frequency and postings.
+ */
+public final class Bm25Index {
+
+    private static final int MAGIC = 0x424d3235; // "BM25"
+    private static final byte VERSION = 1;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "are", "with", "that", "this", "from", "shall", "its", "any",
+            "all", "not", "has", "have", "been", "which", "when", "where", "such", "each", "should"
+    );
+
+    private final long[] paragraphIds;
+    private final int[] docLengths;
+    private final double avgDocLength;
+    private final Map<String, Integer> termIds;
+    private final int[][] postingDocs;
+    private final int[][] postingFreqs;
+
+    private Bm25Index(final long[] paragraphIds,
+                      final int[] docLengths,
+                      final Map<String, Integer> termIds,
+                      final int[][] postingDocs,
+                      final int[][] postingFreqs) {
+        this.paragraphIds = paragraphIds;
+        this.docLengths = docLengths;
+        this.termIds = termIds;
+        this.postingDocs = postingDocs;
+        this.postingFreqs = postingFreqs;
+
+        long total = 0;
+        for (final int len : docLengths) total += len;
+        this.avgDocLength = docLengths.length > 0 ? Math.max(1.0, (double) total / docLengths.length) : 1.0;
+    }
+
+    /**
+     * @param paragraphs persisted paragraphs (ids assigned)
+     */
+    public static Bm25Index build(final List<Paragraph> paragraphs) {
+        final long[] ids = new long[paragraphs.size()];
+        final int[] lengths = new int[paragraphs.size()];
+        final Map<String, Integer> termIds = new HashMap<>();
+        final List<Postings> postings = new ArrayList<>();
+
+        final Map<Integer, int[]> tf = new HashMap<>();
+        for (int doc = 0; doc < paragraphs.size(); doc++) {
+            final Paragraph p = paragraphs.get(doc);
+            ids[doc] = p.getId();
+
+            final List<String> tokens = tokenize(p.getContent());
+            lengths[doc] = tokens.size();
+
+            tf.clear();
+            for (final String token : tokens) {
+                final int term = termIds.computeIfAbsent(token, t -> {
+                    postings.add(new Postings());
+                    return postings.size() - 1;
+                });
+                tf.computeIfAbsent(term, t -> new int[1])[0]++;
+            }
+            for (final Map.Entry<Integer, int[]> e : tf.entrySet()) {
+                postings.get(e.getKey()).add(doc, e.getValue()[0]);
+            }
+        }
+
+        final int[][] docs = new int[postings.size()][];
+        final int[][] freqs = new int[postings.size()][];
+        for (int t = 0; t < postings.size(); t++) {
+            docs[t] = Arrays.copyOf(postings.get(t).docs, postings.get(t).size);
+            freqs[t] = Arrays.copyOf(postings.get(t).freqs, postings.get(t).size);
+        }
+        return new Bm25Index(ids, lengths, termIds, docs, freqs);
+    }
+
+    /**
+     * @return up to {@code topN} best paragraphs for the query, best first
+     */
+    public List<Hit> search(final String query, final int topN) {
+        return rank(new LinkedHashSet<>(tokenize(query)), topN, 1.0);
+    }
+
+    /**
+     * Search for exact terms, as produced by {@link #tokenize}, that occur in at most
+     * {@code maxDocFraction} of the paragraphs (and at least one); more common terms are
+     * ignored. Every hit contains at least one such rare term.
+     *
+     * @return up to {@code topN} best paragraphs, best first
+     */
+    public List<Hit> searchRare(final Collection<String> terms, final int topN, final double maxDocFraction) {
+        return rank(new LinkedHashSet<>(terms), topN, maxDocFraction);
+    }
+
+    private List<Hit> rank(final Set<String> tokens, final int topN, final double maxDocFraction) {
+        final int n = paragraphIds.length;
+        if (n == 0 || topN <= 0) return List.of();
+
+        final double maxDocs = Math.max(1.0, maxDocFraction * n);
+        final double[] scores = new double[n];
+        final BitSet touched = new BitSet(n);
+
+        for (final String token : tokens) {
+            final Integer term = termIds.get(token);
+            if (term == null || postingDocs[term].length > maxDocs) continue;
+
+            final int[] docs = postingDocs[term];
+            final int[] freqs = postingFreqs[term];
+            final double idf = Math.log(1.0 + (n - docs.length + 0.5) / (docs.length + 0.5));
+
+            for (int i = 0; i < docs.length; i++) {
+                final int d = docs[i];
+                final double f = freqs[i];
+                scores[d] += idf * f * (K1 + 1) / (f + K1 * (1 - B + B * docLengths[d] / avgDocLength));
+                touched.set(d);
+            }
+        }
+
+        final PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingDouble(d -> scores[d]));
+        for (int d = touched.nextSetBit(0); d >= 0; d = touched.nextSetBit(d + 1)) {
+            best.add(d);
+            if (best.size() > topN) best.poll();
+        }
+
+        final List<Hit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            final int d = best.poll();
+            hits.add(new Hit(paragraphIds[d], scores[d]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    /**
+     * @return whether every given paragraph is part of the index
+     */
+    public boolean covers(final Collection<Long> ids) {
+        final Set<Long> indexed = new HashSet<>(paragraphIds.length * 2);
+        for (final long id : paragraphIds) indexed.add(id);
+        return indexed.containsAll(ids);
+    }
+
+    public int docCount() {
+        return paragraphIds.length;
+    }
+
+    public int termCount() {
+        return termIds.size();
+    }
+
+    public byte[] encode() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(paragraphIds.length);
+            long previous = 0;
+            for (int d = 0; d < paragraphIds.length; d++) {
+                out.writeLong(paragraphIds[d] - previous);
+                out.writeInt(docLengths[d]);
+                previous = paragraphIds[d];
+            }
+
+            out.writeInt(termIds.size());
+            for (final Map.Entry<String, Integer> e : termIds.entrySet()) {
+                final int[] docs = postingDocs[e.getValue()];
+                final int[] freqs = postingFreqs[e.getValue()];
+                out.writeUTF(e.getKey());
+                out.writeInt(docs.length);
+                int prev = 0;
+                for (int i = 0; i < docs.length; i++) {
+                    out.writeInt(docs[i] - prev);
+                    out.writeInt(freqs[i]);
+                    prev = docs[i];
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot encode BM25 index", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Bm25Index decode(final byte[] data) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IllegalStateException("Not a BM25 index or unsupported version");
+            }
+
+            final int n = in.readInt();
+            final long[] ids = new long[n];
+            final int[] lengths = new int[n];
+            long previous = 0;
+            for (int d = 0; d < n; d++) {
+                ids[d] = previous + in.readLong();
+                lengths[d] = in.readInt();
+                previous = ids[d];
+            }
+
+            final int termCount = in.readInt();
+            final Map<String, Integer> termIds = new HashMap<>(termCount * 2);
+            final int[][] docs = new int[termCount][];
+            final int[][] freqs = new int[termCount][];
+            for (int t = 0; t < termCount; t++) {
+                termIds.put(in.readUTF(), t);
+                final int df = in.readInt();
+                docs[t] = new int[df];
+                freqs[t] = new int[df];
+                int prev = 0;
+                for (int i = 0; i < df; i++) {
+                    docs[t][i] = prev + in.readInt();
+                    freqs[t][i] = in.readInt();
+                    prev = docs[t][i];
+                }
+            }
+            return new Bm25Index(ids, lengths, termIds, docs, freqs);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot decode BM25 index", e);
+        }
+    }
+
+    /**
+     * Lower-cased letter/digit runs. '.', '-' and '/' between two letters or digits join
+     * a run into a compound reference ("145.a.30", "part-145"), emitted together with its
+     * parts.
+     */
+    static List<String> tokenize(final String text) {
+        final List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        final StringBuilder sb = new StringBuilder();
+        final int n = text.length();
+        for (int i = 0; i < n; i++) {
+            final char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            } else if ((c == '.' || c == '-' || c == '/')
+                    && !sb.isEmpty()
+                    && i + 1 < n
+                    && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                sb.append(c);
+            } else {
+                flush(sb, tokens);
+            }
+        }
+        flush(sb, tokens);
+        return tokens;
+    }
+
+    private static void flush(final StringBuilder sb, final List<String> tokens) {
+        if (sb.isEmpty()) return;
+        final String token = sb.toString();
+        sb.setLength(0);
+
+        if (token.indexOf('.') < 0 && token.indexOf('-') < 0 && token.indexOf('/') < 0) {
+            if (token.length() > 2 && !STOP_WORDS.contains(token)) tokens.add(token);
+            return;
+        }
+
+        tokens.add(token);
+        for (final String part : token.split("[./-]")) {
+            if (part.length() > 2 && !STOP_WORDS.contains(part)) tokens.add(part);
+        }
+    }
+
+    /**
+     * @param score BM25 score; not comparable to cosine similarity
+     */
+    public record Hit(long paragraphId, double score) {
+    }
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(final int doc, final int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+}
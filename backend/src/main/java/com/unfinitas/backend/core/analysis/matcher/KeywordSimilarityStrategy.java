@@ -4,7 +4,6 @@ package com.unfinitas.backend.core.analysis.matcher;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Component("keywordMatcher")
 public class KeywordSimilarityStrategy implements SimilarityStrategy {
@@ -13,18 +12,37 @@ public class KeywordSimilarityStrategy implements SimilarityStrategy {
             "the", "a", "an", "and", "or", "but", "in", "on", "at", "to", "for"
     );
 
+    // Distinct terms kept before the dictionary is replaced by an empty one
+    private static final int DEFAULT_MAX_TERMS = 200_000;
+
+    private final int maxTerms;
+    private final Object rotation = new Object();
+    private volatile Vocabulary vocabulary = new Vocabulary(0, newDictionary());
+
+    public KeywordSimilarityStrategy() {
+        this(DEFAULT_MAX_TERMS);
+    }
+
+    KeywordSimilarityStrategy(final int maxTerms) {
+        this.maxTerms = maxTerms;
+    }
+
     @Override
     public double calculateSimilarity(final String text1, final String text2) {
-        final Set<String> tokens1 = tokenize(text1);
-        final Set<String> tokens2 = tokenize(text2);
-
-        final Set<String> intersection = new HashSet<>(tokens1);
-        intersection.retainAll(tokens2);
+        final TermDictionary dictionary = vocabulary().dictionary();
+        return TermDictionary.jaccard(dictionary.tokenize(text1), dictionary.tokenize(text2));
+    }
 
-        final Set<String> union = new HashSet<>(tokens1);
-        union.addAll(tokens2);
+    @Override
+    public TokenizedText prepare(final String text) {
+        final Vocabulary v = vocabulary();
+        return new TokenizedText(text, v.dictionary().tokenize(text), v.generation());
+    }
 
-        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+    @Override
+    public double calculateSimilarity(final TokenizedText text1, final TokenizedText text2) {
+        final Vocabulary v = vocabulary();
+        return TermDictionary.jaccard(termIds(text1, v), termIds(text2, v));
     }
 
     @Override
@@ -32,12 +50,37 @@ public class KeywordSimilarityStrategy implements SimilarityStrategy {
         return "Keyword Matching (Jaccard)";
     }
 
-    private Set<String> tokenize(final String text) {
-        return Arrays.stream(text.toLowerCase()
-                        .replaceAll("[^a-z0-9\\s]", " ")
-                        .split("\\s+"))
-                .filter(w -> w.length() > 2)
-                .filter(w -> !STOP_WORDS.contains(w))
-                .collect(Collectors.toSet());
+    /**
+     * Term ids from an earlier dictionary mean nothing in the current one, so such
+     * texts are tokenized again.
+     */
+    private static int[] termIds(final TokenizedText text, final Vocabulary v) {
+        return text.termIds() != null && text.vocabulary() == v.generation()
+                ? text.termIds()
+                : v.dictionary().tokenize(text.text());
+    }
+
+    /**
+     * The dictionary only grows, so once it holds {@code maxTerms} terms it is replaced
+     * by an empty one; texts prepared before keep working through {@link #termIds}.
+     */
+    private Vocabulary vocabulary() {
+        final Vocabulary current = vocabulary;
+        if (current.dictionary().size() < maxTerms) return current;
+
+        synchronized (rotation) {
+            if (vocabulary == current) {
+                vocabulary = new Vocabulary(current.generation() + 1, newDictionary());
+            }
+            return vocabulary;
+        }
+    }
+
+    // Tokens shorter than 3 characters are dropped
+    private static TermDictionary newDictionary() {
+        return new TermDictionary(3, STOP_WORDS);
+    }
+
+    private record Vocabulary(int generation, TermDictionary dictionary) {
     }
 }
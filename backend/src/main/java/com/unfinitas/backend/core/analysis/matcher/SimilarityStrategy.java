@@ -3,5 +3,16 @@ package com.unfinitas.backend.core.analysis.matcher;
 public interface SimilarityStrategy {
     double calculateSimilarity(String text1, String text2);
 
+    /**
+     * Prepare a text once so comparing it to many others does not repeat tokenization.
+     */
+    default TokenizedText prepare(final String text) {
+        return new TokenizedText(text, null, 0);
+    }
+
+    default double calculateSimilarity(final TokenizedText text1, final TokenizedText text2) {
+        return calculateSimilarity(text1.text(), text2.text());
+    }
+
     String getName();
 }
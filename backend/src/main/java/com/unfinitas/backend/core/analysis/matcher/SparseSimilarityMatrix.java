@@ -0,0 +1,215 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.LongFunction;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Top-K clause → paragraph cosine similarities of one MOE against one regulation.
+ * <p>
+ * Binary form (deflated): magic, version, row count, then per clause row the clause id
+ * (two longs), entry count and entries as (paragraph id delta, float similarity), best
+ * first. Paragraph ids are delta-encoded against the previous entry of the row; rows are
+ * ordered by similarity, so deltas are signed and written as zigzag varints, which keeps
+ * the ids of one MOE (close together) to two or three bytes. Version 1 wrote fixed longs
+ * and is still read.
+ */
+public final class SparseSimilarityMatrix {
+
+    private static final int MAGIC = 0x53534d31; // "SSM1"
+    private static final byte VERSION = 2;
+    private static final byte VERSION_FIXED_IDS = 1;
+
+    private final Map<UUID, Row> rows;
+
+    private SparseSimilarityMatrix(final Map<UUID, Row> rows) {
+        this.rows = rows;
+    }
+
+    public static Builder builder(final int topK) {
+        return new Builder(topK);
+    }
+
+    /**
+     * @return entries of the clause, best first; empty when it had none above the floor
+     */
+    public Row row(final UUID clauseId) {
+        return rows.getOrDefault(clauseId, Row.EMPTY);
+    }
+
+    public boolean contains(final UUID clauseId) {
+        return rows.containsKey(clauseId);
+    }
+
+    /**
+     * Entries of the clause at or above {@code threshold} as match results, best first.
+     * Entries whose paragraph the lookup does not know are dropped.
+     */
+    public List<TextMatcher.ParagraphMatchResult> matches(final UUID clauseId,
+                                                          final double threshold,
+                                                          final LongFunction<Paragraph> lookup) {
+        final Row r = row(clauseId);
+        final List<TextMatcher.ParagraphMatchResult> matches = new ArrayList<>(r.size());
+        for (int i = 0; i < r.size() && r.similarities[i] >= threshold; i++) {
+            final Paragraph p = lookup.apply(r.paragraphIds[i]);
+            if (p != null) matches.add(new TextMatcher.ParagraphMatchResult(p, r.similarities[i]));
+        }
+        return matches;
+    }
+
+    public int rowCount() {
+        return rows.size();
+    }
+
+    public int entryCount() {
+        return rows.values().stream().mapToInt(Row::size).sum();
+    }
+
+    /**
+     * All paragraph ids referenced by the matrix.
+     */
+    public Set<Long> paragraphIds() {
+        final Set<Long> ids = new HashSet<>();
+        for (final Row r : rows.values()) {
+            for (final long id : r.paragraphIds) ids.add(id);
+        }
+        return ids;
+    }
+
+    public byte[] encode() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(rows.size());
+            for (final Map.Entry<UUID, Row> e : rows.entrySet()) {
+                final Row r = e.getValue();
+                out.writeLong(e.getKey().getMostSignificantBits());
+                out.writeLong(e.getKey().getLeastSignificantBits());
+                out.writeShort(r.size());
+                long previous = 0;
+                for (int i = 0; i < r.size(); i++) {
+                    writeVarLong(out, r.paragraphIds[i] - previous);
+                    out.writeFloat(r.similarities[i]);
+                    previous = r.paragraphIds[i];
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot encode similarity matrix", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SparseSimilarityMatrix decode(final byte[] data) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            final int magic = in.readInt();
+            final byte version = in.readByte();
+            if (magic != MAGIC || (version != VERSION && version != VERSION_FIXED_IDS)) {
+                throw new IllegalStateException("Not a similarity matrix or unsupported version");
+            }
+            final int rowCount = in.readInt();
+            final Map<UUID, Row> rows = new HashMap<>(rowCount * 2);
+            for (int r = 0; r < rowCount; r++) {
+                final UUID clauseId = new UUID(in.readLong(), in.readLong());
+                final int n = in.readUnsignedShort();
+                final long[] ids = new long[n];
+                final float[] sims = new float[n];
+                long previous = 0;
+                for (int i = 0; i < n; i++) {
+                    ids[i] = previous + (version == VERSION ? readVarLong(in) : in.readLong());
+                    sims[i] = in.readFloat();
+                    previous = ids[i];
+                }
+                rows.put(clauseId, new Row(ids, sims));
+            }
+            return new SparseSimilarityMatrix(rows);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot decode similarity matrix", e);
+        }
+    }
+
+    /**
+     * Zigzag, then 7 bits per byte, low first; the high bit marks that more follow.
+     */
+    private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (v >>> 1) ^ -(v & 1);
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * One clause's entries, best first.
+     */
+    public static final class Row {
+        static final Row EMPTY = new Row(new long[0], new float[0]);
+
+        private final long[] paragraphIds;
+        private final float[] similarities;
+
+        private Row(final long[] paragraphIds, final float[] similarities) {
+            this.paragraphIds = paragraphIds;
+            this.similarities = similarities;
+        }
+
+        public int size() {
+            return paragraphIds.length;
+        }
+
+        public long paragraphId(final int i) {
+            return paragraphIds[i];
+        }
+
+        public double similarity(final int i) {
+            return similarities[i];
+        }
+    }
+
+    /**
+     * Collects rows while the cosine stage runs; safe for concurrent use.
+     */
+    public static final class Builder {
+        private final int topK;
+        private final Map<UUID, Row> rows = Collections.synchronizedMap(new LinkedHashMap<>());
+
+        private Builder(final int topK) {
+            this.topK = topK;
+        }
+
+        /**
+         * @param matches matches of the clause, best first
+         */
+        public void add(final UUID clauseId, final List<TextMatcher.ParagraphMatchResult> matches) {
+            final int n = Math.min(topK, matches.size());
+            final long[] ids = new long[n];
+            final float[] sims = new float[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = matches.get(i).paragraph().getId();
+                sims[i] = (float) matches.get(i).similarity();
+            }
+            rows.put(clauseId, new Row(ids, sims));
+        }
+
+        public SparseSimilarityMatrix build() {
+            synchronized (rows) {
+                return new SparseSimilarityMatrix(new LinkedHashMap<>(rows));
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Interns tokens to dense int term ids and tokenizes text straight into them.
+ * <p>
+ * The tokenizer makes one pass over the characters, lower-casing ASCII letters into a
+ * scratch buffer; letters and digits form tokens, anything else separates them. Tokens
+ * are looked up by their characters in an open-addressing table, so a known token is
+ * never copied into a String. Ids below the reserved count belong to the stop words
+ * and are dropped from the output.
+ * <p>
+ * The dictionary only grows; its owner bounds it by replacing it once {@link #size()}
+ * gets too large (see {@link KeywordSimilarityStrategy}).
+ */
+final class TermDictionary {
+
+    private static final int[] NO_TERMS = new int[0];
+
+    private final int minLength;
+    private final int reserved;
+
+    private char[][] terms = new char[1024][];
+    private int[] hashes = new int[1024];
+    private int[] table = new int[2048]; // term id + 1, 0 = empty slot
+    private int size;
+
+    /**
+     * @param minLength  shortest token kept
+     * @param stopWords  lower-case words never emitted as terms
+     */
+    TermDictionary(final int minLength, final Collection<String> stopWords) {
+        this.minLength = minLength;
+        for (final String w : stopWords) {
+            final char[] chars = w.toCharArray();
+            intern(chars, chars.length);
+        }
+        this.reserved = size;
+    }
+
+    /**
+     * @return distinct term ids of the text, ascending
+     */
+    int[] tokenize(final String text) {
+        if (text == null || text.isEmpty()) return NO_TERMS;
+
+        char[] token = new char[32];
+        int length = 0;
+        int[] ids = new int[Math.max(8, text.length() / 6)];
+        int count = 0;
+
+        final int n = text.length();
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (length == token.length) token = Arrays.copyOf(token, length * 2);
+                token[length++] = c;
+                continue;
+            }
+
+            if (length >= minLength) {
+                final int id = intern(token, length);
+                if (id >= reserved) {
+                    if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+                    ids[count++] = id;
+                }
+            }
+            length = 0;
+        }
+
+        if (count == 0) return NO_TERMS;
+        Arrays.sort(ids, 0, count);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (ids[i] != ids[distinct - 1]) ids[distinct++] = ids[i];
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    /**
+     * @return Jaccard similarity of two ascending term id arrays
+     */
+    static double jaccard(final int[] a, final int[] b) {
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        final int union = a.length + b.length - common;
+        return union == 0 ? 0.0 : (double) common / union;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private synchronized int intern(final char[] chars, final int length) {
+        final int hash = hash(chars, length);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (int e; (e = table[slot]) != 0; slot = (slot + 1) & mask) {
+            if (hashes[e - 1] == hash && Arrays.equals(terms[e - 1], 0, terms[e - 1].length, chars, 0, length)) {
+                return e - 1;
+            }
+        }
+
+        final int id = size++;
+        if (id == terms.length) {
+            terms = Arrays.copyOf(terms, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        terms[id] = Arrays.copyOf(chars, length);
+        hashes[id] = hash;
+        table[slot] = id + 1;
+
+        if (size * 2 > table.length) {
+            table = new int[table.length * 2];
+            mask = table.length - 1;
+            for (int t = 0; t < size; t++) {
+                int s = hashes[t] & mask;
+                while (table[s] != 0) s = (s + 1) & mask;
+                table[s] = t + 1;
+            }
+        }
+        return id;
+    }
+
+    private static int hash(final char[] chars, final int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) h = 31 * h + chars[i];
+        return h ^ (h >>> 16);
+    }
+}
@@ -2,32 +2,60 @@ package com.unfinitas.backend.core.analysis.matcher;
 
 import com.unfinitas.backend.core.analysis.service.EmbeddingService;
 import com.unfinitas.backend.core.analysis.service.TranslationService;
+import com.unfinitas.backend.core.analysis.dto.RetrievalRecall;
 import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.ingestion.model.Section;
 import com.unfinitas.backend.core.regulation.model.RegulationClause;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TextMatcher {
     private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int LEXICAL_ONLY_TOP_N = 3;
+    private static final Pattern ACRONYM = Pattern.compile("\\b[A-Z][A-Z0-9]{2,}\\b");
 
     @SuppressWarnings("unused")
     private final TranslationService translationService;
     private final EmbeddingService embeddingService;
     private final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
 
+    // HIERARCHICAL: match section centroids first, then only paragraphs of the top sections
+    @Value("${analysis.retrieval.mode:FLAT}")
+    private RetrievalMode retrievalMode;
+
+    @Value("${analysis.retrieval.top-sections:8}")
+    private int topSections;
+
+    // Fuse the cosine ranking with BM25 hits by reciprocal rank
+    @Value("${analysis.retrieval.hybrid:false}")
+    private boolean hybrid;
+
+    @Value("${analysis.retrieval.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${analysis.retrieval.lexical-top-n:20}")
+    private int lexicalTopN;
+
+    // A reference term in more than this share of paragraphs does not single any out
+    @Value("${analysis.retrieval.lexical-only-max-df:0.05}")
+    private double lexicalOnlyMaxDf;
+
     private double fastCosineSimilarity(final float[] a, final float[] b) {
         if (a == null || b == null || a.length != b.length) {
             return 0.0;
@@ -70,11 +98,65 @@ public class TextMatcher {
             final List<RegulationClause> clauses,
             final List<Paragraph> paragraphs,
             final double threshold) {
+        return batchFindMatches(clauses, index(paragraphs), threshold);
+    }
+
+    /**
+     * Parse paragraph embeddings once so that clauses can be matched chunk by chunk
+     * without re-parsing them.
+     */
+    public ParagraphIndex index(final List<Paragraph> paragraphs) {
+        return new ParagraphIndex(paragraphs.stream()
+                .filter(p -> p.getEmbedding() != null)
+                .map(p -> new ParagraphWithEmbedding(p, p.getEmbeddingArray()))
+                .filter(p -> p.embedding != null)
+                .toList());
+    }
+
+    /**
+     * Index with a stored BM25 index attached; ignored unless it covers every indexed
+     * paragraph, in which case one is built from the paragraphs on first use.
+     */
+    public ParagraphIndex index(final List<Paragraph> paragraphs, final Bm25Index lexical) {
+        final ParagraphIndex index = index(paragraphs);
+        if (lexical != null && lexical.covers(index.byId.keySet())) {
+            index.lexical = lexical;
+        } else if (lexical != null) {
+            log.debug("Stored lexical index does not cover all {} paragraphs; rebuilding", index.size());
+        }
+        return index;
+    }
+
+    public boolean isHybrid() {
+        return hybrid;
+    }
+
+    /**
+     * Whether every paragraph is scored; only then are a run's top-K similarities exact.
+     */
+    public boolean isFlat() {
+        return retrievalMode == RetrievalMode.FLAT;
+    }
+
+    public Map<UUID, List<ParagraphMatchResult>> batchFindMatches(
+            final List<RegulationClause> clauses,
+            final ParagraphIndex index,
+            final double threshold) {
+        return batchFindMatches(clauses, index, threshold, retrievalMode, topSections, new LongAdder());
+    }
+
+    private Map<UUID, List<ParagraphMatchResult>> batchFindMatches(
+            final List<RegulationClause> clauses,
+            final ParagraphIndex index,
+            final double threshold,
+            final RetrievalMode mode,
+            final int topS,
+            final LongAdder comparisons) {
 
         final long startTime = System.currentTimeMillis();
 
-        log.info("Starting PARALLEL batch processing: {} clauses × {} paragraphs on {} threads",
-                clauses.size(), paragraphs.size(), THREAD_COUNT);
+        log.info("Starting PARALLEL batch processing: {} clauses × {} paragraphs on {} threads ({})",
+                clauses.size(), index.size(), THREAD_COUNT, mode);
 
         // Pre-filter and convert to arrays once
         final List<ClauseWithEmbedding> validClauses = clauses.stream()
@@ -83,13 +165,9 @@ public class TextMatcher {
                 .filter(c -> c.embedding != null)
                 .toList();
 
-        final List<ParagraphWithEmbedding> validParagraphs = paragraphs.stream()
-                .filter(p -> p.getEmbedding() != null)
-                .map(p -> new ParagraphWithEmbedding(p, p.getEmbeddingArray()))
-                .filter(p -> p.embedding != null)
-                .toList();
+        final List<ParagraphWithEmbedding> validParagraphs = index.paragraphs;
 
-        log.info("Valid items: {} clauses, {} paragraphs (Total: {} comparisons)",
+        log.info("Valid items: {} clauses, {} paragraphs (Flat: {} comparisons)",
                 validClauses.size(), validParagraphs.size(),
                 validClauses.size() * validParagraphs.size());
 
@@ -97,16 +175,18 @@ public class TextMatcher {
         final ConcurrentHashMap<UUID, List<ParagraphMatchResult>> results = new ConcurrentHashMap<>();
 
         final List<CompletableFuture<Void>> futures = validClauses.stream()
-                .map(clause -> CompletableFuture.runAsync(() -> {
-                    processClause(clause, validParagraphs, threshold, results);
-                }, executor))
+                .map(clause -> CompletableFuture.runAsync(() -> comparisons.add(
+                        mode == RetrievalMode.HIERARCHICAL
+                                ? processClauseHierarchical(clause, index, topS, threshold, results)
+                                : processClause(clause, validParagraphs, threshold, results)
+                ), executor))
                 .toList();
 
         // Wait for completion
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
 
         final long duration = System.currentTimeMillis() - startTime;
-        final long totalComparisons = (long) validClauses.size() * validParagraphs.size();
+        final long totalComparisons = comparisons.sum();
 
         log.info("PARALLEL processing completed in {}ms ({} comparisons, {} comp/sec)",
                 duration, totalComparisons, (totalComparisons * 1000L) / Math.max(duration, 1));
@@ -114,7 +194,182 @@ public class TextMatcher {
         return results;
     }
 
-    private void processClause(
+    /**
+     * Run both retrieval modes on the same clauses and report how much of the flat top-k
+     * the hierarchical mode finds, and what each costs.
+     */
+    public RetrievalRecall measureRecall(final List<RegulationClause> clauses,
+                                         final ParagraphIndex index,
+                                         final double threshold,
+                                         final int k,
+                                         final int topS) {
+
+        final LongAdder flatComparisons = new LongAdder();
+        long start = System.currentTimeMillis();
+        final Map<UUID, List<ParagraphMatchResult>> flat =
+                batchFindMatches(clauses, index, threshold, RetrievalMode.FLAT, topS, flatComparisons);
+        final long flatMillis = System.currentTimeMillis() - start;
+
+        final LongAdder hierarchicalComparisons = new LongAdder();
+        start = System.currentTimeMillis();
+        final Map<UUID, List<ParagraphMatchResult>> hierarchical =
+                batchFindMatches(clauses, index, threshold, RetrievalMode.HIERARCHICAL, topS, hierarchicalComparisons);
+        final long hierarchicalMillis = System.currentTimeMillis() - start;
+
+        double recallSum = 0.0;
+        int measured = 0;
+        for (final Map.Entry<UUID, List<ParagraphMatchResult>> e : flat.entrySet()) {
+            final List<ParagraphMatchResult> expected = e.getValue().subList(0, Math.min(k, e.getValue().size()));
+            if (expected.isEmpty()) continue;
+
+            final Set<Long> found = hierarchical.getOrDefault(e.getKey(), List.of()).stream()
+                    .limit(k)
+                    .map(m -> m.paragraph().getId())
+                    .collect(Collectors.toSet());
+            final long hits = expected.stream().filter(m -> found.contains(m.paragraph().getId())).count();
+
+            recallSum += (double) hits / expected.size();
+            measured++;
+        }
+
+        return new RetrievalRecall(
+                flat.size(),
+                index.size(),
+                index.sections().size(),
+                topS,
+                k,
+                measured,
+                measured > 0 ? recallSum / measured : 1.0,
+                flatComparisons.sum(),
+                hierarchicalComparisons.sum(),
+                flatMillis,
+                hierarchicalMillis
+        );
+    }
+
+    /**
+     * Cosine matches of a clause re-ranked by reciprocal rank fusion with its BM25 hits,
+     * score Σ 1 / (k + rank). Paragraphs found only lexically join with their actual
+     * cosine similarity, so exact references the embedding misses still reach the
+     * candidates. Returns the cosine ranking unchanged when hybrid retrieval is off.
+     *
+     * @param cosineRanked matches of the clause, best first
+     */
+    public List<ParagraphMatchResult> fuse(final RegulationClause clause,
+                                           final List<ParagraphMatchResult> cosineRanked,
+                                           final ParagraphIndex index) {
+        if (!hybrid) return cosineRanked;
+
+        final List<Bm25Index.Hit> hits = index.lexical().search(lexicalQuery(clause), lexicalTopN);
+        if (hits.isEmpty()) return cosineRanked;
+
+        final Map<Long, ParagraphMatchResult> byId = new LinkedHashMap<>();
+        final Map<Long, Double> fused = new HashMap<>();
+        for (int rank = 0; rank < cosineRanked.size(); rank++) {
+            final ParagraphMatchResult m = cosineRanked.get(rank);
+            byId.put(m.paragraph().getId(), m);
+            fused.merge(m.paragraph().getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+
+        float[] embedding = null;
+        for (int rank = 0; rank < hits.size(); rank++) {
+            final long id = hits.get(rank).paragraphId();
+            final ParagraphWithEmbedding p = index.byId.get(id);
+            if (p == null) continue;
+
+            if (!byId.containsKey(id)) {
+                if (embedding == null) embedding = clause.getEmbeddingArray();
+                byId.put(id, new ParagraphMatchResult(p.paragraph, fastCosineSimilarity(embedding, p.embedding)));
+            }
+            fused.merge(id, 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+
+        final List<ParagraphMatchResult> ranked = new ArrayList<>(byId.values());
+        ranked.sort((a, b) -> Double.compare(fused.get(b.paragraph().getId()), fused.get(a.paragraph().getId())));
+        return ranked;
+    }
+
+    /**
+     * Candidates for a clause no paragraph reaches by cosine: paragraphs that share a rare
+     * exact reference with it, a dotted / dashed reference such as "145.A.30" or an
+     * acronym such as "CAME". They carry their actual cosine similarity, best BM25 hit
+     * first. Empty when hybrid retrieval is off.
+     */
+    public List<ParagraphMatchResult> lexicalOnly(final RegulationClause clause, final ParagraphIndex index) {
+        if (!hybrid) return List.of();
+
+        final Set<String> references = referenceTerms(clause);
+        if (references.isEmpty()) return List.of();
+
+        final List<ParagraphMatchResult> matches = new ArrayList<>();
+        float[] embedding = null;
+        for (final Bm25Index.Hit hit : index.lexical().searchRare(references, LEXICAL_ONLY_TOP_N, lexicalOnlyMaxDf)) {
+            final ParagraphWithEmbedding p = index.byId.get(hit.paragraphId());
+            if (p == null) continue;
+            if (embedding == null) embedding = clause.getEmbeddingArray();
+            matches.add(new ParagraphMatchResult(p.paragraph, fastCosineSimilarity(embedding, p.embedding)));
+        }
+        return matches;
+    }
+
+    /**
+     * Compound references and acronyms of the clause id, title and text, as BM25 terms.
+     */
+    static Set<String> referenceTerms(final RegulationClause clause) {
+        final Set<String> terms = new LinkedHashSet<>();
+        Stream.of(clause.getClauseId(), clause.getTitle(), clause.getContent())
+                .filter(Objects::nonNull)
+                .forEach(text -> {
+                    for (final String token : Bm25Index.tokenize(text)) {
+                        if (token.indexOf('.') >= 0 || token.indexOf('-') >= 0 || token.indexOf('/') >= 0) {
+                            terms.add(token);
+                        }
+                    }
+                    final Matcher m = ACRONYM.matcher(text);
+                    while (m.find()) terms.add(m.group().toLowerCase(Locale.ROOT));
+                });
+        return terms;
+    }
+
+    private static String lexicalQuery(final RegulationClause clause) {
+        return Stream.of(clause.getClauseId(), clause.getTitle(), clause.getContent())
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Similarity of one clause to a handful of paragraphs, best first, without a threshold.
+     */
+    public List<ParagraphMatchResult> rank(final RegulationClause clause, final List<Paragraph> paragraphs) {
+        final float[] c = clause.getEmbeddingArray();
+        final List<ParagraphMatchResult> ranked = new ArrayList<>(paragraphs.size());
+        for (final Paragraph p : paragraphs) {
+            ranked.add(new ParagraphMatchResult(p, fastCosineSimilarity(c, p.getEmbeddingArray())));
+        }
+        ranked.sort((a, b) -> Double.compare(b.similarity(), a.similarity()));
+        return ranked;
+    }
+
+    /**
+     * Matches of one clause on the calling thread, best first. For background work that
+     * should not compete with analyses for the shared pool.
+     */
+    public List<ParagraphMatchResult> findMatches(final RegulationClause clause,
+                                                  final ParagraphIndex index,
+                                                  final double threshold) {
+        final float[] embedding = clause.getEmbedding() != null ? clause.getEmbeddingArray() : null;
+        if (embedding == null) return List.of();
+
+        final ConcurrentHashMap<UUID, List<ParagraphMatchResult>> result = new ConcurrentHashMap<>(1);
+        processClause(new ClauseWithEmbedding(clause.getId(), clause.getClauseId(), embedding),
+                index.paragraphs, threshold, result);
+        return result.get(clause.getId());
+    }
+
+    /**
+     * @return number of cosine comparisons made
+     */
+    private int processClause(
             final ClauseWithEmbedding clause,
             final List<ParagraphWithEmbedding> paragraphs,
             final double threshold,
@@ -134,6 +389,67 @@ public class TextMatcher {
         matches.sort((a, b) -> Double.compare(b.similarity(), a.similarity()));
 
         results.put(clause.id, matches);
+        return paragraphs.size();
+    }
+
+    /**
+     * Score the section centroids first and only the paragraphs of the {@code topS} best
+     * sections exactly.
+     *
+     * @return number of cosine comparisons made, centroids included
+     */
+    private int processClauseHierarchical(
+            final ClauseWithEmbedding clause,
+            final ParagraphIndex index,
+            final int topS,
+            final double threshold,
+            final ConcurrentHashMap<UUID, List<ParagraphMatchResult>> results) {
+
+        final List<SectionGroup> groups = index.sections();
+        if (groups.size() <= topS) {
+            return processClause(clause, index.paragraphs, threshold, results);
+        }
+
+        final double[] scores = new double[groups.size()];
+        final Integer[] order = new Integer[groups.size()];
+        for (int g = 0; g < groups.size(); g++) {
+            scores[g] = fastCosineSimilarity(clause.embedding, groups.get(g).centroid);
+            order[g] = g;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        final List<ParagraphWithEmbedding> candidates = new ArrayList<>();
+        for (int i = 0; i < topS; i++) {
+            candidates.addAll(groups.get(order[i]).paragraphs);
+        }
+        return groups.size() + processClause(clause, candidates, threshold, results);
+    }
+
+    /**
+     * Normalized mean of unit-normalized vectors; null if there are none or dimensions differ.
+     */
+    public static float[] centroid(final List<float[]> vectors) {
+        if (vectors.isEmpty()) return null;
+
+        final int dim = vectors.getFirst().length;
+        final double[] sum = new double[dim];
+        for (final float[] v : vectors) {
+            if (v.length != dim) return null;
+            double norm = 0.0;
+            for (final float x : v) norm += x * x;
+            if (norm == 0.0) continue;
+            final double inv = 1.0 / Math.sqrt(norm);
+            for (int i = 0; i < dim; i++) sum[i] += v[i] * inv;
+        }
+
+        double norm = 0.0;
+        for (final double x : sum) norm += x * x;
+        if (norm == 0.0) return null;
+
+        final double inv = 1.0 / Math.sqrt(norm);
+        final float[] c = new float[dim];
+        for (int i = 0; i < dim; i++) c[i] = (float) (sum[i] * inv);
+        return c;
     }
 
     private record ClauseWithEmbedding(UUID id, String clauseId, float[] embedding) {
@@ -144,4 +460,98 @@ public class TextMatcher {
 
     public record ParagraphMatchResult(Paragraph paragraph, double similarity) {
     }
+
+    /**
+     * Paragraphs of one section with the section centroid; unsectioned paragraphs form one group.
+     */
+    private record SectionGroup(float[] centroid, List<ParagraphWithEmbedding> paragraphs) {
+    }
+
+    public enum RetrievalMode {
+        /** Score every paragraph */
+        FLAT,
+        /** Score section centroids, then the paragraphs of the best sections */
+        HIERARCHICAL
+    }
+
+    /**
+     * MOE paragraphs with parsed embeddings; paragraphs without one are left out.
+     */
+    public static final class ParagraphIndex {
+        private final List<ParagraphWithEmbedding> paragraphs;
+        private final Map<Long, ParagraphWithEmbedding> byId;
+        private volatile List<SectionGroup> sections;
+        private volatile Bm25Index lexical;
+
+        private ParagraphIndex(final List<ParagraphWithEmbedding> paragraphs) {
+            this.paragraphs = paragraphs;
+            this.byId = new HashMap<>(paragraphs.size() * 2);
+            for (final ParagraphWithEmbedding p : paragraphs) byId.put(p.paragraph.getId(), p);
+        }
+
+        public int size() {
+            return paragraphs.size();
+        }
+
+        /**
+         * Section groups, built on first use. Stored centroids are used when their
+         * dimension matches the paragraph embeddings, otherwise computed here.
+         */
+        private List<SectionGroup> sections() {
+            List<SectionGroup> s = sections;
+            if (s == null) {
+                synchronized (this) {
+                    s = sections;
+                    if (s == null) sections = s = buildSections();
+                }
+            }
+            return s;
+        }
+
+        private List<SectionGroup> buildSections() {
+            final Map<Long, List<ParagraphWithEmbedding>> bySection = new LinkedHashMap<>();
+            final Map<Long, Section> sectionsById = new HashMap<>();
+            for (final ParagraphWithEmbedding p : paragraphs) {
+                final Section section = p.paragraph.getSection();
+                final Long key = section != null ? section.getId() : null;
+                if (section != null) sectionsById.putIfAbsent(key, section);
+                bySection.computeIfAbsent(key, k -> new ArrayList<>()).add(p);
+            }
+
+            final List<SectionGroup> groups = new ArrayList<>(bySection.size());
+            bySection.forEach((id, members) -> {
+                final int dim = members.getFirst().embedding.length;
+                float[] centroid = id != null ? sectionsById.get(id).getCentroidArray() : null;
+                if (centroid == null || centroid.length != dim) {
+                    centroid = centroid(members.stream().map(ParagraphWithEmbedding::embedding).toList());
+                }
+                if (centroid != null) groups.add(new SectionGroup(centroid, members));
+            });
+            return groups;
+        }
+
+        /**
+         * BM25 index: the stored one if attached, otherwise built from the indexed paragraphs on first use.
+         */
+        private Bm25Index lexical() {
+            Bm25Index l = lexical;
+            if (l == null) {
+                synchronized (this) {
+                    l = lexical;
+                    if (l == null) {
+                        lexical = l = Bm25Index.build(paragraphs.stream().map(ParagraphWithEmbedding::paragraph).toList());
+                    }
+                }
+            }
+            return l;
+        }
+
+        /**
+         * @return the indexed paragraph, or null if it is not part of the index
+         */
+        public Paragraph paragraph(final long id) {
+            final ParagraphWithEmbedding p = byId.get(id);
+            return p != null ? p.paragraph : null;
+        }
+    }
 }
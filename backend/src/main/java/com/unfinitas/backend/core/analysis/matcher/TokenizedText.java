@@ -0,0 +1,12 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+/**
+ * Text prepared once by a {@link SimilarityStrategy} for repeated comparisons.
+ *
+ * Term ids are only comparable within the strategy and vocabulary that prepared the text.
+ *
+ * @param termIds    distinct term ids, ascending; null if the strategy works on the raw text
+ * @param vocabulary generation of the strategy's term dictionary that assigned the ids
+ */
+public record TokenizedText(String text, int[] termIds, int vocabulary) {
+}
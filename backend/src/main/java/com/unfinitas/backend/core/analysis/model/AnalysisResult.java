@@ -18,6 +18,7 @@ import java.util.UUID;
 @Table(name = "analysis_results", indexes = {
         @Index(name = "idx_analysis_moe_id", columnList = "moe_id"),
         @Index(name = "idx_analysis_base_moe_id", columnList = "base_moe_id"),
+        @Index(name = "idx_analysis_parent_id", columnList = "parent_analysis_id"),
         @Index(name = "idx_analysis_status", columnList = "status"),
         @Index(name = "idx_analysis_created", columnList = "created_at")
 })
@@ -41,6 +42,33 @@ public class AnalysisResult {
     @JoinColumn(name = "base_moe_id")
     private MoeDocument baseMoeDocument;
 
+    /** Prior analysis an incremental run carries unchanged clauses over from */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "base_analysis_id")
+    private AnalysisResult baseAnalysis;
+
+    /** Clauses copied from the base analysis instead of being recomputed */
+    @Column(name = "carried_over_count")
+    @Builder.Default
+    private Integer carriedOverCount = 0;
+
+    /** Full analysis a partial analysis re-checks one slice of */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_analysis_id")
+    private AnalysisResult parentAnalysis;
+
+    /** Partial analysis scope: MOE section subtree, e.g. "2.13" */
+    @Column(name = "scope_section_prefix", length = 50)
+    private String scopeSectionPrefix;
+
+    /** Partial analysis scope: comma-separated clause ids */
+    @Column(name = "scope_clause_ids", columnDefinition = "TEXT")
+    private String scopeClauseIds;
+
+    /** Partial analysis scope: comma-separated clause types */
+    @Column(name = "scope_clause_types", length = 100)
+    private String scopeClauseTypes;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "analysis_type", nullable = false, length = 30)
     private AnalysisType analysisType;
@@ -84,6 +112,33 @@ public class AnalysisResult {
     @Column(name = "translation_required")
     private Boolean translationRequired;
 
+    /** Wall-clock budget for LLM judging; null = unbounded */
+    @Column(name = "time_budget_seconds")
+    private Integer timeBudgetSeconds;
+
+    @Column(name = "llm_verified_count")
+    @Builder.Default
+    private Integer llmVerifiedCount = 0;
+
+    /** LLM judge batches planned / finished, for progress polling */
+    @Column(name = "llm_batches_total")
+    @Builder.Default
+    private Integer llmBatchesTotal = 0;
+
+    @Column(name = "llm_batches_done")
+    @Builder.Default
+    private Integer llmBatchesDone = 0;
+
+    /** Stored similarity matrix the run read or wrote (embedding model, creation time); re-scoring requires it unchanged */
+    @Column(name = "matrix_embedding_model", length = 100)
+    private String matrixEmbeddingModel;
+
+    @Column(name = "matrix_created_at")
+    private LocalDateTime matrixCreatedAt;
+
+    @Embedded
+    private AnalysisUsage usage;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,63 @@
+package com.unfinitas.backend.core.analysis.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * LLM usage and cost spent on one analysis.
+ */
+@Embeddable
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisUsage {
+
+    @Column(name = "llm_calls")
+    private Long llmCalls;
+
+    /** Hedged duplicate requests */
+    @Column(name = "llm_retries")
+    private Long llmRetries;
+
+    /** Calls that failed, timed out or were truncated */
+    @Column(name = "llm_incomplete_calls")
+    private Long llmIncompleteCalls;
+
+    @Column(name = "llm_context_cached_calls")
+    private Long llmContextCachedCalls;
+
+    @Column(name = "llm_prompt_tokens")
+    private Long promptTokens;
+
+    @Column(name = "llm_output_tokens")
+    private Long outputTokens;
+
+    @Column(name = "llm_cached_tokens")
+    private Long cachedTokens;
+
+    /** Sum of call latencies; exceeds wall-clock time when calls overlap */
+    @Column(name = "llm_latency_ms")
+    private Long latencyMillis;
+
+    @Column(name = "llm_max_latency_ms")
+    private Long maxLatencyMillis;
+
+    /** Judge items served by identical in-flight requests */
+    @Column(name = "llm_coalesced_items")
+    private Long coalescedItems;
+
+    /** Judgements copied from prior analyses instead of calling the LLM */
+    @Column(name = "reused_judgements")
+    private Integer reusedJudgements;
+
+    @Column(name = "llm_model", length = 100)
+    private String model;
+
+    @Column(name = "estimated_cost_usd", precision = 12, scale = 6)
+    private BigDecimal estimatedCostUsd;
+}
@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class AuditorQuestion {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auditor_questions_seq")
+    @SequenceGenerator(name = "auditor_questions_seq", sequenceName = "auditor_questions_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,57 @@
+package com.unfinitas.backend.core.analysis.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Fitted confidence calibration model (softmax regression weights) with its
+ * hold-out metrics. The latest row is the one in use.
+ */
+@Entity
+@Table(name = "calibration_models", indexes = {
+        @Index(name = "idx_calibration_created", columnList = "created_at")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalibrationModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /** JSON {@code double[class][feature]} */
+    @Column(name = "weights_json", nullable = false, columnDefinition = "TEXT")
+    private String weightsJson;
+
+    @Column(name = "sample_count", nullable = false)
+    private Integer sampleCount;
+
+    /** Hold-out accuracy over all predictions. */
+    @Column(name = "holdout_accuracy")
+    private Double holdoutAccuracy;
+
+    /** Hold-out accuracy over predictions confident enough to skip the LLM. */
+    @Column(name = "confident_accuracy")
+    private Double confidentAccuracy;
+
+    /** Fraction of hold-out clauses confident enough to skip the LLM. */
+    @Column(name = "confident_coverage")
+    private Double confidentCoverage;
+
+    /** Hold-out clauses confident enough to skip the LLM. */
+    @Column(name = "confident_count")
+    private Integer confidentCount;
+
+    /** False when hold-out metrics were too weak to let the model skip LLM calls. */
+    @Column(nullable = false)
+    private boolean active;
+}
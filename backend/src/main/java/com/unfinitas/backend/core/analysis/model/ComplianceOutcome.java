@@ -43,4 +43,28 @@ public class ComplianceOutcome {
 
     @Column(columnDefinition = "TEXT")
     private String recommendedActionsJson;
+
+    // Cosine-stage features at judge time, used to fit the calibration model
+    private Double featureTop1;
+
+    private Double featureGap;
+
+    private Double featureKeyword;
+
+    @Column(length = 20)
+    private String clauseType;
+
+    /** Comma-separated ids of the MOE paragraphs the judge saw, best first */
+    @Column(columnDefinition = "TEXT")
+    private String candidateParagraphIds;
+
+    /** True when copied from a prior analysis instead of judged by the LLM */
+    @Builder.Default
+    private Boolean reused = false;
+
+    /** Analysis whose LLM call produced a reused judgement */
+    private UUID sourceAnalysisId;
+
+    /** Prompt + output tokens attributed to this clause (batch tokens split evenly) */
+    private Long llmTokens;
 }
@@ -11,6 +11,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Entity
 @Table(name = "coverage_results", indexes = {
@@ -26,7 +27,8 @@ import java.util.List;
 public class CoverageResult {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coverage_results_seq")
+    @SequenceGenerator(name = "coverage_results_seq", sequenceName = "coverage_results_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -71,6 +73,15 @@ public class CoverageResult {
     @Column(columnDefinition = "TEXT")
     private String explanation;
 
+    /** True when the status comes from an LLM judgement rather than cosine similarity alone */
+    @Column(name = "llm_verified")
+    @Builder.Default
+    private Boolean llmVerified = false;
+
+    /** Analysis this result was carried over from unchanged; null when computed in this run */
+    @Column(name = "source_analysis_id")
+    private UUID sourceAnalysisId;
+
     // Evidence tracking
     @Column(name = "evidence_sections", length = 500)
     private String evidenceSections; // Comma-separated section numbers
@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 public class GapFinding {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "gap_findings_seq")
+    @SequenceGenerator(name = "gap_findings_seq", sequenceName = "gap_findings_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,42 @@
+package com.unfinitas.backend.core.analysis.model;
+
+import com.unfinitas.backend.core.ingestion.model.MoeDocument;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * BM25 inverted index over the paragraphs of one MOE, encoded by {@code Bm25Index}.
+ * Built once at ingestion so hybrid retrieval does not re-tokenize the MOE per analysis.
+ */
+@Entity
+@Table(name = "lexical_indexes")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LexicalIndex {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "moe_id", nullable = false, unique = true)
+    private MoeDocument moeDocument;
+
+    @Column(name = "paragraph_count", nullable = false)
+    private Integer paragraphCount;
+
+    @Column(name = "term_count", nullable = false)
+    private Integer termCount;
+
+    @Column(nullable = false, columnDefinition = "BYTEA")
+    private byte[] data;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,62 @@
+package com.unfinitas.backend.core.analysis.model;
+
+import com.unfinitas.backend.core.ingestion.model.MoeDocument;
+import com.unfinitas.backend.core.regulation.model.Regulation;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sparse top-K clause → paragraph cosine matrix of one MOE against one regulation,
+ * encoded by {@code SparseSimilarityMatrix}. Lets an analysis be re-scored for new
+ * thresholds without recomputing embeddings or similarities.
+ */
+@Entity
+@Table(name = "similarity_matrices", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_matrix_moe_regulation_model",
+                columnNames = {"moe_id", "regulation_id", "embedding_model"})
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarityMatrix {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "moe_id", nullable = false)
+    private MoeDocument moeDocument;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "regulation_id", nullable = false)
+    private Regulation regulation;
+
+    @Column(name = "embedding_model", nullable = false, length = 100)
+    private String embeddingModel;
+
+    /** Entries kept per clause */
+    @Column(name = "top_k", nullable = false)
+    private Integer topK;
+
+    /** Cosine floor; re-scoring below it would need similarities that were not kept */
+    @Column(name = "min_similarity", nullable = false)
+    private Double minSimilarity;
+
+    @Column(name = "clause_count", nullable = false)
+    private Integer clauseCount;
+
+    @Column(name = "entry_count", nullable = false)
+    private Integer entryCount;
+
+    @Column(nullable = false, columnDefinition = "BYTEA")
+    private byte[] data;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,8 +1,12 @@
 package com.unfinitas.backend.core.analysis.model.enums;
 
+// New values must also be added to the check constraint in db/constraints.sql
 public enum AnalysisStatus {
     PENDING,
     IN_PROGRESS,
+    COSINE,
+    LLM_JUDGING,
+    PERSISTING,
     COMPLETED,
     FAILED
 }
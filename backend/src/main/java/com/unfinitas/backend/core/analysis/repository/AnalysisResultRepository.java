@@ -7,9 +7,11 @@ import com.unfinitas.backend.core.ingestion.model.MoeDocument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -95,4 +97,20 @@ public interface AnalysisResultRepository extends JpaRepository<AnalysisResult,
     Double getAverageComplianceScoreSince(@Param("since") LocalDateTime since);
 
     Optional<AnalysisResult> findTopByMoeDocument_IdOrderByCreatedAtDesc(UUID moeId);
+
+    // Progress updates, committed immediately so pollers see them while the job runs
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisResult a SET a.status = :status WHERE a.id = :id")
+    int updateStatus(@Param("id") UUID id, @Param("status") AnalysisStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisResult a SET a.llmBatchesTotal = :total WHERE a.id = :id")
+    int updateLlmBatchesTotal(@Param("id") UUID id, @Param("total") int total);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisResult a SET a.llmBatchesDone = a.llmBatchesDone + 1 WHERE a.id = :id")
+    int incrementLlmBatchesDone(@Param("id") UUID id);
 }
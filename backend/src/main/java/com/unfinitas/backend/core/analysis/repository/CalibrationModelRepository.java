@@ -0,0 +1,12 @@
+package com.unfinitas.backend.core.analysis.repository;
+
+import com.unfinitas.backend.core.analysis.model.CalibrationModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface CalibrationModelRepository extends JpaRepository<CalibrationModel, UUID> {
+
+    Optional<CalibrationModel> findTopByOrderByCreatedAtDesc();
+}
@@ -4,7 +4,10 @@ import com.unfinitas.backend.core.analysis.model.ComplianceOutcome;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -12,6 +15,33 @@ public interface ComplianceOutcomeRepository extends JpaRepository<ComplianceOut
 
     List<ComplianceOutcome> findByAnalysisId(UUID analysisId);
 
+    /**
+     * Outcomes with stored features that were judged in their own analysis. Reused
+     * judgements and carry-overs copy another row's features and verdict, so they are left
+     * out; rows written before the reused flag existed count as originals.
+     */
+    @Query("""
+            SELECT o FROM ComplianceOutcome o
+            WHERE o.featureTop1 IS NOT NULL
+              AND (o.reused IS NULL OR o.reused = false)
+            """)
+    List<ComplianceOutcome> findOriginalWithFeatures();
+
+    /**
+     * Prior outcomes for the given clauses that recorded their candidate paragraphs, newest first.
+     */
+    @Query("""
+            SELECT o FROM ComplianceOutcome o JOIN FETCH o.analysis a
+            WHERE a.regulation.id = :regulationId
+              AND o.requirementId IN :requirementIds
+              AND o.candidateParagraphIds IS NOT NULL
+            ORDER BY a.createdAt DESC
+            """)
+    List<ComplianceOutcome> findReusable(
+            @Param("regulationId") UUID regulationId,
+            @Param("requirementIds") Collection<String> requirementIds
+    );
+
     Page<ComplianceOutcome> findByAnalysisId(UUID analysisId, Pageable pageable);
 
     Page<ComplianceOutcome> findByAnalysisIdAndComplianceStatus(
@@ -0,0 +1,12 @@
+package com.unfinitas.backend.core.analysis.repository;
+
+import com.unfinitas.backend.core.analysis.model.LexicalIndex;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface LexicalIndexRepository extends JpaRepository<LexicalIndex, UUID> {
+
+    Optional<LexicalIndex> findByMoeDocumentId(UUID moeId);
+}
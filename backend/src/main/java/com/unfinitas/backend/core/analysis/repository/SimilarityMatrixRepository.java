@@ -0,0 +1,13 @@
+package com.unfinitas.backend.core.analysis.repository;
+
+import com.unfinitas.backend.core.analysis.model.SimilarityMatrix;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface SimilarityMatrixRepository extends JpaRepository<SimilarityMatrix, UUID> {
+
+    Optional<SimilarityMatrix> findByMoeDocumentIdAndRegulationIdAndEmbeddingModel(
+            UUID moeId, UUID regulationId, String embeddingModel);
+}
@@ -0,0 +1,221 @@
+package com.unfinitas.backend.core.analysis.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * In-memory server-sent event streams, one per running analysis.
+ * <p>
+ * Each stream keeps the last {@code analysis.events.buffer-size} events so late
+ * subscribers (or reconnects with {@code Last-Event-ID}) can catch up. When the
+ * buffer has overflowed, event ids skip and the client should read the report once
+ * the analysis completes. Events reach each subscriber through its own queue, so a
+ * slow client never holds up the analysis; one more than
+ * {@code analysis.events.max-subscriber-lag} events behind is disconnected. Closed
+ * streams are dropped after {@code analysis.events.retention-minutes}.
+ */
+@Service
+@Slf4j
+public class AnalysisEventStream {
+
+    private final Map<UUID, Channel> channels = new ConcurrentHashMap<>();
+
+    @Value("${analysis.events.buffer-size:500}")
+    private int bufferSize;
+
+    @Value("${analysis.events.retention-minutes:15}")
+    private long retentionMinutes;
+
+    @Value("${analysis.events.emitter-timeout-minutes:30}")
+    private long emitterTimeoutMinutes;
+
+    @Value("${analysis.events.max-subscriber-lag:500}")
+    private int maxSubscriberLag;
+
+    public void open(final UUID analysisId) {
+        evictExpired();
+        channels.computeIfAbsent(analysisId, id -> new Channel(bufferSize, maxSubscriberLag));
+    }
+
+    public void publish(final UUID analysisId, final String name, final Object data) {
+        final Channel channel = channels.get(analysisId);
+        if (channel != null) channel.publish(name, data);
+    }
+
+    /**
+     * Publish a final event and complete all subscribers. The buffer stays
+     * available for replay until the retention period ends.
+     */
+    public void close(final UUID analysisId, final String name, final Object data) {
+        final Channel channel = channels.get(analysisId);
+        if (channel == null) return;
+        channel.publish(name, data);
+        channel.close();
+    }
+
+    /**
+     * @param lastEventId replay only events after this id; null replays the whole buffer
+     * @return empty when no stream exists (unknown analysis or retention expired)
+     */
+    public Optional<SseEmitter> subscribe(final UUID analysisId, final Long lastEventId) {
+        evictExpired();
+        final Channel channel = channels.get(analysisId);
+        if (channel == null) return Optional.empty();
+
+        final SseEmitter emitter = new SseEmitter(Duration.ofMinutes(emitterTimeoutMinutes).toMillis());
+        channel.subscribe(emitter, lastEventId);
+        return Optional.of(emitter);
+    }
+
+    private void evictExpired() {
+        final Instant cutoff = Instant.now().minus(Duration.ofMinutes(retentionMinutes));
+        channels.values().removeIf(c -> c.closedBefore(cutoff));
+    }
+
+    private record Event(long id, String name, Object data) {}
+
+    private static final class Channel {
+
+        private final int capacity;
+        private final int maxLag;
+        private final ArrayDeque<Event> buffer;
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private long nextId = 1;
+        private Instant closedAt;
+
+        Channel(final int capacity, final int maxLag) {
+            this.capacity = Math.max(1, capacity);
+            this.maxLag = Math.max(1, maxLag);
+            this.buffer = new ArrayDeque<>(this.capacity);
+        }
+
+        /**
+         * Buffers the event and hands it to each subscriber's queue; never waits on a client.
+         */
+        synchronized void publish(final String name, final Object data) {
+            if (closedAt != null) return;
+
+            final Event event = new Event(nextId++, name, data);
+            if (buffer.size() == capacity) buffer.pollFirst();
+            buffer.addLast(event);
+
+            subscribers.removeIf(s -> !s.offer(event));
+        }
+
+        synchronized void subscribe(final SseEmitter emitter, final Long lastEventId) {
+            final List<Event> replay = buffer.stream()
+                    .filter(e -> lastEventId == null || e.id() > lastEventId)
+                    .toList();
+            final Subscriber subscriber = new Subscriber(this, emitter, replay.size() + maxLag);
+            replay.forEach(subscriber::offer);
+
+            if (closedAt != null) {
+                subscriber.end();
+            } else {
+                subscribers.add(subscriber);
+                emitter.onCompletion(() -> remove(subscriber));
+                emitter.onTimeout(() -> remove(subscriber));
+                emitter.onError(e -> remove(subscriber));
+            }
+            subscriber.start();
+        }
+
+        synchronized void close() {
+            if (closedAt != null) return;
+            closedAt = Instant.now();
+            subscribers.forEach(Subscriber::end);
+            subscribers.clear();
+        }
+
+        synchronized boolean closedBefore(final Instant cutoff) {
+            return closedAt != null && closedAt.isBefore(cutoff);
+        }
+
+        private synchronized void remove(final Subscriber subscriber) {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    /**
+     * One client: events queue up to a fixed lag and are sent from its own virtual thread,
+     * so a slow connection only delays itself. A client that falls further behind is
+     * disconnected and can resume with {@code Last-Event-ID}.
+     */
+    private static final class Subscriber {
+
+        private static final Event END = new Event(-1, null, null);
+
+        private final Channel channel;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Event> queue;
+
+        Subscriber(final Channel channel, final SseEmitter emitter, final int capacity) {
+            this.channel = channel;
+            this.emitter = emitter;
+            this.queue = new LinkedBlockingQueue<>(capacity + 1); // + END
+        }
+
+        void start() {
+            Thread.ofVirtual().name("analysis-events").start(this::deliver);
+        }
+
+        /**
+         * @return false if the subscriber is too far behind and has been disconnected
+         */
+        boolean offer(final Event event) {
+            if (queue.remainingCapacity() > 1 && queue.offer(event)) return true;
+
+            log.debug("Disconnecting event subscriber {} events behind", queue.size());
+            queue.clear();
+            queue.offer(END);
+            return false;
+        }
+
+        void end() {
+            queue.offer(END);
+        }
+
+        private void deliver() {
+            try {
+                while (true) {
+                    final Event event = queue.take();
+                    if (event == END) {
+                        emitter.complete();
+                        return;
+                    }
+                    if (!send(event)) {
+                        channel.remove(this);
+                        return;
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            }
+        }
+
+        private boolean send(final Event event) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.id()))
+                        .name(event.name())
+                        .data(event.data(), MediaType.APPLICATION_JSON));
+                return true;
+            } catch (final IOException | IllegalStateException e) {
+                log.debug("Dropping event subscriber: {}", e.getMessage());
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.unfinitas.backend.core.analysis.service;
+
+import com.unfinitas.backend.core.analysis.engine.ComplianceAnalysisEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Runs created analyses on the dedicated analysis executor.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalysisJobService {
+
+    private final ComplianceAnalysisEngine analysisEngine;
+
+    @Async("analysisExecutor")
+    public void runAsync(final UUID analysisId, final Duration timeBudget) {
+        log.info("Analysis job {} started", analysisId);
+        try {
+            analysisEngine.runAnalysis(analysisId, timeBudget);
+            log.info("Analysis job {} completed", analysisId);
+        } catch (final Exception e) {
+            // Already marked FAILED by the engine
+            log.error("Analysis job {} failed: {}", analysisId, e.getMessage(), e);
+        }
+    }
+
+    @Async("analysisExecutor")
+    public void runBatchAsync(final List<UUID> analysisIds, final Duration timeBudget) {
+        log.info("Batch analysis job started: {} analyses", analysisIds.size());
+        try {
+            analysisEngine.runBatch(analysisIds, timeBudget);
+        } catch (final Exception e) {
+            log.error("Batch analysis job failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.unfinitas.backend.core.analysis.service;
 
+import com.unfinitas.backend.core.analysis.dto.MoeEmbeddedEvent;
 import com.unfinitas.backend.core.analysis.embedding.VectorEmbeddingProvider;
+import com.unfinitas.backend.core.analysis.matcher.TextMatcher;
 import com.unfinitas.backend.core.ingestion.model.MoeDocument;
 import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.ingestion.model.Section;
 import com.unfinitas.backend.core.ingestion.repository.MoeDocumentRepository;
 import com.unfinitas.backend.core.ingestion.repository.ParagraphRepository;
+import com.unfinitas.backend.core.ingestion.repository.SectionRepository;
 import com.unfinitas.backend.core.regulation.model.RegulationClause;
 import com.unfinitas.backend.core.regulation.repository.RegulationClauseRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -16,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -34,6 +40,8 @@ public class EmbeddingService {
     private final ParagraphRepository paragraphRepository;
     private final RegulationClauseRepository clauseRepository;
     private final MoeDocumentRepository moeDocumentRepository;
+    private final SectionRepository sectionRepository;
+    private final ApplicationEventPublisher events;
 
     @Async
     @Transactional
@@ -51,6 +59,7 @@ public class EmbeddingService {
 
         if (toEmbed.isEmpty()) {
             log.info("All paragraphs already have embeddings");
+            updateSectionCentroids(documentId);
             markDocumentCompleted(documentId);
             return;
         }
@@ -60,16 +69,37 @@ public class EmbeddingService {
         log.info("Completed embedding generation for {} paragraphs (doc={})",
                 toEmbed.size(), documentId);
 
+        updateSectionCentroids(documentId);
         markDocumentCompleted(documentId);
     }
 
-    /** Helper: marks document COMPLETED */
+    /** Helper: section centroids for hierarchical retrieval, from each section's own paragraphs */
+    private void updateSectionCentroids(final UUID documentId) {
+        try {
+            final Map<Section, List<float[]>> bySection = new HashMap<>();
+            for (final Paragraph p : paragraphRepository.findWithSectionByMoeDocumentId(documentId)) {
+                final float[] embedding = p.getSection() != null ? p.getEmbeddingArray() : null;
+                if (embedding != null) {
+                    bySection.computeIfAbsent(p.getSection(), k -> new ArrayList<>()).add(embedding);
+                }
+            }
+            bySection.forEach((section, vectors) ->
+                    section.updateCentroid(TextMatcher.centroid(vectors), vectors.size(), CURRENT_MODEL));
+            sectionRepository.saveAll(bySection.keySet());
+            log.info("Stored centroids for {} sections (doc={})", bySection.size(), documentId);
+        } catch (final Exception e) {
+            log.error("Failed to compute section centroids for document {}: {}", documentId, e.getMessage());
+        }
+    }
+
+    /** Helper: marks document COMPLETED; listeners see the event once the transaction commits */
     private void markDocumentCompleted(final UUID documentId) {
         try {
             final MoeDocument doc = moeDocumentRepository.findById(documentId).orElseThrow();
             doc.markAsCompleted();
             moeDocumentRepository.save(doc);
             log.info("Document {} marked as COMPLETED", documentId);
+            events.publishEvent(new MoeEmbeddedEvent(documentId));
         } catch (final Exception e) {
             log.error("Failed to mark document {} as COMPLETED: {}", documentId, e.getMessage());
         }
@@ -0,0 +1,83 @@
+package com.unfinitas.backend.core.analysis.service;
+
+import com.unfinitas.backend.core.analysis.dto.MoeEmbeddedEvent;
+import com.unfinitas.backend.core.analysis.engine.SimilarityMatrixStore;
+import com.unfinitas.backend.core.analysis.matcher.SparseSimilarityMatrix;
+import com.unfinitas.backend.core.analysis.matcher.TextMatcher;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.ingestion.repository.ParagraphRepository;
+import com.unfinitas.backend.core.regulation.model.Regulation;
+import com.unfinitas.backend.core.regulation.model.RegulationClause;
+import com.unfinitas.backend.core.regulation.repository.RegulationRepository;
+import com.unfinitas.backend.core.regulation.service.RegulationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Computes and stores the similarity matrix of a freshly embedded MOE against every
+ * active regulation, so the cosine stage of a later analysis is a matrix read.
+ * <p>
+ * Runs on the single low-priority precompute thread and matches clause by clause on it
+ * rather than on the shared matcher pool. Off unless {@code analysis.precompute.enabled}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SimilarityPrecomputeService {
+
+    private final ParagraphRepository paragraphRepo;
+    private final RegulationRepository regulationRepo;
+    private final RegulationService regulationService;
+    private final TextMatcher textMatcher;
+    private final SimilarityMatrixStore matrixStore;
+
+    @Value("${analysis.precompute.enabled:false}")
+    private boolean enabled;
+
+    @Async("precomputeExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMoeEmbedded(final MoeEmbeddedEvent event) {
+        if (!enabled) return;
+
+        try {
+            precompute(event.documentId());
+        } catch (final Exception e) {
+            log.warn("Similarity precompute for MOE {} failed: {}", event.documentId(), e.getMessage());
+        }
+    }
+
+    public void precompute(final UUID moeId) {
+        final List<Paragraph> paragraphs = paragraphRepo.findByMoeDocumentId(moeId);
+        final String embeddingModel = SimilarityMatrixStore.embeddingModel(paragraphs);
+        if (embeddingModel == null) return;
+
+        final TextMatcher.ParagraphIndex index = textMatcher.index(paragraphs);
+        final double floor = matrixStore.floor();
+
+        for (final Regulation regulation : regulationRepo.findByActiveTrue()) {
+            final List<RegulationClause> clauses = regulationService.loadClauses(regulation.getId());
+            if (matrixStore.findUsable(moeId, regulation.getId(), paragraphs, clauses).isPresent()) {
+                continue;
+            }
+
+            final long start = System.currentTimeMillis();
+            final SparseSimilarityMatrix.Builder matrix = matrixStore.newBuilder();
+            for (final RegulationClause clause : clauses) {
+                if (clause.getEmbedding() == null) continue;
+                matrix.add(clause.getId(), textMatcher.findMatches(clause, index, floor));
+            }
+            matrixStore.save(moeId, regulation.getId(), embeddingModel, matrix.build());
+
+            log.info("Precomputed similarities of MOE {} × regulation {} ({} clauses) in {}ms",
+                    moeId, regulation.getCode(), clauses.size(), System.currentTimeMillis() - start);
+        }
+    }
+}
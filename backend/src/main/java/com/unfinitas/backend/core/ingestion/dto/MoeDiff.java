@@ -0,0 +1,64 @@
+package com.unfinitas.backend.core.ingestion.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What changed between two revisions of an MOE.
+ *
+ * @param unchanged    paragraphs with identical content in the same relative order
+ * @param fuzzySkipped the fuzzy comparison budget ran out, so some edited paragraphs
+ *                     may be reported as ADDED plus REMOVED instead of MODIFIED
+ * @param sections     sections added, removed or retitled, keyed by section number
+ * @param paragraphs   every paragraph that is not unchanged: revised document order,
+ *                     followed by removed paragraphs in base order
+ */
+public record MoeDiff(
+        UUID baseMoeId,
+        UUID revisedMoeId,
+        int unchanged,
+        int added,
+        int removed,
+        int modified,
+        int moved,
+        boolean fuzzySkipped,
+        List<SectionChange> sections,
+        List<ParagraphChange> paragraphs,
+        long durationMillis
+) {
+
+    public enum ChangeType {
+        ADDED,
+        REMOVED,
+        MODIFIED,   // Content edited (matched by embedding similarity)
+        MOVED       // Same content, different position relative to unchanged paragraphs
+    }
+
+    /**
+     * @param type ADDED, REMOVED or MODIFIED (title changed)
+     */
+    public record SectionChange(
+            ChangeType type,
+            String sectionNumber,
+            String baseTitle,
+            String revisedTitle
+    ) {}
+
+    /**
+     * @param similarity cosine similarity of the pair for MODIFIED, 1.0 for MOVED, null otherwise
+     * @param moved      MODIFIED paragraph that was also matched outside its original position
+     */
+    public record ParagraphChange(
+            ChangeType type,
+            Long baseParagraphId,
+            Long revisedParagraphId,
+            String baseSection,
+            String revisedSection,
+            Integer baseOrder,
+            Integer revisedOrder,
+            Double similarity,
+            boolean moved,
+            String baseExcerpt,
+            String revisedExcerpt
+    ) {}
+}
@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.AccessLevel;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -17,6 +18,7 @@ import java.time.LocalDateTime;
         indexes = {
                 @Index(name = "idx_section_order", columnList = "section_id, paragraph_order"),
                 @Index(name = "idx_moe_order", columnList = "moe_id, paragraph_order"),
+                @Index(name = "idx_moe_content_hash", columnList = "moe_id, content_hash"),
                 @Index(name = "idx_embedding_model", columnList = "embedding_model, embedded_at")
         }
 )
@@ -44,6 +46,13 @@ public class Paragraph {
     @Column(name = "word_count")
     private Integer wordCount;
 
+    /**
+     * SHA-256 of the whitespace-normalized content, used to align paragraphs across
+     * MOE revisions
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     /**
      * Vector embedding stored as JSON text for compatibility
      */
@@ -67,6 +76,7 @@ public class Paragraph {
         this.paragraphOrder = paragraphOrder;
         this.content = content;
         this.wordCount = calculateWordCount(content);
+        this.contentHash = hashContent(content);
         this.createdAt = LocalDateTime.now();
     }
 
@@ -76,6 +86,7 @@ public class Paragraph {
         this.paragraphOrder = paragraphOrder;
         this.content = content;
         this.wordCount = calculateWordCount(content);
+        this.contentHash = hashContent(content);
         this.createdAt = LocalDateTime.now();
     }
 
@@ -87,6 +98,21 @@ public class Paragraph {
         if (wordCount == null && content != null) {
             wordCount = calculateWordCount(content);
         }
+        if (contentHash == null) {
+            contentHash = hashContent(content);
+        }
+    }
+
+    /**
+     * Stored hash, or computed from the content for rows ingested before hashing existed.
+     */
+    public String getContentHash() {
+        return contentHash != null ? contentHash : hashContent(content);
+    }
+
+    public static String hashContent(final String text) {
+        if (text == null) return null;
+        return DigestUtils.sha256Hex(text.strip().replaceAll("\\s+", " "));
     }
 
     public boolean needsEmbedding(final String currentModel) {
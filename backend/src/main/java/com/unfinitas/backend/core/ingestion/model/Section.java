@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.AccessLevel;
+import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
 
@@ -15,6 +16,7 @@ import java.time.LocalDateTime;
  * - Chapter level (depth 1): "1.1", "2.3", etc.
  * - Section level (depth 2): "1.4.1", "2.3.2", etc.
  */
+@Slf4j
 @Entity
 @Table(
         name = "sections",
@@ -71,6 +73,22 @@ public class Section {
     @Column(name = "section_order", nullable = false)
     private Integer sectionOrder;
 
+    /**
+     * Normalized mean of the embeddings of the section's own paragraphs, stored like
+     * paragraph embeddings. Used to pick candidate sections before scoring paragraphs.
+     */
+    @Column(name = "centroid", columnDefinition = "TEXT")
+    private String centroid;
+
+    @Column(name = "centroid_model", length = 100)
+    private String centroidModel;
+
+    /**
+     * Number of paragraph embeddings averaged into the centroid.
+     */
+    @Column(name = "centroid_paragraphs")
+    private Integer centroidParagraphs;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -95,6 +113,46 @@ public class Section {
         this.createdAt = LocalDateTime.now();
     }
 
+    public void updateCentroid(final float[] arr, final int paragraphCount, final String model) {
+        if (arr == null) {
+            this.centroid = null;
+            this.centroidModel = null;
+            this.centroidParagraphs = null;
+            return;
+        }
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < arr.length; i++) {
+            if (i > 0) sb.append(",");
+            sb.append(arr[i]);
+        }
+        sb.append("]");
+        this.centroid = sb.toString();
+        this.centroidModel = model;
+        this.centroidParagraphs = paragraphCount;
+    }
+
+    /**
+     * Convert centroid string to float array for calculations
+     */
+    @Transient
+    public float[] getCentroidArray() {
+        if (centroid == null || centroid.isEmpty()) {
+            return null;
+        }
+
+        try {
+            final String[] parts = centroid.substring(1, centroid.length() - 1).split(",");
+            final float[] result = new float[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                result[i] = Float.parseFloat(parts[i].trim());
+            }
+            return result;
+        } catch (final Exception e) {
+            log.error("Failed to parse centroid for section {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
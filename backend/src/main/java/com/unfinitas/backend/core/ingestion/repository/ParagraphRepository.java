@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,6 +17,15 @@ public interface ParagraphRepository extends JpaRepository<Paragraph, Long> {
 
     List<Paragraph> findByMoeDocument(MoeDocument moeDocument);
 
+    /**
+     * Paragraphs with their section loaded, for use outside a persistence context.
+     */
+    @Query("SELECT p FROM Paragraph p LEFT JOIN FETCH p.section WHERE p.moeDocument.id = :moeId")
+    List<Paragraph> findWithSectionByMoeDocumentId(@Param("moeId") UUID moeId);
+
+    @Query("SELECT p FROM Paragraph p LEFT JOIN FETCH p.section WHERE p.id IN :ids")
+    List<Paragraph> findWithSectionByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Find all paragraphs for a given MOE document in document order.
      */
@@ -64,10 +74,10 @@ public interface ParagraphRepository extends JpaRepository<Paragraph, Long> {
 
     /**
      * Find paragraphs inside a section and all its descendants using materialized path.
-     * e.g., "1.4" → "1.4", "1.4.1", "1.4.2", "1.4.2.1", etc.
+     * e.g., "1.4" → "1.4", "1.4.1", "1.4.2", "1.4.2.1", etc. Sections are fetched with the paragraphs.
      */
     @Query("""
-            SELECT p FROM Paragraph p JOIN p.section s
+            SELECT p FROM Paragraph p JOIN FETCH p.section s
             WHERE p.moeDocument.id = :moeId
               AND (s.sectionNumber = :sectionNumber OR s.sectionNumber LIKE CONCAT(:sectionNumber, '.%'))
             ORDER BY p.paragraphOrder
@@ -0,0 +1,373 @@
+package com.unfinitas.backend.core.ingestion.service;
+
+import com.unfinitas.backend.core.ingestion.dto.MoeDiff;
+import com.unfinitas.backend.core.ingestion.dto.MoeDiff.ChangeType;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.ingestion.model.Section;
+import com.unfinitas.backend.core.ingestion.repository.MoeDocumentRepository;
+import com.unfinitas.backend.core.ingestion.repository.ParagraphRepository;
+import com.unfinitas.backend.core.ingestion.repository.SectionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Compares two MOE revisions paragraph by paragraph.
+ * <p>
+ * 1. Exact alignment: paragraphs with the same content hash are paired in document order.
+ * 2. Order: the longest increasing subsequence of those pairs is the unchanged backbone;
+ *    the other exact pairs were moved.
+ * 3. Fuzzy alignment: between two consecutive backbone anchors, unpaired paragraphs are
+ *    paired by embedding cosine similarity (edited in place). Whatever is left is tried
+ *    once more across the whole document (edited and moved), within a comparison budget.
+ * <p>
+ * Steps 1–2 are O(n log n); step 3 only compares paragraphs that have no exact partner,
+ * which keeps typical revisions of 10k-paragraph documents near-linear.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MoeDiffService {
+
+    private static final int EXCERPT_LENGTH = 200;
+
+    private final MoeDocumentRepository moeDocumentRepository;
+    private final ParagraphRepository paragraphRepository;
+    private final SectionRepository sectionRepository;
+
+    @Value("${app.diff.fuzzy-min-similarity:0.85}")
+    private double fuzzyMinSimilarity;
+
+    @Value("${app.diff.max-fuzzy-comparisons:2000000}")
+    private long maxFuzzyComparisons;
+
+    @Transactional(readOnly = true)
+    public MoeDiff diff(final UUID baseMoeId, final UUID revisedMoeId) {
+        requireDocument(baseMoeId);
+        requireDocument(revisedMoeId);
+
+        final long start = System.currentTimeMillis();
+
+        final Alignment a = align(inOrder(baseMoeId), inOrder(revisedMoeId), fuzzyMinSimilarity, maxFuzzyComparisons);
+        final List<MoeDiff.ParagraphChange> changes = a.changes();
+        final List<MoeDiff.SectionChange> sections = diffSections(baseMoeId, revisedMoeId);
+        final long duration = System.currentTimeMillis() - start;
+
+        final Map<ChangeType, Integer> counts = new EnumMap<>(ChangeType.class);
+        changes.forEach(c -> counts.merge(c.type(), 1, Integer::sum));
+
+        log.info("MOE diff {} → {}: {} unchanged, {} added, {} removed, {} modified, {} moved in {}ms",
+                baseMoeId, revisedMoeId, a.unchanged, counts.getOrDefault(ChangeType.ADDED, 0),
+                counts.getOrDefault(ChangeType.REMOVED, 0), counts.getOrDefault(ChangeType.MODIFIED, 0),
+                counts.getOrDefault(ChangeType.MOVED, 0), duration);
+        if (a.fuzzySkipped) {
+            log.warn("MOE diff {} → {}: fuzzy comparison budget of {} spent, edited paragraphs may be "
+                    + "reported as added and removed", baseMoeId, revisedMoeId, maxFuzzyComparisons);
+        }
+
+        return new MoeDiff(
+                baseMoeId,
+                revisedMoeId,
+                a.unchanged,
+                counts.getOrDefault(ChangeType.ADDED, 0),
+                counts.getOrDefault(ChangeType.REMOVED, 0),
+                counts.getOrDefault(ChangeType.MODIFIED, 0),
+                counts.getOrDefault(ChangeType.MOVED, 0),
+                a.fuzzySkipped,
+                sections,
+                changes,
+                duration
+        );
+    }
+
+    static Alignment align(final List<Paragraph> base,
+                           final List<Paragraph> revised,
+                           final double fuzzyMinSimilarity,
+                           final long maxFuzzyComparisons) {
+        final Alignment a = new Alignment(base, revised, fuzzyMinSimilarity, maxFuzzyComparisons);
+        a.pairExact();
+        a.markMoved();
+        a.pairEditedInPlace();
+        a.pairEditedAnywhere();
+        return a;
+    }
+
+    private void requireDocument(final UUID moeId) {
+        if (!moeDocumentRepository.existsById(moeId)) {
+            throw new IllegalArgumentException("Document not found: " + moeId);
+        }
+    }
+
+    private List<Paragraph> inOrder(final UUID moeId) {
+        final List<Paragraph> paragraphs = new ArrayList<>(paragraphRepository.findWithSectionByMoeDocumentId(moeId));
+        paragraphs.sort(Comparator.comparing(Paragraph::getParagraphOrder));
+        return paragraphs;
+    }
+
+    private List<MoeDiff.SectionChange> diffSections(final UUID baseMoeId, final UUID revisedMoeId) {
+        final Map<String, Section> base = bySectionNumber(baseMoeId);
+        final Map<String, Section> revised = bySectionNumber(revisedMoeId);
+        final List<MoeDiff.SectionChange> changes = new ArrayList<>();
+
+        revised.forEach((number, s) -> {
+            final Section old = base.get(number);
+            if (old == null) {
+                changes.add(new MoeDiff.SectionChange(ChangeType.ADDED, number, null, s.getSectionTitle()));
+            } else if (!normalize(old.getSectionTitle()).equals(normalize(s.getSectionTitle()))) {
+                changes.add(new MoeDiff.SectionChange(
+                        ChangeType.MODIFIED, number, old.getSectionTitle(), s.getSectionTitle()));
+            }
+        });
+        base.forEach((number, s) -> {
+            if (!revised.containsKey(number)) {
+                changes.add(new MoeDiff.SectionChange(ChangeType.REMOVED, number, s.getSectionTitle(), null));
+            }
+        });
+        return changes;
+    }
+
+    private Map<String, Section> bySectionNumber(final UUID moeId) {
+        final Map<String, Section> sections = new LinkedHashMap<>();
+        for (final Section s : sectionRepository.findByMoeDocumentIdOrderBySectionOrder(moeId)) {
+            if (s.getSectionNumber() != null) sections.putIfAbsent(s.getSectionNumber(), s);
+        }
+        return sections;
+    }
+
+    private static String normalize(final String s) {
+        return s == null ? "" : s.strip().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Pairing state of one diff. Indices are positions in document order.
+     */
+    static final class Alignment {
+        final List<Paragraph> base;
+        final List<Paragraph> revised;
+        final int[] baseToRevised;
+        final int[] revisedToBase;
+        final boolean[] moved;          // by revised index
+        final double[] similarity;      // by revised index, fuzzy pairs only
+        final float[][] baseVectors;
+        final float[][] revisedVectors;
+        final List<int[]> anchors = new ArrayList<>();
+        final double fuzzyMinSimilarity;
+        long budget;
+        int unchanged;
+        boolean fuzzySkipped;
+
+        Alignment(final List<Paragraph> base,
+                  final List<Paragraph> revised,
+                  final double fuzzyMinSimilarity,
+                  final long maxFuzzyComparisons) {
+            this.base = base;
+            this.revised = revised;
+            this.fuzzyMinSimilarity = fuzzyMinSimilarity;
+            this.budget = maxFuzzyComparisons;
+            this.baseToRevised = new int[base.size()];
+            this.revisedToBase = new int[revised.size()];
+            this.moved = new boolean[revised.size()];
+            this.similarity = new double[revised.size()];
+            this.baseVectors = new float[base.size()][];
+            this.revisedVectors = new float[revised.size()][];
+            Arrays.fill(baseToRevised, -1);
+            Arrays.fill(revisedToBase, -1);
+            Arrays.fill(similarity, Double.NaN);
+        }
+
+        void pairExact() {
+            final Map<String, Deque<Integer>> byHash = new HashMap<>();
+            for (int j = 0; j < revised.size(); j++) {
+                byHash.computeIfAbsent(revised.get(j).getContentHash(), k -> new ArrayDeque<>()).add(j);
+            }
+            for (int i = 0; i < base.size(); i++) {
+                final Deque<Integer> same = byHash.get(base.get(i).getContentHash());
+                if (same != null && !same.isEmpty()) pair(i, same.poll());
+            }
+        }
+
+        /**
+         * Exact pairs off the longest increasing subsequence of revised positions moved.
+         */
+        void markMoved() {
+            final int[] pairedBase = IntStream.range(0, base.size())
+                    .filter(i -> baseToRevised[i] >= 0)
+                    .toArray();
+            final int k = pairedBase.length;
+            final int[] tails = new int[k];       // index into pairedBase of smallest tail per length
+            final int[] previous = new int[k];
+            int length = 0;
+
+            for (int x = 0; x < k; x++) {
+                final int value = baseToRevised[pairedBase[x]];
+                int lo = 0;
+                int hi = length;
+                while (lo < hi) {
+                    final int mid = (lo + hi) >>> 1;
+                    if (baseToRevised[pairedBase[tails[mid]]] < value) lo = mid + 1;
+                    else hi = mid;
+                }
+                previous[x] = lo > 0 ? tails[lo - 1] : -1;
+                tails[lo] = x;
+                if (lo == length) length++;
+            }
+
+            final boolean[] stable = new boolean[k];
+            for (int x = length > 0 ? tails[length - 1] : -1; x >= 0; x = previous[x]) stable[x] = true;
+
+            for (int x = 0; x < k; x++) {
+                final int i = pairedBase[x];
+                if (stable[x]) {
+                    anchors.add(new int[]{i, baseToRevised[i]});
+                    unchanged++;
+                } else {
+                    moved[baseToRevised[i]] = true;
+                }
+            }
+        }
+
+        /**
+         * Fuzzy pairing between consecutive unchanged anchors.
+         */
+        void pairEditedInPlace() {
+            int prevBase = -1;
+            int prevRevised = -1;
+            for (int a = 0; a <= anchors.size(); a++) {
+                final int nextBase = a < anchors.size() ? anchors.get(a)[0] : base.size();
+                final int nextRevised = a < anchors.size() ? anchors.get(a)[1] : revised.size();
+                pairFuzzy(unpaired(baseToRevised, prevBase + 1, nextBase),
+                        unpaired(revisedToBase, prevRevised + 1, nextRevised), false);
+                prevBase = nextBase;
+                prevRevised = nextRevised;
+            }
+        }
+
+        void pairEditedAnywhere() {
+            pairFuzzy(unpaired(baseToRevised, 0, base.size()), unpaired(revisedToBase, 0, revised.size()), true);
+        }
+
+        /**
+         * Greedy best-first pairing above the similarity threshold.
+         */
+        private void pairFuzzy(final int[] olds, final int[] news, final boolean elsewhere) {
+            if (olds.length == 0 || news.length == 0) return;
+
+            final long comparisons = (long) olds.length * news.length;
+            if (comparisons > budget) {
+                log.debug("Skipping fuzzy alignment of {}×{} paragraphs: comparison budget spent",
+                        olds.length, news.length);
+                fuzzySkipped = true;
+                return;
+            }
+            budget -= comparisons;
+
+            final List<double[]> candidates = new ArrayList<>();
+            for (final int i : olds) {
+                final float[] a = vector(baseVectors, base, i);
+                if (a == null) continue;
+                for (final int j : news) {
+                    final double sim = cosine(a, vector(revisedVectors, revised, j));
+                    if (sim >= fuzzyMinSimilarity) candidates.add(new double[]{sim, i, j});
+                }
+            }
+            candidates.sort((x, y) -> Double.compare(y[0], x[0]));
+
+            for (final double[] c : candidates) {
+                final int i = (int) c[1];
+                final int j = (int) c[2];
+                if (baseToRevised[i] >= 0 || revisedToBase[j] >= 0) continue;
+                pair(i, j);
+                similarity[j] = c[0];
+                moved[j] = elsewhere;
+            }
+        }
+
+        /**
+         * Changed paragraphs in revised order, then removed ones in base order.
+         */
+        List<MoeDiff.ParagraphChange> changes() {
+            final List<MoeDiff.ParagraphChange> changes = new ArrayList<>();
+
+            for (int j = 0; j < revised.size(); j++) {
+                final int i = revisedToBase[j];
+                if (i < 0) {
+                    changes.add(change(ChangeType.ADDED, null, revised.get(j), null, false));
+                } else if (!Double.isNaN(similarity[j])) {
+                    changes.add(change(ChangeType.MODIFIED, base.get(i), revised.get(j), similarity[j], moved[j]));
+                } else if (moved[j]) {
+                    changes.add(change(ChangeType.MOVED, base.get(i), revised.get(j), 1.0, true));
+                }
+            }
+            for (int i = 0; i < base.size(); i++) {
+                if (baseToRevised[i] < 0) {
+                    changes.add(change(ChangeType.REMOVED, base.get(i), null, null, false));
+                }
+            }
+            return changes;
+        }
+
+        private void pair(final int i, final int j) {
+            baseToRevised[i] = j;
+            revisedToBase[j] = i;
+        }
+
+        private float[] vector(final float[][] cache, final List<Paragraph> paragraphs, final int index) {
+            if (cache[index] == null) {
+                final float[] v = paragraphs.get(index).getEmbeddingArray();
+                cache[index] = v != null ? v : new float[0];
+            }
+            return cache[index].length > 0 ? cache[index] : null;
+        }
+    }
+
+    private static int[] unpaired(final int[] pairing, final int from, final int to) {
+        return IntStream.range(from, to).filter(x -> pairing[x] < 0).toArray();
+    }
+
+    private static MoeDiff.ParagraphChange change(final ChangeType type,
+                                                  final Paragraph base,
+                                                  final Paragraph revised,
+                                                  final Double similarity,
+                                                  final boolean moved) {
+        return new MoeDiff.ParagraphChange(
+                type,
+                base != null ? base.getId() : null,
+                revised != null ? revised.getId() : null,
+                sectionNumber(base),
+                sectionNumber(revised),
+                base != null ? base.getParagraphOrder() : null,
+                revised != null ? revised.getParagraphOrder() : null,
+                similarity,
+                moved,
+                excerpt(base),
+                excerpt(revised)
+        );
+    }
+
+    private static String sectionNumber(final Paragraph p) {
+        return p != null && p.getSection() != null ? p.getSection().getSectionNumber() : null;
+    }
+
+    private static String excerpt(final Paragraph p) {
+        if (p == null || p.getContent() == null) return null;
+        final String t = p.getContent();
+        return t.length() > EXCERPT_LENGTH ? t.substring(0, EXCERPT_LENGTH) + "…" : t;
+    }
+
+    private static double cosine(final float[] a, final float[] b) {
+        if (a == null || b == null || a.length != b.length) return 0.0;
+
+        double dot = 0.0, na = 0.0, nb = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return na == 0.0 || nb == 0.0 ? 0.0 : dot / (Math.sqrt(na) * Math.sqrt(nb));
+    }
+}
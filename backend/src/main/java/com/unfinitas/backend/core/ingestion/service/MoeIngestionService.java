@@ -1,5 +1,6 @@
 package com.unfinitas.backend.core.ingestion.service;
 
+import com.unfinitas.backend.core.analysis.engine.LexicalIndexStore;
 import com.unfinitas.backend.core.analysis.service.EmbeddingService;
 import com.unfinitas.backend.core.ingestion.PdfParser;
 import com.unfinitas.backend.core.ingestion.exception.DocumentProcessingException;
@@ -37,6 +38,7 @@ public class MoeIngestionService {
     private final FileValidator fileValidator;
     private final SectionNumberExtractor sectionNumberExtractor;
     private final EmbeddingService embeddingService;
+    private final LexicalIndexStore lexicalIndexStore;
 
     @Value("${app.upload.dir}")
     private String uploadDir;
@@ -165,6 +167,13 @@ public class MoeIngestionService {
 
             paragraphRepository.saveAll(paragraphs);
 
+            // Lexical index for hybrid retrieval; analyses rebuild it in memory if missing
+            try {
+                lexicalIndexStore.save(document, paragraphs);
+            } catch (Exception e) {
+                log.warn("Lexical index not stored for {}: {}", documentId, e.getMessage());
+            }
+
             // -----------------------------
             // 3) EMBEDDINGS STAGE
             // -----------------------------
@@ -0,0 +1,100 @@
+package com.unfinitas.backend.core.llm;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Minimal consecutive-failure circuit breaker.
+ * <p>
+ * CLOSED: calls pass through; {@code failureThreshold} consecutive failures open the circuit.
+ * OPEN: calls are rejected until {@code openDuration} has elapsed.
+ * HALF_OPEN: a single trial call is let through; success closes, failure re-opens.
+ * <p>
+ * Every request allowed by {@link #allowRequest()} must report exactly one of
+ * {@link #recordSuccess()}, {@link #recordFailure()} or {@link #recordCancelled()},
+ * otherwise a half-open trial is never released.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(final String name, final int failureThreshold, final Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * @return true if the caller may issue a request now
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) return true;
+
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration.toMillis()) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            log.info("Circuit {} half-open, allowing trial call", name);
+        }
+
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Circuit {} closed after successful call", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("Circuit {} OPEN after {} consecutive failures, rejecting calls for {}s",
+                        name, consecutiveFailures, openDuration.toSeconds());
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The request was abandoned by the caller (interrupted) before it had an outcome.
+     * Releases a half-open trial without counting as success or failure.
+     */
+    public synchronized void recordCancelled() {
+        trialInFlight = false;
+    }
+
+    /**
+     * @return true while requests are being rejected (does not consume the half-open trial)
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN
+                && System.currentTimeMillis() - openedAt < openDuration.toMillis();
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,171 @@
+package com.unfinitas.backend.core.llm;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for a streamed JSON array of {@link ComplianceResult}.
+ * <p>
+ * Text chunks are fed as they arrive from the model. Each top-level array
+ * element is emitted as soon as its closing brace is seen, so a truncated
+ * response still yields every complete object before the cut.
+ * <p>
+ * Anything before the opening '[' (code fences, prose) and after the
+ * closing ']' is ignored. The opening '[' is the first one that starts the
+ * response or a code fence, or is followed by '{', so brackets in a prose
+ * preamble ("see [1]") are skipped. Not thread-safe: one instance per response.
+ */
+@Slf4j
+class ComplianceResultStreamParser implements AutoCloseable {
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<ComplianceResult> onResult;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final StringBuilder preamble = new StringBuilder();
+
+    private boolean arrayStarted;
+    private int scanFrom;
+    private boolean finished;
+    private int depth;
+    private TokenBuffer current;
+    private int emitted;
+
+    ComplianceResultStreamParser(final ObjectMapper objectMapper,
+                                 final Consumer<ComplianceResult> onResult) throws IOException {
+        this.objectMapper = objectMapper;
+        this.onResult = onResult;
+        this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feed the next text chunk of the response.
+     */
+    void feed(final String chunk) throws IOException {
+        if (finished || chunk == null || chunk.isEmpty()) return;
+
+        String text = chunk;
+        if (!arrayStarted) {
+            preamble.append(chunk);
+            final int start = arrayStart();
+            if (start < 0) return;
+            text = preamble.substring(start);
+            preamble.setLength(0);
+            arrayStarted = true;
+        }
+
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        feeder.feedInput(bytes, 0, bytes.length);
+        drain();
+    }
+
+    /**
+     * Number of complete results emitted so far.
+     */
+    int emittedCount() {
+        return emitted;
+    }
+
+    /**
+     * True once the closing ']' of the top-level array has been parsed.
+     */
+    boolean isComplete() {
+        return finished;
+    }
+
+    /**
+     * Position of the '[' opening the result array in the text seen so far; -1 until one
+     * is found, also while the character after a candidate '[' has not arrived yet.
+     */
+    private int arrayStart() {
+        for (int i = scanFrom; i < preamble.length(); i++) {
+            if (preamble.charAt(i) != '[') continue;
+            if (opensResponseOrFence(i)) return i;
+
+            int next = i + 1;
+            while (next < preamble.length() && Character.isWhitespace(preamble.charAt(next))) next++;
+            if (next == preamble.length()) {
+                scanFrom = i;
+                return -1;
+            }
+            if (preamble.charAt(next) == '{') return i;
+        }
+        scanFrom = preamble.length();
+        return -1;
+    }
+
+    /**
+     * True when only whitespace, or a code fence line such as {@code ```json}, precedes the '['.
+     */
+    private boolean opensResponseOrFence(final int bracket) {
+        int last = bracket - 1;
+        while (last >= 0 && Character.isWhitespace(preamble.charAt(last))) last--;
+        if (last < 0) return true;
+
+        final int lineStart = preamble.lastIndexOf("\n", last) + 1;
+        return preamble.substring(lineStart, last + 1).strip().startsWith("```");
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!finished && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE) {
+            if (token == null) {
+                finished = true;
+                return;
+            }
+
+            switch (token) {
+                case START_ARRAY, START_OBJECT -> {
+                    depth++;
+                    if (depth == 2 && token == JsonToken.START_OBJECT) {
+                        current = new TokenBuffer(objectMapper, false);
+                    }
+                    if (current != null) current.copyCurrentEvent(parser);
+                }
+                case END_ARRAY, END_OBJECT -> {
+                    if (current != null) current.copyCurrentEvent(parser);
+                    depth--;
+                    if (depth == 1 && token == JsonToken.END_OBJECT && current != null) {
+                        emit(current);
+                        current = null;
+                    } else if (depth == 0) {
+                        finished = true;
+                    }
+                }
+                default -> {
+                    if (current != null) current.copyCurrentEvent(parser);
+                }
+            }
+        }
+    }
+
+    private void emit(final TokenBuffer buffer) {
+        try (JsonParser p = buffer.asParser(objectMapper)) {
+            final ComplianceResult result = objectMapper.readValue(p, ComplianceResult.class);
+            emitted++;
+            onResult.accept(result);
+        } catch (final Exception e) {
+            log.warn("Skipping malformed streamed ComplianceResult: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        feeder.endOfInput();
+        try {
+            parser.close();
+        } catch (final IOException ignored) {
+            // nothing buffered worth keeping
+        }
+    }
+}
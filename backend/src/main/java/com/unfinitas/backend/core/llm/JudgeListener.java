@@ -0,0 +1,35 @@
+package com.unfinitas.backend.core.llm;
+
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+
+/**
+ * Callback for batch judge progress.
+ * <p>
+ * Invoked from the judge's worker threads, so implementations must be thread-safe.
+ */
+public interface JudgeListener {
+
+    JudgeListener NONE = new JudgeListener() {};
+
+    /**
+     * Called as soon as one complete result has been parsed from the stream,
+     * before the rest of the batch has arrived.
+     */
+    default void onResult(final ComplianceResult result) {}
+
+    /**
+     * Called once per batch with the prompt payload that was sent; a hedged duplicate
+     * resends the same payload and is not reported again.
+     */
+    default void onPayload(final JudgePayload payload) {}
+
+    /**
+     * Called after every LLM request, including hedges and failures.
+     */
+    default void onCall(final LlmCall call) {}
+
+    /**
+     * Called when items were served by identical requests already in flight.
+     */
+    default void onCoalesced(final int items) {}
+}
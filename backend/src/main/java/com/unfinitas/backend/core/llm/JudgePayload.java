@@ -0,0 +1,153 @@
+package com.unfinitas.backend.core.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unfinitas.backend.core.analysis.dto.MoeParagraphCandidate;
+
+import java.util.*;
+
+/**
+ * Batch judge prompt payload with de-duplicated MOE paragraphs.
+ * <p>
+ * Every distinct paragraph appears once in a shared {@code paragraphs} table and
+ * items reference it by {@code paragraph_id}:
+ * <pre>
+ * {
+ *   "paragraphs": [ {"id": 12, "text": "..."} ],
+ *   "items": [ {"id": "145.A.30", "text": "...", "moe": [ {"paragraph_id": 12, "score": 0.71} ] } ]
+ * }
+ * </pre>
+ * The shared form is sent only when it is smaller than the legacy inline form (text
+ * repeated under each item), which is kept so a sampled share of shared batches can
+ * be re-judged inline and their verdicts compared (see {@link VerdictAgreement}).
+ *
+ * @param json       payload sent
+ * @param inlineJson the inline form of the same payload
+ */
+public record JudgePayload(
+        String json,
+        boolean shared,
+        int inlineTokens,
+        int sharedTokens,
+        String inlineJson
+) {
+
+    /** Rough chars-per-token ratio used for savings estimates. */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    public static JudgePayload build(final ObjectMapper objectMapper,
+                                     final List<LlmJudge.ClauseBatchInput> inputs,
+                                     final int maxCandidates,
+                                     final Set<String> cachedClauseIds,
+                                     final TextLimiter limiter) throws JsonProcessingException {
+
+        final List<Map<String, Object>> inlineItems = new ArrayList<>();
+        final List<Map<String, Object>> sharedItems = new ArrayList<>();
+        final Map<Long, String> table = new LinkedHashMap<>();
+
+        for (final LlmJudge.ClauseBatchInput in : inputs) {
+            final List<MoeParagraphCandidate> top = judgedCandidates(in, maxCandidates);
+
+            final List<Map<String, Object>> inlineMoe = new ArrayList<>();
+            final List<Map<String, Object>> refMoe = new ArrayList<>();
+
+            for (final MoeParagraphCandidate c : top) {
+                final String text = limiter.limit(c.text());
+                inlineMoe.add(Map.of(
+                        "paragraph_id", c.paragraphId(),
+                        "text", text,
+                        "score", c.similarityScore()
+                ));
+                refMoe.add(Map.of(
+                        "paragraph_id", c.paragraphId(),
+                        "score", c.similarityScore()
+                ));
+                table.putIfAbsent(c.paragraphId(), text);
+            }
+
+            inlineItems.add(item(in, cachedClauseIds, limiter, inlineMoe));
+            sharedItems.add(item(in, cachedClauseIds, limiter, refMoe));
+        }
+
+        final List<Map<String, Object>> paragraphs = table.entrySet().stream()
+                .map(e -> Map.<String, Object>of("id", e.getKey(), "text", e.getValue()))
+                .toList();
+
+        final String inlineJson = objectMapper.writeValueAsString(Map.of("items", inlineItems));
+        final String sharedJson = objectMapper.writeValueAsString(
+                Map.of("paragraphs", paragraphs, "items", sharedItems));
+
+        final int inlineTokens = estimateTokens(inlineJson);
+        final int sharedTokens = estimateTokens(sharedJson);
+
+        if (sharedTokens >= inlineTokens) {
+            return new JudgePayload(inlineJson, false, inlineTokens, inlineTokens, inlineJson);
+        }
+
+        return new JudgePayload(sharedJson, true, inlineTokens, sharedTokens, inlineJson);
+    }
+
+    /**
+     * Candidates of one item as sent to the judge, best first. Groups judge several
+     * clauses at once, so they get a few more shared candidates.
+     */
+    public static List<MoeParagraphCandidate> judgedCandidates(final LlmJudge.ClauseBatchInput in,
+                                                               final int maxCandidates) {
+        final int limit = maxCandidates + Math.min(in.related().size(), maxCandidates);
+        return in.candidates().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * The same items with paragraph texts inline.
+     */
+    public JudgePayload inline() {
+        return shared ? new JudgePayload(inlineJson, false, inlineTokens, inlineTokens, inlineJson) : this;
+    }
+
+    /**
+     * Estimated prompt tokens saved by the shared table versus inline text.
+     */
+    public int tokensSaved() {
+        return inlineTokens - sharedTokens;
+    }
+
+    /**
+     * Clause texts already held in a cached regulation context are sent by id only.
+     */
+    private static Map<String, Object> item(final LlmJudge.ClauseBatchInput in,
+                                            final Set<String> cachedClauseIds,
+                                            final TextLimiter limiter,
+                                            final List<Map<String, Object>> moe) {
+        final Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", in.requirementId());
+        if (!cachedClauseIds.contains(in.requirementId())) {
+            item.put("text", limiter.limit(in.requirementText()));
+        }
+        if (!in.related().isEmpty()) {
+            item.put("related", in.related().stream()
+                    .map(r -> {
+                        final Map<String, Object> rel = new LinkedHashMap<>();
+                        rel.put("id", r.id());
+                        rel.put("type", r.type());
+                        if (!cachedClauseIds.contains(r.id())) {
+                            rel.put("text", limiter.limit(r.text()));
+                        }
+                        return rel;
+                    })
+                    .toList());
+        }
+        item.put("moe", moe);
+        return item;
+    }
+
+    private static int estimateTokens(final String json) {
+        return (json.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    @FunctionalInterface
+    public interface TextLimiter {
+        String limit(String text);
+    }
+}
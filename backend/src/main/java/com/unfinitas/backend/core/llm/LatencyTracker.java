@@ -0,0 +1,45 @@
+package com.unfinitas.backend.core.llm;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Sliding window of recent call latencies.
+ * <p>
+ * Keeps the last {@code capacity} samples in a ring buffer and answers
+ * percentile queries by sorting a copy, which is cheap at this size.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    public LatencyTracker(final int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(final long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+    }
+
+    public synchronized int sampleCount() {
+        return size;
+    }
+
+    /**
+     * @param percentile value in (0, 1], e.g. 0.95
+     * @return latency at the given percentile, or {@link Duration#ZERO} without samples
+     */
+    public synchronized Duration percentile(final double percentile) {
+        if (size == 0) return Duration.ZERO;
+
+        final long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+
+        final int idx = (int) Math.ceil(percentile * size) - 1;
+        return Duration.ofMillis(sorted[Math.max(0, Math.min(idx, size - 1))]);
+    }
+}
@@ -0,0 +1,24 @@
+package com.unfinitas.backend.core.llm;
+
+import com.unfinitas.backend.core.llm.provider.LlmUsage;
+
+import java.util.List;
+
+/**
+ * One LLM request made by the judge, successful or not.
+ *
+ * @param clauseIds     clauses whose results the call was meant to produce
+ * @param hedge         true for a duplicate request sent after the primary was slow
+ * @param contextCached true when regulation texts were referenced from a cached context
+ * @param complete      true when the full response was received
+ */
+public record LlmCall(
+        String model,
+        List<String> clauseIds,
+        LlmUsage usage,
+        long latencyMillis,
+        boolean hedge,
+        boolean contextCached,
+        boolean complete
+) {
+}
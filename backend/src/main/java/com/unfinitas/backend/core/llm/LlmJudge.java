@@ -1,23 +1,31 @@
 package com.unfinitas.backend.core.llm;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.genai.Client;
-import com.google.genai.types.*;
 import com.unfinitas.backend.core.analysis.dto.MoeParagraphCandidate;
+import com.unfinitas.backend.core.llm.RegulationContextCache.RegulationContext;
 import com.unfinitas.backend.core.llm.dto.ComplianceResult;
 import com.unfinitas.backend.core.llm.dto.RerankedParagraph;
+import com.unfinitas.backend.core.llm.provider.LlmProvider;
+import com.unfinitas.backend.core.llm.provider.LlmRequest;
+import com.unfinitas.backend.core.llm.provider.LlmResponse;
+import com.unfinitas.backend.core.llm.provider.LlmUsage;
 import com.unfinitas.backend.core.regulation.model.RegulationClause;
+import com.unfinitas.backend.util.SingleFlight;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,18 +37,88 @@ public class LlmJudge {
     private static final Duration BATCH_TIMEOUT = Duration.ofSeconds(60);
     private static final int MAX_TEXT_LENGTH = 400;
     private static final int MAX_CANDIDATES = 2;
+    private static final int PROMPT_OVERHEAD_TOKENS = 200;         // instructions around the payload
+    private static final int OUTPUT_TOKENS_PER_RESULT = 300;       // typical ComplianceResult size
 
-    private final Client gemini;
+    private final LlmProvider provider;
     private final ObjectMapper objectMapper;
+    private final RegulationContextCache contextCache;
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
-    private Schema schemaObject;     // schema for ONE result
-    private Schema batchSchema;      // schema for ARRAY of results
+    private final LatencyTracker batchLatency = new LatencyTracker(200);
+    private final SingleFlight<String, Map<String, ComplianceResult>> batchFlights = new SingleFlight<>();
+    private final VerdictAgreement payloadAgreement = new VerdictAgreement();
+
+    private String schemaObject;     // schema for ONE result
+    private String batchSchema;      // schema for ARRAY of results
+    private CircuitBreaker circuitBreaker;
+
+    @Value("${llm.judge.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${llm.judge.hedging.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${llm.judge.hedging.min-samples:20}")
+    private int hedgeMinSamples;
+
+    // Share of shared-table batches re-judged inline in the background to compare verdicts
+    @Value("${llm.judge.payload.ab-sample-rate:0.0}")
+    private double payloadAbSampleRate;
+
+    @Value("${llm.judge.circuit-breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${llm.judge.circuit-breaker.open-seconds:60}")
+    private long breakerOpenSeconds;
+
+    @PostConstruct
+    public void init() {
+        loadSchema();
+        this.circuitBreaker = new CircuitBreaker(
+                "llm-judge", breakerFailureThreshold, Duration.ofSeconds(breakerOpenSeconds));
+        log.info("LlmJudge ready: model={}, hedging={}, breaker threshold={} open={}s",
+                provider.model(), hedgingEnabled, breakerFailureThreshold, breakerOpenSeconds);
+    }
+
+    /**
+     * False while the circuit breaker is open; callers should fall back to cosine-only results.
+     */
+    public boolean isAvailable() {
+        return !circuitBreaker.isOpen();
+    }
+
+    /**
+     * Expected prompt and output tokens of one batch, without calling the LLM.
+     */
+    public TokenEstimate estimateTokens(final List<ClauseBatchInput> inputs) {
+        try {
+            final JudgePayload payload =
+                    JudgePayload.build(objectMapper, inputs, MAX_CANDIDATES, Set.of(), this::limitText);
+            final int results = inputs.stream().mapToInt(in -> in.allIds().size()).sum();
+            return new TokenEstimate(
+                    payload.sharedTokens() + PROMPT_OVERHEAD_TOKENS,
+                    results * OUTPUT_TOKENS_PER_RESULT
+            );
+        } catch (final Exception e) {
+            throw new IllegalStateException("Cannot build judge payload", e);
+        }
+    }
+
+    /**
+     * Recorded latency of completed batches at the given percentile ({@link Duration#ZERO} without samples).
+     */
+    public Duration batchLatency(final double percentile) {
+        return batchLatency.percentile(percentile);
+    }
+
+    public int batchLatencySamples() {
+        return batchLatency.sampleCount();
+    }
 
     // ============================================================================
     // LOAD BOTH SCHEMAS
     // ============================================================================
-    @PostConstruct
     public void loadSchema() {
         try {
             final ClassPathResource resource =
@@ -50,7 +128,7 @@ public class LlmJudge {
                     new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
 
             // schema for *single* ComplianceResult
-            this.schemaObject = Schema.fromJson(schemaJson);
+            this.schemaObject = schemaJson;
 
             // schema for *array* of ComplianceResult
             final String schemaArrayJson = """
@@ -60,7 +138,7 @@ public class LlmJudge {
             }
             """.formatted(schemaJson);
 
-            this.batchSchema = Schema.fromJson(schemaArrayJson);
+            this.batchSchema = schemaArrayJson;
 
             log.info("Loaded schemas: single-object + array wrapper");
 
@@ -76,208 +154,511 @@ public class LlmJudge {
     public ComplianceResult judge(final RegulationClause clause,
                                   final List<RerankedParagraph> reranked,
                                   final List<MoeParagraphCandidate> allCandidates) {
-        try {
-            return CompletableFuture.supplyAsync(
-                    () -> performJudge(clause, reranked, allCandidates),
-                    executor
-            ).orTimeout(JUDGE_TIMEOUT.getSeconds(), TimeUnit.SECONDS).get();
+        if (!circuitBreaker.allowRequest()) {
+            log.debug("Judge circuit open, skipping {}", clause.getClauseId());
+            return ComplianceResult.empty();
+        }
 
+        Boolean success = null;
+        try {
+            final ComplianceResult result = CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return performJudge(clause, reranked, allCandidates);
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, executor)
+                    .orTimeout(JUDGE_TIMEOUT.getSeconds(), TimeUnit.SECONDS)
+                    .get();
+            success = true;
+            return result;
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ComplianceResult.empty();
         } catch (final Exception e) {
+            success = false;
             log.error("Judge failed for {}", clause.getClauseId(), e);
             return ComplianceResult.empty();
+        } finally {
+            if (success == null) {
+                circuitBreaker.recordCancelled();
+            } else if (success) {
+                circuitBreaker.recordSuccess();
+            } else {
+                circuitBreaker.recordFailure();
+            }
         }
     }
 
+    /**
+     * @throws IOException if the request cannot be built or the response is empty or unparseable
+     */
     private ComplianceResult performJudge(final RegulationClause clause,
                                           final List<RerankedParagraph> reranked,
-                                          final List<MoeParagraphCandidate> allCandidates) {
-        try {
-            final Map<Long, MoeParagraphCandidate> lookup =
-                    allCandidates.stream().collect(
-                            Collectors.toMap(MoeParagraphCandidate::paragraphId, c -> c)
-                    );
-
-            final List<Map<String, Object>> moe = new ArrayList<>();
-
-            for (final RerankedParagraph r : reranked.stream().limit(MAX_CANDIDATES).toList()) {
-                final MoeParagraphCandidate c = lookup.get(r.paragraphId());
-                if (c == null) continue;
-
-                moe.add(Map.of(
-                        "paragraph_id", r.paragraphId(),
-                        "full_text", limitText(c.text()),
-                        "similarity_score", c.similarityScore(),
-                        "rerank_score", r.relevanceScore()
-                ));
-            }
+                                          final List<MoeParagraphCandidate> allCandidates) throws IOException {
+        final Map<Long, MoeParagraphCandidate> lookup =
+                allCandidates.stream().collect(
+                        Collectors.toMap(MoeParagraphCandidate::paragraphId, c -> c)
+                );
 
-            final Map<String, Object> payload = Map.of(
-                    "requirement", Map.of(
-                            "id", clause.getClauseId(),
-                            "text", limitText(clause.getContent())
-                    ),
-                    "moe_paragraphs", moe
-            );
+        final List<Map<String, Object>> moe = new ArrayList<>();
 
-            final String jsonPayload = objectMapper.writeValueAsString(payload);
+        for (final RerankedParagraph r : reranked.stream().limit(MAX_CANDIDATES).toList()) {
+            final MoeParagraphCandidate c = lookup.get(r.paragraphId());
+            if (c == null) continue;
 
-            final String prompt = """
-                    EASA Part-145 compliance evaluation.
+            moe.add(Map.of(
+                    "paragraph_id", r.paragraphId(),
+                    "full_text", limitText(c.text()),
+                    "similarity_score", c.similarityScore(),
+                    "rerank_score", r.relevanceScore()
+            ));
+        }
 
-                    INPUT:
-                    %s
+        final Map<String, Object> payload = Map.of(
+                "requirement", Map.of(
+                        "id", clause.getClauseId(),
+                        "text", limitText(clause.getContent())
+                ),
+                "moe_paragraphs", moe
+        );
 
-                    RULE:
-                    Output ONE ComplianceResult object matching schema.
-                    requirement_id MUST equal requirement.id
-                    """.formatted(jsonPayload);
+        final String jsonPayload = objectMapper.writeValueAsString(payload);
 
-            final GenerateContentConfig cfg = GenerateContentConfig.builder()
-                    .responseMimeType("application/json")
-                    .responseSchema(schemaObject)
-                    .candidateCount(1)
-                    .temperature(0.0f)
-                    .maxOutputTokens(4000)
-                    .build();
+        final String prompt = """
+                EASA Part-145 compliance evaluation.
 
-            final long start = System.currentTimeMillis();
+                INPUT:
+                %s
 
-            final GenerateContentResponse resp = gemini.models.generateContent(
-                    "gemini-2.5-flash",
-                    Content.fromParts(Part.fromText(prompt)),
-                    cfg
-            );
+                RULE:
+                Output ONE ComplianceResult object matching schema.
+                requirement_id MUST equal requirement.id
+                """.formatted(jsonPayload);
 
-            final long elapsed = System.currentTimeMillis() - start;
-            log.debug("Single judge LLM {}ms for {}", elapsed, clause.getClauseId());
+        final LlmRequest request = LlmRequest.builder()
+                .prompt(prompt)
+                .jsonSchema(schemaObject)
+                .temperature(0.0f)
+                .maxOutputTokens(4000)
+                .build();
 
-            final String cleaned = cleanJson(resp);
-            if (cleaned.isBlank()) return ComplianceResult.empty();
+        final long start = System.currentTimeMillis();
 
-            final ComplianceResult out = objectMapper.readValue(cleaned, ComplianceResult.class);
+        final LlmResponse resp = provider.generate(request);
 
-            if (!clause.getClauseId().equals(out.requirement_id())) {
-                return new ComplianceResult(
-                        clause.getClauseId(),
-                        out.evidence(),
-                        out.compliance_status(),
-                        out.justification(),
-                        out.missing_elements(),
-                        out.finding_level(),
-                        out.recommended_actions()
-                );
-            }
+        final long elapsed = System.currentTimeMillis() - start;
+        log.debug("Single judge LLM {}ms for {} ({} prompt / {} output tokens)", elapsed, clause.getClauseId(),
+                resp.usage().promptTokens(), resp.usage().outputTokens());
 
-            return out;
+        final String cleaned = extractJson(resp.text());
+        if (cleaned.isBlank()) throw new IOException("Empty judge response for " + clause.getClauseId());
 
-        } catch (final Exception e) {
-            log.error("performJudge failed for {}", clause.getClauseId(), e);
-            return ComplianceResult.empty();
+        final ComplianceResult out = objectMapper.readValue(cleaned, ComplianceResult.class);
+
+        if (!clause.getClauseId().equals(out.requirement_id())) {
+            return new ComplianceResult(
+                    clause.getClauseId(),
+                    out.evidence(),
+                    out.compliance_status(),
+                    out.justification(),
+                    out.missing_elements(),
+                    out.finding_level(),
+                    out.recommended_actions()
+            );
         }
+
+        return out;
     }
 
     // ============================================================================
     // BATCH JUDGE
     // ============================================================================
     public Map<String, ComplianceResult> judgeBatch(final List<ClauseBatchInput> inputs) {
+        return judgeBatch(inputs, null, JudgeListener.NONE);
+    }
+
+    public Map<String, ComplianceResult> judgeBatch(final List<ClauseBatchInput> inputs,
+                                                    final JudgeListener listener) {
+        return judgeBatch(inputs, null, listener);
+    }
+
+    /**
+     * Judge a batch, coalescing items that are identical to ones already in flight.
+     * <p>
+     * Concurrent analyses of the same MOE/regulation pair produce the same items;
+     * only the first caller sends an item to the LLM, later callers wait for its
+     * results instead of paying for a duplicate call.
+     *
+     * @param context cached regulation texts; clause texts found there are sent by id only.
+     *                May be null.
+     */
+    public Map<String, ComplianceResult> judgeBatch(final List<ClauseBatchInput> inputs,
+                                                    final RegulationContext context,
+                                                    final JudgeListener listener) {
         if (inputs == null || inputs.isEmpty()) return Collections.emptyMap();
 
+        final Map<String, SingleFlight.Claim<Map<String, ComplianceResult>>> claims = new LinkedHashMap<>();
+        final Map<String, ClauseBatchInput> byKey = new LinkedHashMap<>();
+        final List<ClauseBatchInput> owned = new ArrayList<>();
+
+        for (final ClauseBatchInput in : inputs) {
+            final String key = coalescingKey(in);
+            if (byKey.putIfAbsent(key, in) != null) continue;
+
+            final SingleFlight.Claim<Map<String, ComplianceResult>> claim = batchFlights.claim(key);
+            claims.put(key, claim);
+            if (claim.owner()) owned.add(in);
+        }
+
+        final Map<String, ComplianceResult> results = new HashMap<>();
+
+        if (!owned.isEmpty()) {
+            Map<String, ComplianceResult> fresh = Collections.emptyMap();
+            try {
+                fresh = sendBatch(owned, context, listener);
+                results.putAll(fresh);
+            } finally {
+                for (final Map.Entry<String, ClauseBatchInput> e : byKey.entrySet()) {
+                    final SingleFlight.Claim<Map<String, ComplianceResult>> claim = claims.get(e.getKey());
+                    if (!claim.owner()) continue;
+
+                    final Map<String, ComplianceResult> own = new HashMap<>();
+                    for (final String id : e.getValue().allIds()) {
+                        final ComplianceResult r = fresh.get(id);
+                        if (r != null) own.put(id, r);
+                    }
+                    batchFlights.complete(e.getKey(), claim, own);
+                }
+            }
+        }
+
+        final long deadline = System.nanoTime() + BATCH_TIMEOUT.toNanos();
+        for (final SingleFlight.Claim<Map<String, ComplianceResult>> claim : claims.values()) {
+            if (claim.owner()) continue;
+            try {
+                final long remaining = Math.max(0, deadline - System.nanoTime());
+                final Map<String, ComplianceResult> shared = claim.future().get(remaining, TimeUnit.NANOSECONDS);
+                shared.forEach((id, r) -> {
+                    if (results.putIfAbsent(id, r) == null) listener.onResult(r);
+                });
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final Exception e) {
+                log.debug("Coalesced judge item unavailable: {}", e.getMessage());
+            }
+        }
+
+        if (owned.size() < byKey.size()) {
+            listener.onCoalesced(byKey.size() - owned.size());
+            log.debug("Coalesced {}/{} judge items with in-flight requests",
+                    byKey.size() - owned.size(), byKey.size());
+        }
+
+        return results;
+    }
+
+    /**
+     * Issued vs coalesced judge items since startup.
+     */
+    public SingleFlight.Stats coalescingStats() {
+        return batchFlights.stats();
+    }
+
+    /**
+     * Paragraph ids of the candidates the judge is shown for one item, best first.
+     */
+    public List<Long> judgedParagraphIds(final ClauseBatchInput input) {
+        return JudgePayload.judgedCandidates(input, MAX_CANDIDATES).stream()
+                .map(MoeParagraphCandidate::paragraphId)
+                .toList();
+    }
+
+    /**
+     * Verdict agreement of shared-table batches re-judged with the inline payload.
+     */
+    public VerdictAgreement.Stats payloadAgreement() {
+        return payloadAgreement.stats();
+    }
+
+    /**
+     * Items are identical when clause ids, texts and candidate paragraphs all match.
+     */
+    private String coalescingKey(final ClauseBatchInput in) {
         try {
-            return CompletableFuture.supplyAsync(
-                    () -> performBatchJudge(inputs),
-                    executor
-            ).orTimeout(BATCH_TIMEOUT.getSeconds(), TimeUnit.SECONDS).get();
+            return DigestUtils.sha256Hex(objectMapper.writeValueAsString(in));
+        } catch (final Exception e) {
+            // Unserializable input: never coalesce it
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    /**
+     * Send a batch, streaming results to the listener as they are parsed.
+     * <p>
+     * On timeout or a truncated response, every result that was completely
+     * received is still returned. When hedging is enabled and enough latency
+     * samples exist, a duplicate request is sent once the primary exceeds the
+     * configured latency percentile; the first complete answer wins.
+     * While the circuit breaker is open, returns an empty map immediately.
+     * <p>
+     * If the provider reports the cached regulation context as missing (it expired
+     * or was evicted before its refresh), the context is recreated and the batch is
+     * retried once; without a replacement the retry sends the texts inline.
+     * <p>
+     * The breaker sees exactly one outcome per batch: a complete or partial response
+     * counts as success, since the provider answered and partial results are kept; no
+     * result at all counts as failure; an interrupted caller only releases the trial.
+     */
+    private Map<String, ComplianceResult> sendBatch(final List<ClauseBatchInput> inputs,
+                                                    final RegulationContext context,
+                                                    final JudgeListener listener) {
+        if (!circuitBreaker.allowRequest()) {
+            log.debug("Judge circuit open, skipping batch of {}", inputs.size());
+            return Collections.emptyMap();
+        }
+
+        final Map<String, ComplianceResult> collected = new ConcurrentHashMap<>();
+        final long deadline = System.nanoTime() + BATCH_TIMEOUT.toNanos();
+        final long start = System.currentTimeMillis();
 
+        boolean complete = false;
+        boolean interrupted = false;
+        try {
+            // Built once per context: a hedge resends the same payload and must not be counted twice
+            RegulationContext ctx = context;
+            JudgePayload payload = payload(inputs, ctx);
+            final AtomicBoolean contextMissing = new AtomicBoolean();
+            complete = attempt(inputs, payload, ctx, collected, listener, contextMissing, deadline);
+
+            if (!complete && collected.isEmpty() && contextMissing.get()) {
+                ctx = contextCache.recreate(ctx);
+                log.warn("Cached regulation context {} missing, retrying batch of {} {}", context.cacheName(),
+                        inputs.size(), ctx != null ? "with " + ctx.cacheName() : "with inline texts");
+                payload = payload(inputs, ctx);
+                contextMissing.set(false);
+                complete = attempt(inputs, payload, ctx, collected, listener, contextMissing, deadline);
+            }
+            listener.onPayload(payload);
+            if (complete) sampleInlineVerdicts(inputs, payload, ctx, collected);
+
+            if (!complete) {
+                log.warn("Batch judge incomplete for {} clauses, keeping {} streamed results",
+                        inputs.size(), collected.size());
+            }
+
+        } catch (final InterruptedException e) {
+            interrupted = true;
+            Thread.currentThread().interrupt();
         } catch (final Exception e) {
             log.error("Batch judge failed for {}", inputs.size(), e);
-            return Collections.emptyMap();
+        } finally {
+            if (complete) {
+                batchLatency.record(System.currentTimeMillis() - start);
+                circuitBreaker.recordSuccess();
+            } else if (interrupted) {
+                circuitBreaker.recordCancelled();
+            } else if (!collected.isEmpty()) {
+                circuitBreaker.recordSuccess();
+            } else {
+                circuitBreaker.recordFailure();
+            }
         }
+
+        return new HashMap<>(collected);
+    }
+
+    /**
+     * Sampled A/B check of the shared paragraph table: resend a complete shared batch
+     * with inline texts in the background and compare the verdicts. The duplicate call
+     * is not counted in the analysis' usage and does not affect the circuit breaker.
+     */
+    private void sampleInlineVerdicts(final List<ClauseBatchInput> inputs,
+                                      final JudgePayload payload,
+                                      final RegulationContext context,
+                                      final Map<String, ComplianceResult> sharedResults) {
+        if (!payload.shared() || ThreadLocalRandom.current().nextDouble() >= payloadAbSampleRate) return;
+
+        final Map<String, ComplianceResult> shared = Map.copyOf(sharedResults);
+        executor.submit(() -> {
+            final Map<String, ComplianceResult> inline = new ConcurrentHashMap<>();
+            if (!performBatchJudge(inputs, payload.inline(), context, inline, JudgeListener.NONE,
+                    new AtomicBoolean(), false)) {
+                return;
+            }
+            final VerdictAgreement.Stats batch = payloadAgreement.record(shared, inline);
+            final VerdictAgreement.Stats total = payloadAgreement.stats();
+            log.info("Payload A/B: {}/{} verdicts agree in this batch; {}/{} over {} sampled batches",
+                    batch.sameStatus(), batch.compared(), total.sameStatus(), total.compared(), total.batches());
+        });
+    }
+
+    private JudgePayload payload(final List<ClauseBatchInput> inputs, final RegulationContext context)
+            throws IOException {
+        return JudgePayload.build(
+                objectMapper, inputs, MAX_CANDIDATES, context != null ? context.clauseIds() : Set.of(), this::limitText);
     }
 
-    private Map<String, ComplianceResult> performBatchJudge(final List<ClauseBatchInput> inputs) {
+    /**
+     * Primary request plus an optional hedge; both are cancelled on return.
+     *
+     * @return true if one of them received the full response array
+     */
+    private boolean attempt(final List<ClauseBatchInput> inputs,
+                            final JudgePayload payload,
+                            final RegulationContext context,
+                            final Map<String, ComplianceResult> collected,
+                            final JudgeListener listener,
+                            final AtomicBoolean contextMissing,
+                            final long deadline) throws InterruptedException, ExecutionException {
+
+        final CompletionService<Boolean> attempts = new ExecutorCompletionService<>(executor);
+        final List<Future<Boolean>> running = new ArrayList<>();
+        boolean complete = false;
+
         try {
-            final List<Map<String, Object>> reqs = new ArrayList<>();
-
-            for (final ClauseBatchInput in : inputs) {
-                final List<Map<String, Object>> moe = in.candidates().stream()
-                        .limit(MAX_CANDIDATES)
-                        .map(c -> Map.<String, Object>of(
-                                "paragraph_id", c.paragraphId(),
-                                "text", limitText(c.text()),
-                                "score", c.similarityScore()
-                        )).toList();
-
-                reqs.add(Map.of(
-                        "id", in.requirementId(),
-                        "text", limitText(in.requirementText()),
-                        "moe", moe
-                ));
+            running.add(attempts.submit(() ->
+                    performBatchJudge(inputs, payload, context, collected, listener, contextMissing, false)));
+
+            final Duration hedgeDelay = hedgeDelay();
+            Future<Boolean> done = hedgeDelay != null
+                    ? attempts.poll(hedgeDelay.toMillis(), TimeUnit.MILLISECONDS)
+                    : null;
+
+            if (done == null && hedgeDelay != null) {
+                log.debug("Hedging batch of {} after {}ms", inputs.size(), hedgeDelay.toMillis());
+                running.add(attempts.submit(() ->
+                        performBatchJudge(inputs, payload, context, collected, listener, contextMissing, true)));
             }
 
-            final String jsonPayload = objectMapper.writeValueAsString(Map.of("items", reqs));
+            int pending = running.size();
+            while (!complete && pending > 0) {
+                if (done == null) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    done = attempts.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (done == null) break;
+                }
+                pending--;
+                complete = Boolean.TRUE.equals(done.get());
+                done = null;
+            }
+            return complete;
 
+        } finally {
+            running.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private Duration hedgeDelay() {
+        if (!hedgingEnabled || batchLatency.sampleCount() < hedgeMinSamples) return null;
+        final Duration p = batchLatency.percentile(hedgePercentile);
+        return p.compareTo(BATCH_TIMEOUT) < 0 ? p : null;
+    }
+
+    /**
+     * @return true if the full response array was received
+     */
+    private boolean performBatchJudge(final List<ClauseBatchInput> inputs,
+                                      final JudgePayload payload,
+                                      final RegulationContext context,
+                                      final Map<String, ComplianceResult> collected,
+                                      final JudgeListener listener,
+                                      final AtomicBoolean contextMissing,
+                                      final boolean hedge) {
+        final List<String> clauseIds = inputs.stream()
+                .flatMap(in -> in.allIds().stream())
+                .toList();
+        final long start = System.currentTimeMillis();
+        LlmUsage usage = LlmUsage.NONE;
+        boolean complete = false;
+
+        try {
             final String prompt = """
                     EASA Part-145 compliance evaluation.
 
                     INPUT:
                     %s
 
+                    %s
                     For EACH item:
                     - Output ONE ComplianceResult object.
                     - requirement_id MUST equal item.id
+                    - If item.related is present, ALSO output ONE ComplianceResult
+                      per related entry (requirement_id = related.id), judged
+                      against the same item.moe paragraphs.
 
                     CRITICAL:
                     - Output MUST be a JSON ARRAY: [ {...}, ... ]
                     - evidence MUST be array of objects
                     - DO NOT return {"items": ...}
                     - DO NOT echo input
-                    """.formatted(jsonPayload);
-
-            final GenerateContentConfig cfg = GenerateContentConfig.builder()
-                    .responseMimeType("application/json")
-                    .responseSchema(batchSchema)   // ARRAY SCHEMA
-                    .candidateCount(1)
+                    """.formatted(payload.json(), (payload.shared() ? """
+                    MOE paragraph texts are listed once in "paragraphs".
+                    Each item.moe entry references one by paragraph_id.
+                    evidence.moe_paragraph_id MUST be a referenced paragraph_id.
+                    """ : "") + (context != null ? """
+                    Items without "text" refer to regulation_clauses in the cached context by id.
+                    """ : ""));
+
+            final LlmRequest request = LlmRequest.builder()
+                    .prompt(prompt)
+                    .jsonSchema(batchSchema)   // ARRAY SCHEMA
                     .temperature(0.0f)
                     .maxOutputTokens(16000)
+                    .cachedContext(context != null ? context.cacheName() : null)
                     .build();
 
-            final long start = System.currentTimeMillis();
-
-            final GenerateContentResponse resp = gemini.models.generateContent(
-                    "gemini-2.5-flash",
-                    Content.fromParts(Part.fromText(prompt)),
-                    cfg
-            );
-
-            final long elapsed = System.currentTimeMillis() - start;
-            log.debug("Batch LLM {}ms for {} clauses", elapsed, inputs.size());
-
-            final String cleaned = cleanJson(resp);
-            if (!cleaned.startsWith("[")) {
-                log.error("Batch returned non-array: {}", cleaned);
-                return Collections.emptyMap();
-            }
+            final Set<String> validIds = Set.copyOf(clauseIds);
 
-            final List<ComplianceResult> results =
-                    objectMapper.readValue(cleaned, new TypeReference<>() {});
-
-            final Map<String, ComplianceResult> out = new HashMap<>();
-            final Set<String> validIds = inputs.stream()
-                    .map(ClauseBatchInput::requirementId)
-                    .collect(Collectors.toSet());
-
-            for (final ComplianceResult r : results) {
-                if (r.requirement_id() != null && validIds.contains(r.requirement_id())) {
-                    out.put(r.requirement_id(), r);
+            try (ComplianceResultStreamParser parser = new ComplianceResultStreamParser(objectMapper, r -> {
+                if (r.requirement_id() != null && validIds.contains(r.requirement_id())
+                        && collected.putIfAbsent(r.requirement_id(), r) == null) {
+                    listener.onResult(r);
                 }
+            })) {
+                usage = provider.generateStream(request, chunk -> {
+                    try {
+                        parser.feed(chunk);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                final long elapsed = System.currentTimeMillis() - start;
+                log.debug("Batch LLM {}ms for {} clauses ({} streamed, {} prompt / {} output tokens)",
+                        elapsed, inputs.size(), parser.emittedCount(),
+                        usage.promptTokens(), usage.outputTokens());
+
+                if (!parser.isComplete()) {
+                    log.warn("Batch response truncated: kept {}/{} results",
+                            collected.size(), inputs.size());
+                }
+                complete = parser.isComplete();
+                return complete;
             }
 
-            return out;
-
         } catch (final Exception e) {
-            log.error("performBatchJudge failed", e);
-            return Collections.emptyMap();
+            if (context != null && isMissingContext(e)) {
+                log.debug("Cached regulation context {} not found by the provider", context.cacheName());
+                contextMissing.set(true);
+                return false;
+            }
+            log.error("performBatchJudge failed, kept {} streamed results", collected.size(), e);
+            return false;
+        } finally {
+            listener.onCall(new LlmCall(provider.model(), clauseIds, usage,
+                    System.currentTimeMillis() - start, hedge, context != null, complete));
+        }
+    }
+
+    private boolean isMissingContext(final Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (provider.isMissingCachedContext(t)) return true;
         }
+        return false;
     }
 
     // ============================================================================
@@ -290,20 +671,6 @@ public class LlmJudge {
                 t.substring(0, MAX_TEXT_LENGTH) + "..." : t;
     }
 
-    private String cleanJson(final GenerateContentResponse response) {
-        final String raw = response.text();
-        if (raw != null && !raw.isBlank()) return extractJson(raw);
-
-        final StringBuilder sb = new StringBuilder();
-        for (final Candidate c : response.candidates().orElse(List.of())) {
-            if (c.content().isEmpty()) continue;
-            for (final Part p : c.content().get().parts().orElse(List.of())) {
-                p.text().ifPresent(sb::append);
-            }
-        }
-        return extractJson(sb.toString());
-    }
-
     private String extractJson(final String raw) {
         if (raw == null) return "";
         final String cleaned = raw.replace("```json", "")
@@ -322,9 +689,31 @@ public class LlmJudge {
         return "";
     }
 
+    /**
+     * One judge item. {@code related} holds AMC/GM clauses grouped under the
+     * requirement; they share its candidates and each gets its own result.
+     */
     public record ClauseBatchInput(
             String requirementId,
             String requirementText,
-            List<MoeParagraphCandidate> candidates
-    ) {}
+            List<MoeParagraphCandidate> candidates,
+            List<RelatedClause> related
+    ) {
+        public ClauseBatchInput(final String requirementId,
+                                final String requirementText,
+                                final List<MoeParagraphCandidate> candidates) {
+            this(requirementId, requirementText, candidates, List.of());
+        }
+
+        public List<String> allIds() {
+            final List<String> ids = new ArrayList<>();
+            ids.add(requirementId);
+            related.forEach(r -> ids.add(r.id()));
+            return ids;
+        }
+    }
+
+    public record RelatedClause(String id, String type, String text) {}
+
+    public record TokenEstimate(int promptTokens, int outputTokens) {}
 }
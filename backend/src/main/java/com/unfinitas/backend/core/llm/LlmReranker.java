@@ -2,11 +2,10 @@ package com.unfinitas.backend.core.llm;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.genai.Client;
-import com.google.genai.types.Content;
-import com.google.genai.types.Part;
 import com.unfinitas.backend.core.analysis.dto.MoeParagraphCandidate;
 import com.unfinitas.backend.core.llm.dto.RerankedParagraph;
+import com.unfinitas.backend.core.llm.provider.LlmProvider;
+import com.unfinitas.backend.core.llm.provider.LlmRequest;
 import com.unfinitas.backend.core.regulation.model.RegulationClause;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -19,8 +18,7 @@ import java.util.stream.Collectors;
 public class LlmReranker {
 
     private static final double SIMILARITY_THRESHOLD = 0.6;
-    private static final String MODEL = "gemini-2.5-flash";
-    private final Client gemini;
+    private final LlmProvider provider;
 
     public List<RerankedParagraph> rerank(
             final RegulationClause clause,
@@ -38,14 +36,8 @@ public class LlmReranker {
 
         final String prompt = buildPrompt(clause, filtered);
 
-        final var response = gemini.models.generateContent(
-                MODEL,
-                Content.fromParts(Part.fromText(prompt)),
-                null
-        );
-
         try {
-            String raw = response.text();
+            String raw = provider.generate(LlmRequest.text(prompt)).text();
             if (raw == null) raw = "[]";
 
             final String cleaned = raw
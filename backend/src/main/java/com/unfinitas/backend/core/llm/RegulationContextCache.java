@@ -0,0 +1,224 @@
+package com.unfinitas.backend.core.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unfinitas.backend.core.llm.provider.LlmProvider;
+import com.unfinitas.backend.core.llm.provider.LlmProvider.CachedContext;
+import com.unfinitas.backend.core.regulation.model.RegulationClause;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Provider-side cached contexts holding regulation clause texts.
+ * <p>
+ * Clause texts are identical across analyses, so they are uploaded once per
+ * (regulation version, clause set) and referenced by name from each
+ * generate call. Callers pass the regulation's full clause list, not the clauses
+ * they judge, so partial and incremental runs share the full run's context.
+ * Entries are recreated shortly before they expire, or at once when a call reports
+ * that the provider no longer knows them; slots whose context has expired unused
+ * are dropped.
+ * Providers without context caching always get a null context.
+ * <p>
+ * Remote create/delete calls run under a per-key lock outside the map, so one slow
+ * upload only holds up callers that need the same context.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RegulationContextCache {
+
+    private static final Duration REFRESH_MARGIN = Duration.ofMinutes(2);
+
+    private final LlmProvider provider;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    @Value("${llm.judge.context-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${llm.judge.context-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    /**
+     * @param clauses all clauses of the regulation that analyses may judge
+     * @return a context referencing the cached clause texts, or null when caching is
+     *         disabled or the cache could not be created (callers send texts inline)
+     */
+    public RegulationContext contextFor(final List<RegulationClause> clauses) {
+        if (!enabled || clauses == null || clauses.isEmpty()) return null;
+
+        final String key = cacheKey(clauses);
+        evictExpired();
+
+        try {
+            return slots.computeIfAbsent(key, Slot::new).current(() -> content(clauses), null);
+        } catch (final Exception e) {
+            log.warn("Regulation context cache unavailable for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replace a context the provider reported as missing (expired or evicted early).
+     * Returns the context another caller already put in its place, if any.
+     *
+     * @return the replacement, or null if it cannot be recreated (callers send texts inline)
+     */
+    public RegulationContext recreate(final RegulationContext stale) {
+        if (stale == null) return null;
+
+        final Slot slot = slots.get(stale.key());
+        if (slot == null) return null;
+
+        try {
+            return slot.current(null, stale.cacheName());
+        } catch (final Exception e) {
+            log.warn("Regulation context cache {} could not be recreated: {}", stale.key(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Drop slots whose context has expired and that nobody is replacing.
+     */
+    private void evictExpired() {
+        final Instant now = Instant.now();
+        slots.values().removeIf(slot -> slot.expiredBefore(now));
+    }
+
+    private Content content(final List<RegulationClause> clauses) {
+        final List<Map<String, String>> rows = new ArrayList<>();
+        final Set<String> ids = new HashSet<>();
+
+        for (final RegulationClause c : clauses) {
+            if (c.getClauseId() == null || !ids.add(c.getClauseId())) continue;
+            rows.add(Map.of(
+                    "id", c.getClauseId(),
+                    "type", Objects.toString(c.getClauseType(), ""),
+                    "text", Objects.toString(c.getContent(), "")
+            ));
+        }
+
+        try {
+            return new Content(objectMapper.writeValueAsString(Map.of("regulation_clauses", rows)), Set.copyOf(ids));
+        } catch (final Exception e) {
+            throw new IllegalStateException("Cannot serialize regulation clauses", e);
+        }
+    }
+
+    private Entry create(final String key, final Content content) {
+        final CachedContext cached = provider.createCachedContext(
+                "regulation-" + key,
+                """
+                You are an EASA Part-145 compliance evaluator.
+                The regulation_clauses below are the authoritative requirement texts.
+                Inputs reference them by id; look up the text here.
+                """,
+                content.body(),
+                Duration.ofMinutes(ttlMinutes)
+        ).orElseThrow(() -> new IllegalStateException("Provider " + provider.model() + " has no context caching"));
+
+        log.info("Created regulation context cache {} ({} clauses, expires {})",
+                cached.name(), content.clauseIds().size(), cached.expiresAt());
+        return new Entry(cached.name(), content, cached.expiresAt());
+    }
+
+    private void delete(final String name) {
+        try {
+            provider.deleteCachedContext(name);
+        } catch (final Exception e) {
+            log.debug("Could not delete expired cache {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static String cacheKey(final List<RegulationClause> clauses) {
+        final String version = Objects.toString(clauses.getFirst().getRegulationVersion(), "unknown");
+        final String ids = clauses.stream()
+                .map(RegulationClause::getClauseId)
+                .filter(Objects::nonNull)
+                .sorted()
+                .collect(Collectors.joining("\n"));
+        return version + "-" + DigestUtils.sha256Hex(ids);
+    }
+
+    /**
+     * The cached context of one key; replaced under the slot's lock.
+     */
+    private final class Slot {
+        private final String key;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Entry entry;
+
+        Slot(final String key) {
+            this.key = key;
+        }
+
+        /**
+         * @param content    clause texts for a first upload; null to reuse the previous entry's
+         * @param staleName  context known to be gone; replaced even if not yet due
+         */
+        RegulationContext current(final Supplier<Content> content, final String staleName) {
+            Entry e = entry;
+            if (usable(e, staleName)) return e.context(key);
+
+            lock.lock();
+            try {
+                e = entry;
+                if (usable(e, staleName)) return e.context(key);
+                if (e == null && content == null) return null;
+
+                final Entry fresh = create(key, e != null ? e.content : content.get());
+                entry = fresh;
+                if (e != null) delete(e.name);
+                return fresh.context(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean expiredBefore(final Instant now) {
+            final Entry e = entry;
+            return e != null && !lock.isLocked() && e.expiresAt.isBefore(now);
+        }
+
+        private static boolean usable(final Entry e, final String staleName) {
+            return e != null
+                    && !e.name.equals(staleName)
+                    && Instant.now().isBefore(e.expiresAt.minus(REFRESH_MARGIN));
+        }
+    }
+
+    private record Content(String body, Set<String> clauseIds) {}
+
+    private record Entry(String name, Content content, Instant expiresAt) {
+
+        RegulationContext context(final String key) {
+            return new RegulationContext(name, content.clauseIds(), key);
+        }
+    }
+
+    /**
+     * Handle to a cached regulation context.
+     *
+     * @param cacheName provider cached context resource name
+     * @param clauseIds clause ids whose text is in the cache
+     * @param key       cache key of the clause set, for {@link #recreate}
+     */
+    public record RegulationContext(String cacheName, Set<String> clauseIds, String key) {
+
+        public boolean contains(final String clauseId) {
+            return clauseIds.contains(clauseId);
+        }
+    }
+}
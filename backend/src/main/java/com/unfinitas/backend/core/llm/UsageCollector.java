@@ -0,0 +1,120 @@
+package com.unfinitas.backend.core.llm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Per-analysis accumulator of judge calls, tokens and latency.
+ * <p>
+ * Tokens of a batch call are attributed evenly to the clauses it was judging so
+ * expensive clauses can be found afterwards.
+ */
+public class UsageCollector implements JudgeListener {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder incomplete = new LongAdder();
+    private final LongAdder contextCachedCalls = new LongAdder();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+    private final LongAdder cachedTokens = new LongAdder();
+    private final LongAdder latencyMillis = new LongAdder();
+    private final LongAccumulator maxLatencyMillis = new LongAccumulator(Math::max, 0);
+    private final LongAdder coalescedItems = new LongAdder();
+
+    private final LongAdder payloadBatches = new LongAdder();
+    private final LongAdder estimatedSentTokens = new LongAdder();
+    private final LongAdder estimatedSavedTokens = new LongAdder();
+
+    private final Map<String, LongAdder> tokensByClause = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPayload(final JudgePayload payload) {
+        payloadBatches.increment();
+        estimatedSentTokens.add(payload.sharedTokens());
+        estimatedSavedTokens.add(payload.tokensSaved());
+    }
+
+    @Override
+    public void onCall(final LlmCall call) {
+        calls.increment();
+        if (call.hedge()) hedges.increment();
+        if (!call.complete()) incomplete.increment();
+        if (call.contextCached()) contextCachedCalls.increment();
+
+        final int prompt = call.usage().promptTokens();
+        final int output = call.usage().outputTokens();
+        promptTokens.add(prompt);
+        outputTokens.add(output);
+        cachedTokens.add(call.usage().cachedTokens());
+        latencyMillis.add(call.latencyMillis());
+        maxLatencyMillis.accumulate(call.latencyMillis());
+
+        if (!call.clauseIds().isEmpty()) {
+            final long share = (prompt + output) / call.clauseIds().size();
+            for (final String id : call.clauseIds()) {
+                tokensByClause.computeIfAbsent(id, k -> new LongAdder()).add(share);
+            }
+        }
+    }
+
+    @Override
+    public void onCoalesced(final int items) {
+        coalescedItems.add(items);
+    }
+
+    /**
+     * @return tokens attributed to the clause so far, or null if it took part in no call
+     */
+    public Long tokensFor(final String clauseId) {
+        final LongAdder tokens = tokensByClause.get(clauseId);
+        return tokens != null ? tokens.sum() : null;
+    }
+
+    public Summary summary() {
+        return new Summary(
+                calls.sum(),
+                hedges.sum(),
+                incomplete.sum(),
+                contextCachedCalls.sum(),
+                promptTokens.sum(),
+                outputTokens.sum(),
+                cachedTokens.sum(),
+                latencyMillis.sum(),
+                maxLatencyMillis.get(),
+                coalescedItems.sum(),
+                payloadBatches.sum(),
+                estimatedSentTokens.sum(),
+                estimatedSavedTokens.sum(),
+                tokensByClause.entrySet().stream()
+                        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue().sum()))
+        );
+    }
+
+    /**
+     * @param hedges          duplicate requests sent because the primary was slow
+     * @param incomplete      calls that failed, timed out or returned a truncated response
+     * @param tokensByClause  prompt + output tokens attributed to each clause id
+     */
+    public record Summary(
+            long calls,
+            long hedges,
+            long incomplete,
+            long contextCachedCalls,
+            long promptTokens,
+            long outputTokens,
+            long cachedTokens,
+            long latencyMillis,
+            long maxLatencyMillis,
+            long coalescedItems,
+            long payloadBatches,
+            long estimatedSentTokens,
+            long estimatedSavedTokens,
+            Map<String, Long> tokensByClause
+    ) {
+        public static final Summary EMPTY = new UsageCollector().summary();
+    }
+}
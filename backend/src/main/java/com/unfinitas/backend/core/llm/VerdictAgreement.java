@@ -0,0 +1,58 @@
+package com.unfinitas.backend.core.llm;
+
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agreement between verdicts for the same clauses judged from the shared paragraph
+ * table and from the inline payload. Only clauses present in both result sets count.
+ */
+public class VerdictAgreement {
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder compared = new LongAdder();
+    private final LongAdder sameStatus = new LongAdder();
+    private final LongAdder sameFindingLevel = new LongAdder();
+
+    /**
+     * @return the batch's own counts
+     */
+    public Stats record(final Map<String, ComplianceResult> shared, final Map<String, ComplianceResult> inline) {
+        int n = 0;
+        int status = 0;
+        int level = 0;
+        for (final Map.Entry<String, ComplianceResult> e : shared.entrySet()) {
+            final ComplianceResult other = inline.get(e.getKey());
+            if (other == null) continue;
+            n++;
+            if (Objects.equals(e.getValue().compliance_status(), other.compliance_status())) status++;
+            if (Objects.equals(e.getValue().finding_level(), other.finding_level())) level++;
+        }
+
+        batches.increment();
+        compared.add(n);
+        sameStatus.add(status);
+        sameFindingLevel.add(level);
+        return new Stats(1, n, status, level);
+    }
+
+    public Stats stats() {
+        return new Stats(batches.sum(), compared.sum(), sameStatus.sum(), sameFindingLevel.sum());
+    }
+
+    /**
+     * @param compared clauses with a verdict from both payload forms
+     */
+    public record Stats(long batches, long compared, long sameStatus, long sameFindingLevel) {
+
+        /**
+         * @return share of compared clauses with the same compliance status; 1 when none were compared
+         */
+        public double statusAgreement() {
+            return compared > 0 ? (double) sameStatus / compared : 1.0;
+        }
+    }
+}
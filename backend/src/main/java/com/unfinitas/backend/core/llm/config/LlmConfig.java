@@ -0,0 +1,40 @@
+package com.unfinitas.backend.core.llm.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.genai.Client;
+import com.unfinitas.backend.core.llm.provider.GeminiLlmProvider;
+import com.unfinitas.backend.core.llm.provider.LlmProvider;
+import com.unfinitas.backend.core.llm.provider.OpenAiCompatibleLlmProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LlmConfig {
+
+    @Bean
+    public LlmProvider llmProvider(
+            @Value("${llm.provider:gemini}") final String provider,
+            @Value("${llm.gemini.model:gemini-2.5-flash}") final String geminiModel,
+            @Value("${llm.openai-compatible.base-url:http://localhost:8000/v1}") final String baseUrl,
+            @Value("${llm.openai-compatible.api-key:}") final String apiKey,
+            @Value("${llm.openai-compatible.model:}") final String localModel,
+            final ObjectProvider<Client> gemini,
+            final ObjectMapper objectMapper
+    ) {
+
+        return switch (provider.toLowerCase()) {
+            // Resolved only here, so other providers run without a Gemini client configured
+            case "gemini" -> new GeminiLlmProvider(gemini.getObject(), geminiModel);
+            case "openai-compatible" -> {
+                if (localModel.isBlank()) {
+                    throw new IllegalArgumentException(
+                            "llm.openai-compatible.model must be set when llm.provider is openai-compatible");
+                }
+                yield new OpenAiCompatibleLlmProvider(objectMapper, baseUrl, apiKey, localModel);
+            }
+            default -> throw new IllegalArgumentException("Unknown LLM provider: " + provider);
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.unfinitas.backend.core.llm.provider;
+
+import com.google.genai.Client;
+import com.google.genai.ResponseStream;
+import com.google.genai.errors.ApiException;
+import com.google.genai.types.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+@Slf4j
+public class GeminiLlmProvider implements LlmProvider {
+
+    private final Client client;
+    private final String model;
+    private final Map<String, Schema> schemas = new ConcurrentHashMap<>();
+
+    public GeminiLlmProvider(final Client client, final String model) {
+        this.client = client;
+        this.model = model;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public LlmResponse generate(final LlmRequest request) {
+        final GenerateContentResponse resp = client.models.generateContent(
+                model,
+                Content.fromParts(Part.fromText(request.prompt())),
+                config(request)
+        );
+
+        final String raw = resp.text();
+        return new LlmResponse(
+                raw != null && !raw.isBlank() ? raw : collectText(resp),
+                usage(resp).orElse(LlmUsage.NONE)
+        );
+    }
+
+    @Override
+    public LlmUsage generateStream(final LlmRequest request, final Consumer<String> onChunk) {
+        LlmUsage usage = LlmUsage.NONE;
+
+        try (ResponseStream<GenerateContentResponse> stream = client.models.generateContentStream(
+                model,
+                Content.fromParts(Part.fromText(request.prompt())),
+                config(request)
+        )) {
+            for (final GenerateContentResponse chunk : stream) {
+                if (Thread.currentThread().isInterrupted()) break;
+                onChunk.accept(collectText(chunk));
+                // Counts are cumulative; the last chunk carries the totals
+                usage = usage(chunk).orElse(usage);
+            }
+        }
+
+        return usage;
+    }
+
+    @Override
+    public Optional<CachedContext> createCachedContext(final String displayName,
+                                                       final String systemInstruction,
+                                                       final String content,
+                                                       final Duration ttl) {
+        final CreateCachedContentConfig cfg = CreateCachedContentConfig.builder()
+                .displayName(displayName)
+                .systemInstruction(Content.fromParts(Part.fromText(systemInstruction)))
+                .contents(List.of(Content.fromParts(Part.fromText(content))))
+                .ttl(ttl)
+                .build();
+
+        final CachedContent cached = client.caches.create(model, cfg);
+        return cached.name().map(name -> new CachedContext(
+                name,
+                cached.expireTime().orElse(Instant.now().plus(ttl))
+        ));
+    }
+
+    @Override
+    public void deleteCachedContext(final String name) {
+        client.caches.delete(name, null);
+    }
+
+    /**
+     * Gemini answers 403 or 404 "CachedContent not found" for an expired or deleted cache.
+     */
+    @Override
+    public boolean isMissingCachedContext(final Throwable error) {
+        return error instanceof ApiException api
+                && (api.code() == 403 || api.code() == 404)
+                && Objects.toString(api.getMessage(), "").toLowerCase(Locale.ROOT).contains("cachedcontent");
+    }
+
+    private GenerateContentConfig config(final LlmRequest request) {
+        final GenerateContentConfig.Builder cfg = GenerateContentConfig.builder()
+                .candidateCount(1);
+
+        if (request.jsonSchema() != null) {
+            cfg.responseMimeType("application/json")
+                    .responseSchema(schemas.computeIfAbsent(request.jsonSchema(), Schema::fromJson));
+        }
+        if (request.temperature() != null) cfg.temperature(request.temperature());
+        if (request.maxOutputTokens() != null) cfg.maxOutputTokens(request.maxOutputTokens());
+        if (request.cachedContext() != null) cfg.cachedContent(request.cachedContext());
+
+        return cfg.build();
+    }
+
+    private Optional<LlmUsage> usage(final GenerateContentResponse response) {
+        return response.usageMetadata().map(u -> new LlmUsage(
+                u.promptTokenCount().orElse(0),
+                u.candidatesTokenCount().orElse(0) + u.thoughtsTokenCount().orElse(0),
+                u.cachedContentTokenCount().orElse(0)
+        ));
+    }
+
+    private String collectText(final GenerateContentResponse response) {
+        final StringBuilder sb = new StringBuilder();
+        for (final Candidate c : response.candidates().orElse(List.of())) {
+            if (c.content().isEmpty()) continue;
+            for (final Part p : c.content().get().parts().orElse(List.of())) {
+                p.text().ifPresent(sb::append);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.unfinitas.backend.core.llm.provider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Text-generation backend used by the judge and reranker.
+ * <p>
+ * Implementations: {@link GeminiLlmProvider} (Google GenAI) and
+ * {@link OpenAiCompatibleLlmProvider} (any /v1/chat/completions server).
+ */
+public interface LlmProvider {
+
+    String model();
+
+    /**
+     * Blocking call returning the full response text and token usage.
+     */
+    LlmResponse generate(LlmRequest request);
+
+    /**
+     * Streaming call; each text delta is passed to {@code onChunk} as it arrives.
+     * Returns when the response is finished or the calling thread is interrupted.
+     *
+     * @return token usage as reported by the backend (usually on the last chunk)
+     */
+    LlmUsage generateStream(LlmRequest request, Consumer<String> onChunk);
+
+    /**
+     * Create a server-side cached context (system instruction + stable content).
+     *
+     * @return empty if the backend has no context caching
+     */
+    default Optional<CachedContext> createCachedContext(final String displayName,
+                                                        final String systemInstruction,
+                                                        final String content,
+                                                        final Duration ttl) {
+        return Optional.empty();
+    }
+
+    default void deleteCachedContext(final String name) {
+    }
+
+    /**
+     * @return true if the error means a referenced cached context no longer exists
+     *         (expired or deleted), so the call may succeed with a recreated one
+     */
+    default boolean isMissingCachedContext(final Throwable error) {
+        return false;
+    }
+
+    record CachedContext(String name, Instant expiresAt) {}
+}
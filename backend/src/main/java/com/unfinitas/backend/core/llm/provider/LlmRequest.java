@@ -0,0 +1,25 @@
+package com.unfinitas.backend.core.llm.provider;
+
+import lombok.Builder;
+
+/**
+ * Provider-neutral generation request.
+ *
+ * @param prompt          user prompt text
+ * @param jsonSchema      JSON schema for structured output, or null for free text
+ * @param temperature     sampling temperature
+ * @param maxOutputTokens output token cap, or null for the backend default
+ * @param cachedContext   name of a cached context to reference, or null
+ */
+@Builder
+public record LlmRequest(
+        String prompt,
+        String jsonSchema,
+        Float temperature,
+        Integer maxOutputTokens,
+        String cachedContext
+) {
+    public static LlmRequest text(final String prompt) {
+        return LlmRequest.builder().prompt(prompt).build();
+    }
+}
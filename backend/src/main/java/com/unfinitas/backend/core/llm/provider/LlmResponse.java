@@ -0,0 +1,4 @@
+package com.unfinitas.backend.core.llm.provider;
+
+public record LlmResponse(String text, LlmUsage usage) {
+}
@@ -0,0 +1,12 @@
+package com.unfinitas.backend.core.llm.provider;
+
+/**
+ * Token counts reported by the backend for one call. Zero when the backend
+ * does not report usage.
+ *
+ * @param cachedTokens prompt tokens served from a cached context (subset of promptTokens)
+ */
+public record LlmUsage(int promptTokens, int outputTokens, int cachedTokens) {
+
+    public static final LlmUsage NONE = new LlmUsage(0, 0, 0);
+}
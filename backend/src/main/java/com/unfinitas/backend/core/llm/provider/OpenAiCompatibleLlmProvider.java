@@ -0,0 +1,240 @@
+package com.unfinitas.backend.core.llm.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Provider for any server exposing the OpenAI {@code /chat/completions} API
+ * (vLLM, llama.cpp server, Ollama, LM Studio, ...), typically a locally hosted model.
+ * <p>
+ * Structured output is requested via {@code response_format: json_schema}; servers
+ * that ignore it still work because the judge parses the first JSON value it finds.
+ */
+@Slf4j
+public class OpenAiCompatibleLlmProvider implements LlmProvider {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(120);
+
+    private final HttpClient http;
+    private final ObjectMapper objectMapper;
+    private final URI endpoint;
+    private final String apiKey;
+    private final String model;
+
+    public OpenAiCompatibleLlmProvider(final ObjectMapper objectMapper,
+                                       final String baseUrl,
+                                       final String apiKey,
+                                       final String model) {
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build();
+        this.objectMapper = objectMapper;
+        this.endpoint = URI.create(baseUrl.replaceAll("/+$", "") + "/chat/completions");
+        this.apiKey = apiKey;
+        this.model = model;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public LlmResponse generate(final LlmRequest request) {
+        try {
+            final HttpResponse<String> resp = http.send(
+                    httpRequest(request, false),
+                    HttpResponse.BodyHandlers.ofString()
+            );
+            checkStatus(resp.statusCode(), resp.body());
+
+            final JsonNode body = objectMapper.readTree(resp.body());
+            return new LlmResponse(
+                    body.path("choices").path(0).path("message").path("content").asText(""),
+                    usage(body.path("usage"))
+            );
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("LLM request interrupted", e);
+        } catch (final IOException e) {
+            throw new IllegalStateException("LLM request failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lines arrive on the HTTP client's threads and are handed over through a queue, so
+     * an interrupted caller stops waiting at once and cancels the response body, which
+     * closes the connection instead of reading the stream to its end.
+     */
+    @Override
+    public LlmUsage generateStream(final LlmRequest request, final Consumer<String> onChunk) {
+        LlmUsage usage = LlmUsage.NONE;
+        final LineQueue lines = new LineQueue();
+        CompletableFuture<HttpResponse<Void>> response = null;
+        try {
+            response = http.sendAsync(httpRequest(request, true), info -> {
+                lines.status = info.statusCode();
+                return HttpResponse.BodySubscribers.fromLineSubscriber(lines);
+            });
+            response.whenComplete((r, e) -> {
+                if (e != null) lines.onError(e);
+            });
+
+            String line = lines.take();
+            if (lines.status >= 300) {
+                final List<String> error = new ArrayList<>();
+                for (; line != null && error.size() < 20; line = lines.take()) error.add(line);
+                checkStatus(lines.status, String.join("\n", error));
+            }
+
+            for (; line != null; line = lines.take()) {
+                if (!line.startsWith("data:")) continue;
+
+                final String data = line.substring(5).trim();
+                if (data.equals("[DONE]")) break;
+
+                final JsonNode event = objectMapper.readTree(data);
+                final String delta = event.path("choices").path(0).path("delta").path("content").asText("");
+                if (!delta.isEmpty()) onChunk.accept(delta);
+
+                // Final chunk carries usage when stream_options.include_usage is honoured
+                if (event.hasNonNull("usage")) usage = usage(event.path("usage"));
+            }
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            throw new IllegalStateException("LLM stream failed: " + e.getMessage(), e);
+        } finally {
+            lines.cancel();
+            if (response != null) response.cancel(true);
+        }
+
+        return usage;
+    }
+
+    private LlmUsage usage(final JsonNode usage) {
+        if (usage.isMissingNode() || usage.isNull()) return LlmUsage.NONE;
+        return new LlmUsage(
+                usage.path("prompt_tokens").asInt(0),
+                usage.path("completion_tokens").asInt(0),
+                usage.path("prompt_tokens_details").path("cached_tokens").asInt(0)
+        );
+    }
+
+    private HttpRequest httpRequest(final LlmRequest request, final boolean stream) throws IOException {
+        final Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("messages", List.of(Map.of("role", "user", "content", request.prompt())));
+        body.put("stream", stream);
+        if (stream) body.put("stream_options", Map.of("include_usage", true));
+        if (request.temperature() != null) body.put("temperature", request.temperature());
+        if (request.maxOutputTokens() != null) body.put("max_tokens", request.maxOutputTokens());
+        if (request.jsonSchema() != null) {
+            body.put("response_format", Map.of(
+                    "type", "json_schema",
+                    "json_schema", Map.of(
+                            "name", "response",
+                            "schema", objectMapper.readTree(request.jsonSchema())
+                    )
+            ));
+        }
+
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+
+        if (apiKey != null && !apiKey.isBlank()) {
+            builder.header("Authorization", "Bearer " + apiKey);
+        }
+
+        return builder.build();
+    }
+
+    private void checkStatus(final int status, final String body) {
+        if (status >= 300) {
+            throw new IllegalStateException("LLM server returned " + status + ": " + body);
+        }
+    }
+
+    /**
+     * Response lines queued for the calling thread; ends with {@link #END} or a failure.
+     */
+    private static final class LineQueue implements Flow.Subscriber<String> {
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> items = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+        volatile int status;
+
+        /**
+         * @return the next line, or null at the end of the body
+         */
+        String take() throws InterruptedException, IOException {
+            final Object item = items.take();
+            if (item == END) {
+                items.add(END);
+                return null;
+            }
+            if (item instanceof final Throwable t) {
+                items.add(t);
+                final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                throw cause instanceof final IOException io ? io : new IOException(cause.getMessage(), cause);
+            }
+            return (String) item;
+        }
+
+        void cancel() {
+            cancelled = true;
+            final Flow.Subscription s = subscription;
+            if (s != null) s.cancel();
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription s) {
+            subscription = s;
+            if (cancelled) {
+                s.cancel();
+            } else {
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(final String line) {
+            items.add(line);
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            items.add(t);
+        }
+
+        @Override
+        public void onComplete() {
+            items.add(END);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.unfinitas.backend.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls.
+ * <p>
+ * The first caller for a key becomes the owner and performs the call; callers that
+ * arrive while it is in flight await the owner's future instead of issuing a
+ * duplicate. Keys are released as soon as the owner completes, so this is not a cache.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Run {@code call} unless an identical call is already in flight, in which case
+     * wait for and return its result. The key is released however the call ends.
+     *
+     * @param maxWait longest a caller waits for someone else's call
+     */
+    public V execute(final K key, final Supplier<V> call, final Duration maxWait) {
+        final Claim<V> claim = claim(key);
+        if (!claim.owner()) return await(claim, maxWait);
+
+        try {
+            final V value = call.get();
+            complete(key, claim, value);
+            return value;
+        } catch (final Throwable e) {
+            fail(key, claim, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for the owner of a claim.
+     *
+     * @throws IllegalStateException if it does not finish within {@code maxWait}, the wait
+     *                               is interrupted, or it failed with a checked exception
+     *                               or an error; its runtime exceptions are rethrown as is
+     */
+    public V await(final Claim<V> claim, final Duration maxWait) {
+        try {
+            return claim.future().get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            throw new IllegalStateException("In-flight call did not finish within " + maxWait, e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight call", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new IllegalStateException("In-flight call failed", e.getCause());
+        }
+    }
+
+    /**
+     * Claim a key for batch-style callers that issue many keys in one request.
+     * Owners must later call {@link #complete} or {@link #fail} on every path, errors
+     * included; waiters should use {@link #await} with a bound.
+     */
+    public Claim<V> claim(final K key) {
+        final CompletableFuture<V> mine = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+
+        if (existing != null) {
+            coalesced.increment();
+            return new Claim<>(false, existing);
+        }
+
+        issued.increment();
+        return new Claim<>(true, mine);
+    }
+
+    public void complete(final K key, final Claim<V> claim, final V value) {
+        inFlight.remove(key, claim.future());
+        claim.future().complete(value);
+    }
+
+    public void fail(final K key, final Claim<V> claim, final Throwable error) {
+        inFlight.remove(key, claim.future());
+        claim.future().completeExceptionally(error);
+    }
+
+    public Stats stats() {
+        return new Stats(issued.sum(), coalesced.sum(), inFlight.size());
+    }
+
+    public record Claim<V>(boolean owner, CompletableFuture<V> future) {}
+
+    /**
+     * @param issued    calls actually sent to the backend
+     * @param coalesced calls served by awaiting an identical in-flight call
+     * @param inFlight  keys currently in flight
+     */
+    public record Stats(long issued, long coalesced, int inFlight) {}
+}
@@ -0,0 +1,9 @@
+-- Hibernate creates analysis_results_status_check over the AnalysisStatus values when the
+-- table is created, and schema update never widens it. Recreate it so databases created
+-- before the stage statuses (COSINE, LLM_JUDGING, PERSISTING) accept them.
+-- Keep the list in sync with AnalysisStatus. Idempotent; runs on every start.
+
+ALTER TABLE analysis_results DROP CONSTRAINT IF EXISTS analysis_results_status_check;
+
+ALTER TABLE analysis_results ADD CONSTRAINT analysis_results_status_check CHECK (status IN (
+        'PENDING', 'IN_PROGRESS', 'COSINE', 'LLM_JUDGING', 'PERSISTING', 'COMPLETED', 'FAILED'));
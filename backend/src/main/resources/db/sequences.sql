@@ -0,0 +1,16 @@
+-- Result ids moved from IDENTITY columns to pooled sequences (allocation size 50).
+-- Hibernate creates the sequences at 1, so rows written under IDENTITY would collide:
+-- move each sequence past the highest existing id plus one allocation block.
+-- Idempotent; runs after the Hibernate schema update on every start.
+
+SELECT setval('coverage_results_seq', GREATEST(
+        (SELECT last_value FROM coverage_results_seq),
+        (SELECT COALESCE(MAX(id), 0) FROM coverage_results) + 50));
+
+SELECT setval('gap_findings_seq', GREATEST(
+        (SELECT last_value FROM gap_findings_seq),
+        (SELECT COALESCE(MAX(id), 0) FROM gap_findings) + 50));
+
+SELECT setval('auditor_questions_seq', GREATEST(
+        (SELECT last_value FROM auditor_questions_seq),
+        (SELECT COALESCE(MAX(id), 0) FROM auditor_questions) + 50));
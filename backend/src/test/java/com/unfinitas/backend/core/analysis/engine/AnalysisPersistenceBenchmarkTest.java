@@ -0,0 +1,153 @@
+package com.unfinitas.backend.core.analysis.engine;
+
+import com.unfinitas.backend.core.analysis.config.AnalysisConfig;
+import com.unfinitas.backend.core.analysis.dto.ClauseFeatures;
+import com.unfinitas.backend.core.analysis.dto.ClauseMatchResult;
+import com.unfinitas.backend.core.analysis.dto.FinalizedClause;
+import com.unfinitas.backend.core.analysis.dto.ParagraphMatch;
+import com.unfinitas.backend.core.analysis.model.AnalysisResult;
+import com.unfinitas.backend.core.analysis.model.enums.AnalysisType;
+import com.unfinitas.backend.core.ingestion.model.MoeDocument;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+import com.unfinitas.backend.core.regulation.model.Regulation;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Persistence phase of a 1000-clause analysis: JDBC-batched writes against a
+ * flush-per-row baseline. Run with {@code ./gradlew benchmark}.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.sql.init.mode=never"
+})
+@Import({AnalysisResultPersister.class, AnalysisConfig.class})
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AnalysisPersistenceBenchmarkTest {
+
+    private static final int CLAUSES = 1000;
+    private static final int PARAGRAPHS = 20;
+
+    @Autowired
+    private AnalysisResultPersister persister;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void batchedPersistenceOfThousandClauses(final TestReporter reporter) {
+        final MoeDocument moe = new MoeDocument("moe.pdf", "/tmp/moe.pdf", 1024L);
+        entityManager.persist(moe);
+
+        final Regulation regulation = Regulation.builder()
+                .code("Part-145")
+                .version("1")
+                .name("Benchmark regulation")
+                .build();
+        entityManager.persist(regulation);
+
+        final List<Paragraph> paragraphs = new ArrayList<>();
+        for (int i = 0; i < PARAGRAPHS; i++) {
+            final Paragraph p = new Paragraph(moe, i, "Paragraph " + i + " on maintenance procedures.");
+            entityManager.persist(p);
+            paragraphs.add(p);
+        }
+
+        final UUID baselineId = newAnalysis(moe, regulation);
+        final UUID batchedId = newAnalysis(moe, regulation);
+        entityManager.flush();
+        entityManager.clear();
+
+        final List<FinalizedClause> clauses = clauses(paragraphs);
+        final Statistics stats = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        // Baseline: flush after every entity, i.e. one round trip per row
+        ReflectionTestUtils.setField(persister, "batchSize", 1);
+        stats.clear();
+        long start = System.nanoTime();
+        persister.persist(baselineId, clauses);
+        final long baselineMillis = (System.nanoTime() - start) / 1_000_000;
+        final long baselineStatements = stats.getPrepareStatementCount();
+
+        ReflectionTestUtils.setField(persister, "batchSize", 50);
+        stats.clear();
+        start = System.nanoTime();
+        final int written = persister.persist(batchedId, clauses).size();
+        final long batchedMillis = (System.nanoTime() - start) / 1_000_000;
+        final long batchedStatements = stats.getPrepareStatementCount();
+
+        reporter.publishEntry(Map.of(
+                "clauses", String.valueOf(CLAUSES),
+                "rowByRowMillis", String.valueOf(baselineMillis),
+                "rowByRowStatements", String.valueOf(baselineStatements),
+                "batchedMillis", String.valueOf(batchedMillis),
+                "batchedStatements", String.valueOf(batchedStatements)
+        ));
+
+        assertEquals(CLAUSES, written);
+        assertTrue(batchedStatements * 10 < baselineStatements,
+                "batched writes should prepare far fewer statements than row-by-row writes");
+    }
+
+    private UUID newAnalysis(final MoeDocument moe, final Regulation regulation) {
+        final AnalysisResult analysis = AnalysisResult.builder()
+                .moeDocument(moe)
+                .analysisType(AnalysisType.REGULATION_COMPLIANCE)
+                .regulation(regulation)
+                .createdAt(LocalDateTime.now())
+                .build();
+        entityManager.persist(analysis);
+        return analysis.getId();
+    }
+
+    /**
+     * Every other clause carries an LLM verdict, so outcomes are written too.
+     */
+    private static List<FinalizedClause> clauses(final List<Paragraph> paragraphs) {
+        final List<FinalizedClause> clauses = new ArrayList<>(CLAUSES);
+        for (int i = 0; i < CLAUSES; i++) {
+            final String clauseId = "145.A." + i;
+            final List<ParagraphMatch> matches = new ArrayList<>();
+            for (int k = 0; k < 5; k++) {
+                matches.add(new ParagraphMatch(paragraphs.get((i + k) % PARAGRAPHS), 0.8 - k * 0.05, null));
+            }
+
+            final ComplianceResult verdict = i % 2 == 0
+                    ? new ComplianceResult(clauseId, List.of(), "partial", "Benchmark", List.of(), "Level 2", List.of())
+                    : null;
+
+            final ClauseMatchResult match = new ClauseMatchResult(clauseId, "Clause " + i, matches, 0.8,
+                    ClauseMatchResult.MatchQuality.GOOD, "Benchmark evidence", verdict);
+            final List<Long> judged = verdict != null
+                    ? List.of(matches.get(0).paragraph().getId(), matches.get(1).paragraph().getId())
+                    : null;
+            clauses.add(new FinalizedClause(match, new ClauseFeatures(0.8, 0.2, 0.3, "REQUIREMENT"), null, null, null, judged));
+        }
+        return clauses;
+    }
+}
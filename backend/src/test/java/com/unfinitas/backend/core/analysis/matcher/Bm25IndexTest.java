@@ -0,0 +1,148 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    @Test
+    void scoresFollowBm25() {
+        final Bm25Index index = Bm25Index.build(List.of(
+                paragraph(1, "tool tool"),
+                paragraph(2, "store")
+        ));
+
+        final List<Bm25Index.Hit> hits = index.search("tool", 10);
+
+        // n = 2, df = 1, |d| = 2, avgdl = 1.5
+        final double idf = Math.log(1.0 + (2 - 1 + 0.5) / (1 + 0.5));
+        final double expected = idf * 2 * (1.2 + 1) / (2 + 1.2 * (1 - 0.75 + 0.75 * 2 / 1.5));
+        assertEquals(1, hits.size());
+        assertEquals(1L, hits.getFirst().paragraphId());
+        assertEquals(expected, hits.getFirst().score(), 1e-12);
+    }
+
+    @Test
+    void rareTermsAndShortParagraphsRankFirst() {
+        final Bm25Index index = Bm25Index.build(List.of(
+                paragraph(1, "Tool control procedures for the hangar."),
+                paragraph(2, "Tool control procedures for calibration of every tool used by certifying staff."),
+                paragraph(3, "Tool calibration records."),
+                paragraph(4, "Unrelated text about quality audits.")
+        ));
+
+        final List<Bm25Index.Hit> hits = index.search("hangar tool control", 10);
+
+        assertEquals(List.of(1L, 2L, 3L), hits.stream().map(Bm25Index.Hit::paragraphId).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertTrue(hits.get(1).score() > hits.get(2).score());
+        assertEquals(2, index.search("hangar tool control", 2).size());
+        assertTrue(index.search("nothing matches", 10).isEmpty());
+        assertTrue(index.search("tool", 0).isEmpty());
+    }
+
+    @Test
+    void exactReferencesOutrankTheirParts() {
+        final Bm25Index index = Bm25Index.build(List.of(
+                paragraph(1, "See 145.A.35 for certifying staff."),
+                paragraph(2, "Facilities per 145.A.30 and personnel requirements."),
+                paragraph(3, "Refer to point 145.A.25 and A.30 of the annex.")
+        ));
+
+        assertEquals(2L, index.search("145.A.30 personnel", 3).getFirst().paragraphId());
+    }
+
+    @Test
+    void tokenizeKeepsCompoundReferencesWithTheirParts() {
+        assertEquals(List.of("part-145", "part", "145", "145.a.30", "145", "tool"),
+                Bm25Index.tokenize("Part-145 and 145.A.30: the tool."));
+        assertEquals(List.of("end"), Bm25Index.tokenize("end. - /"));
+        assertTrue(Bm25Index.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void decodeRestoresTheSameIndex() {
+        final List<Paragraph> paragraphs = new ArrayList<>();
+        final String[] texts = {
+                "Tool control procedures for the hangar.",
+                "Certifying staff per 145.A.35 hold a valid licence.",
+                "Facilities per 145.A.30: hangar, offices and stores.",
+                "Calibration records of every tool are retained for two years.",
+                "Ünïcödé text is stored as UTF and survives the round trip."
+        };
+        for (int i = 0; i < texts.length; i++) {
+            paragraphs.add(paragraph(1000 + i * 7, texts[i]));
+        }
+        final Bm25Index index = Bm25Index.build(paragraphs);
+
+        final Bm25Index decoded = Bm25Index.decode(index.encode());
+
+        assertEquals(index.docCount(), decoded.docCount());
+        assertEquals(index.termCount(), decoded.termCount());
+        for (final String query : List.of("hangar tool", "145.A.30", "staff licence", "ünïcödé", "records years")) {
+            assertEquals(index.search(query, 5), decoded.search(query, 5), query);
+        }
+    }
+
+    @Test
+    void deltaEncodingHandlesUnorderedAndLargeIds() {
+        final List<Long> ids = List.of(Long.MAX_VALUE - 3, 5L, 1L << 40, 6L);
+        final List<Paragraph> paragraphs = new ArrayList<>();
+        for (final long id : ids) {
+            paragraphs.add(paragraph(id, "common term " + id));
+        }
+
+        final Bm25Index decoded = Bm25Index.decode(Bm25Index.build(paragraphs).encode());
+
+        assertTrue(decoded.covers(ids));
+        assertFalse(decoded.covers(List.of(7L)));
+        assertEquals(ids.size(), decoded.search("common", 10).size());
+        assertEquals(Long.MAX_VALUE - 3, decoded.search(String.valueOf(Long.MAX_VALUE - 3), 1).getFirst().paragraphId());
+    }
+
+    @Test
+    void searchRareSkipsCommonTermsAndDoesNotSplitReferences() {
+        final List<Paragraph> paragraphs = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            paragraphs.add(paragraph(i, "Part-145 procedure " + i + " under 145.A.50"));
+        }
+        paragraphs.add(paragraph(21, "Facilities per 145.A.30 and Part-145."));
+        final Bm25Index index = Bm25Index.build(paragraphs);
+
+        // "part-145" is in every paragraph, "145.a.30" in one; the "145" part is not searched
+        final List<Bm25Index.Hit> hits = index.searchRare(List.of("part-145", "145.a.30"), 5, 0.05);
+
+        assertEquals(List.of(21L), hits.stream().map(Bm25Index.Hit::paragraphId).toList());
+        assertEquals(List.of(), index.searchRare(List.of("145.a.50"), 5, 0.05));
+        assertEquals(20, index.searchRare(List.of("145.a.50"), 50, 1.0).size());
+    }
+
+    @Test
+    void decodeRejectsOtherData() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(0x53534d31);
+            out.writeByte(1);
+        }
+
+        assertThrows(IllegalStateException.class, () -> Bm25Index.decode(bytes.toByteArray()));
+    }
+
+    private static Paragraph paragraph(final long id, final String content) {
+        final Paragraph p = new Paragraph(null, (int) (id % 1000), content);
+        ReflectionTestUtils.setField(p, "id", id);
+        return p;
+    }
+}
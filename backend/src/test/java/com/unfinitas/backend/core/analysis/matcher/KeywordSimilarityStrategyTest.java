@@ -0,0 +1,103 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class KeywordSimilarityStrategyTest {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "a", "an", "and", "or", "but", "in", "on", "at", "to", "for"
+    );
+
+    private static final String[] WORDS = {
+            "the", "a", "an", "and", "or", "for", "to", "of", "Tool", "tools", "control", "CONTROL",
+            "maintenance", "145.A.30", "Part-145", "AMC1", "staff", "x", "ab", "abc", "café", "naïve",
+            "certifying", "records", "2024", "7", "e-mail", "(b)", "shall", "organisation's"
+    };
+
+    private static final String[] SEPARATORS = {" ", "  ", ", ", ". ", "\n", "\t", "; ", "/", " - "};
+
+    @Test
+    void matchesTheRegexTokenizerItReplaced() {
+        final KeywordSimilarityStrategy strategy = new KeywordSimilarityStrategy();
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            final String a = text(random);
+            final String b = text(random);
+            final double expected = oracle(a, b);
+
+            assertEquals(expected, strategy.calculateSimilarity(a, b), 1e-12, a + " | " + b);
+            assertEquals(expected,
+                    strategy.calculateSimilarity(strategy.prepare(a), strategy.prepare(b)), 1e-12, a + " | " + b);
+        }
+    }
+
+    @Test
+    void textsPreparedBeforeTheDictionaryIsReplacedAreTokenizedAgain() {
+        final KeywordSimilarityStrategy strategy = new KeywordSimilarityStrategy(20);
+        final TokenizedText early = strategy.prepare("tool control procedures");
+
+        final Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            strategy.prepare("word" + i + " " + text(random));
+        }
+        final TokenizedText late = strategy.prepare("tool control records");
+
+        assertNotEquals(early.vocabulary(), late.vocabulary());
+        assertEquals(0.5, strategy.calculateSimilarity(early, late), 1e-12);
+        assertEquals(0.5, strategy.calculateSimilarity(late, early), 1e-12);
+    }
+
+    @Test
+    void rawTextsAreComparedWithoutPreparation() {
+        final KeywordSimilarityStrategy strategy = new KeywordSimilarityStrategy();
+
+        assertEquals(1.0, strategy.calculateSimilarity(
+                new TokenizedText("Tool control", null, 0), strategy.prepare("control TOOL")), 1e-12);
+        assertEquals(0.0, strategy.calculateSimilarity("", "the and"), 1e-12);
+    }
+
+    private static String text(final Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int words = random.nextInt(12);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) sb.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The tokenizer used before term ids were interned.
+     */
+    private static double oracle(final String text1, final String text2) {
+        final Set<String> tokens1 = tokenize(text1);
+        final Set<String> tokens2 = tokenize(text2);
+
+        final Set<String> intersection = new HashSet<>(tokens1);
+        intersection.retainAll(tokens2);
+
+        final Set<String> union = new HashSet<>(tokens1);
+        union.addAll(tokens2);
+
+        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+    }
+
+    private static Set<String> tokenize(final String text) {
+        return Arrays.stream(text.toLowerCase()
+                        .replaceAll("[^a-z0-9\\s]", " ")
+                        .split("\\s+"))
+                .filter(w -> w.length() > 2)
+                .filter(w -> !STOP_WORDS.contains(w))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,171 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SparseSimilarityMatrixTest {
+
+    private final Map<Long, Paragraph> paragraphs = new HashMap<>();
+
+    @Test
+    void builderKeepsTopKBestFirst() {
+        final UUID clause = UUID.randomUUID();
+        final SparseSimilarityMatrix.Builder builder = SparseSimilarityMatrix.builder(2);
+        builder.add(clause, matches(new long[]{7, 3, 9}, new double[]{0.9, 0.8, 0.7}));
+
+        final SparseSimilarityMatrix.Row row = builder.build().row(clause);
+
+        assertEquals(2, row.size());
+        assertEquals(7, row.paragraphId(0));
+        assertEquals(3, row.paragraphId(1));
+        assertEquals(0.9, row.similarity(0), 1e-6);
+    }
+
+    @Test
+    void decodeRestoresEveryRow() {
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+        final UUID empty = UUID.randomUUID();
+        final SparseSimilarityMatrix.Builder builder = SparseSimilarityMatrix.builder(5);
+        // Ids out of order and far apart exercise negative and large deltas
+        builder.add(first, matches(new long[]{1L << 40, 5, Long.MAX_VALUE - 1, 6}, new double[]{0.91, 0.72, 0.55, 0.31}));
+        builder.add(second, matches(new long[]{5}, new double[]{0.44}));
+        builder.add(empty, List.of());
+        final SparseSimilarityMatrix matrix = builder.build();
+
+        final SparseSimilarityMatrix decoded = SparseSimilarityMatrix.decode(matrix.encode());
+
+        assertEquals(3, decoded.rowCount());
+        assertEquals(5, decoded.entryCount());
+        assertEquals(Set.of(1L << 40, 5L, Long.MAX_VALUE - 1, 6L), decoded.paragraphIds());
+        for (final UUID clause : List.of(first, second, empty)) {
+            final SparseSimilarityMatrix.Row expected = matrix.row(clause);
+            final SparseSimilarityMatrix.Row actual = decoded.row(clause);
+            assertTrue(decoded.contains(clause));
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.paragraphId(i), actual.paragraphId(i));
+                assertEquals(expected.similarity(i), actual.similarity(i), 0.0);
+            }
+        }
+        assertFalse(decoded.contains(UUID.randomUUID()));
+        assertEquals(0, decoded.row(UUID.randomUUID()).size());
+    }
+
+    @Test
+    void matchesStopAtTheThresholdAndSkipUnknownParagraphs() {
+        final UUID clause = UUID.randomUUID();
+        final SparseSimilarityMatrix.Builder builder = SparseSimilarityMatrix.builder(5);
+        builder.add(clause, matches(new long[]{1, 2, 3, 4}, new double[]{0.9, 0.7, 0.5, 0.3}));
+        final SparseSimilarityMatrix decoded = SparseSimilarityMatrix.decode(builder.build().encode());
+
+        final List<TextMatcher.ParagraphMatchResult> matches =
+                decoded.matches(clause, 0.5, id -> id == 2 ? null : paragraphs.get(id));
+
+        assertEquals(List.of(1L, 3L), matches.stream().map(m -> m.paragraph().getId()).toList());
+        assertEquals(0.5, matches.get(1).similarity(), 1e-6);
+    }
+
+    @Test
+    void decodeReadsFixedWidthVersionOne() throws Exception {
+        final UUID clause = UUID.randomUUID();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(0x53534d31);
+            out.writeByte(1);
+            out.writeInt(1);
+            out.writeLong(clause.getMostSignificantBits());
+            out.writeLong(clause.getLeastSignificantBits());
+            out.writeShort(2);
+            out.writeLong(900);
+            out.writeFloat(0.8f);
+            out.writeLong(-500);
+            out.writeFloat(0.6f);
+        }
+
+        final SparseSimilarityMatrix.Row row = SparseSimilarityMatrix.decode(bytes.toByteArray()).row(clause);
+
+        assertEquals(2, row.size());
+        assertEquals(900, row.paragraphId(0));
+        assertEquals(400, row.paragraphId(1));
+        assertEquals(0.6, row.similarity(1), 1e-6);
+    }
+
+    @Test
+    void varintDeltasAreSmallerThanFixedLongs() throws Exception {
+        final Random random = new Random(7);
+        final SparseSimilarityMatrix.Builder builder = SparseSimilarityMatrix.builder(20);
+        final ByteArrayOutputStream fixed = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(fixed))) {
+            out.writeInt(0x53534d31);
+            out.writeByte(1);
+            out.writeInt(300);
+            for (int c = 0; c < 300; c++) {
+                final UUID clause = new UUID(random.nextLong(), random.nextLong());
+                final long[] ids = new long[20];
+                final double[] sims = new double[20];
+                for (int i = 0; i < 20; i++) {
+                    ids[i] = 100_000 + random.nextInt(5_000);
+                    sims[i] = 0.9 - i * 0.01;
+                }
+                builder.add(clause, matches(ids, sims));
+
+                out.writeLong(clause.getMostSignificantBits());
+                out.writeLong(clause.getLeastSignificantBits());
+                out.writeShort(20);
+                long previous = 0;
+                for (int i = 0; i < 20; i++) {
+                    out.writeLong(ids[i] - previous);
+                    out.writeFloat((float) sims[i]);
+                    previous = ids[i];
+                }
+            }
+        }
+
+        final byte[] encoded = builder.build().encode();
+
+        assertTrue(encoded.length < fixed.size(), encoded.length + " >= " + fixed.size());
+    }
+
+    @Test
+    void decodeRejectsOtherData() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(0x424d3235);
+            out.writeByte(1);
+        }
+
+        assertThrows(IllegalStateException.class, () -> SparseSimilarityMatrix.decode(bytes.toByteArray()));
+    }
+
+    private List<TextMatcher.ParagraphMatchResult> matches(final long[] ids, final double[] similarities) {
+        final List<TextMatcher.ParagraphMatchResult> matches = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            final long id = ids[i];
+            final Paragraph p = paragraphs.computeIfAbsent(id, k -> {
+                final Paragraph created = new Paragraph(null, 0, "Paragraph " + k);
+                ReflectionTestUtils.setField(created, "id", k);
+                return created;
+            });
+            matches.add(new TextMatcher.ParagraphMatchResult(p, similarities[i]));
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,89 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TermDictionaryTest {
+
+    @Test
+    void stopWordsTakeTheFirstIdsAndAreNeverEmitted() {
+        final TermDictionary dictionary = new TermDictionary(3, List.of("the", "and", "a"));
+
+        assertEquals(3, dictionary.size());
+
+        final int[] ids = dictionary.tokenize("The tool AND the TOOL store");
+
+        assertEquals(2, ids.length);
+        assertTrue(ids[0] >= 3 && ids[1] >= 3, "term ids start after the stop words");
+        assertEquals(5, dictionary.size());
+    }
+
+    @Test
+    void tokensAreLowerCasedSplitOnAnythingElseAndSorted() {
+        final TermDictionary dictionary = new TermDictionary(3, List.of());
+
+        final int[] first = dictionary.tokenize("zeta alpha");
+        final int[] ids = dictionary.tokenize("ALPHA,zeta;145.A.30 ab x-ray");
+
+        assertArrayEquals(first, Arrays.copyOf(ids, 2), "known tokens keep their ids");
+        assertEquals(4, ids.length, "alpha, zeta, 145 and ray; 'ab', 'a', '30' and 'x' are too short");
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i]);
+        }
+    }
+
+    @Test
+    void tokensWithTheSameHashStayDistinct() {
+        final TermDictionary dictionary = new TermDictionary(3, List.of());
+        assertEquals("aaan".hashCode(), "aac0".hashCode());
+
+        final int[] a = dictionary.tokenize("aaan");
+        final int[] b = dictionary.tokenize("aac0");
+
+        assertNotEquals(a[0], b[0]);
+        assertArrayEquals(a, dictionary.tokenize("aaan"));
+        assertArrayEquals(b, dictionary.tokenize("aac0"));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    void idsSurviveTableResizes() {
+        final TermDictionary dictionary = new TermDictionary(3, List.of("the"));
+        final List<int[]> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            ids.add(dictionary.tokenize("term" + i));
+        }
+
+        assertEquals(5001, dictionary.size());
+        for (int i = 0; i < 5000; i++) {
+            assertArrayEquals(ids.get(i), dictionary.tokenize("TERM" + i));
+            assertEquals(i + 1, ids.get(i)[0]);
+        }
+        assertEquals(5001, dictionary.size());
+    }
+
+    @Test
+    void longTokensGrowTheScratchBuffer() {
+        final TermDictionary dictionary = new TermDictionary(3, List.of());
+        final String token = "x".repeat(100);
+
+        assertArrayEquals(dictionary.tokenize(token), dictionary.tokenize(token.toUpperCase() + "!"));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void jaccardMergesSortedIds() {
+        assertEquals(0.5, TermDictionary.jaccard(new int[]{1, 3, 5}, new int[]{3, 5, 7}), 1e-12);
+        assertEquals(1.0, TermDictionary.jaccard(new int[]{2}, new int[]{2}), 1e-12);
+        assertEquals(0.0, TermDictionary.jaccard(new int[]{}, new int[]{}), 1e-12);
+        assertEquals(0.0, TermDictionary.jaccard(new int[]{1}, new int[]{}), 1e-12);
+    }
+}
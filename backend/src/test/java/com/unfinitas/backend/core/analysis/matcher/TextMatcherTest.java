@@ -0,0 +1,138 @@
+package com.unfinitas.backend.core.analysis.matcher;
+
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import com.unfinitas.backend.core.regulation.model.RegulationClause;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TextMatcherTest {
+
+    private static final int RRF_K = 60;
+
+    private final Paragraph tools = paragraph(1, "Tool control procedures.", "[1.0, 0.0]");
+    private final Paragraph staff = paragraph(2, "Certifying staff records.", "[0.8, 0.6]");
+    private final Paragraph facilities = paragraph(3, "Facilities per 145.A.30: hangar and stores.", "[0.0, 1.0]");
+
+    private final RegulationClause clause = RegulationClause.builder()
+            .clauseId("145.A.30")
+            .title("Facility requirements")
+            .content("Hangar and stores.")
+            .embedding("[1.0, 0.0]")
+            .build();
+
+    @Test
+    void fusesCosineAndLexicalRanksByReciprocalRank() {
+        final TextMatcher matcher = matcher(true);
+        final TextMatcher.ParagraphIndex index = matcher.index(List.of(tools, staff, facilities));
+        final List<TextMatcher.ParagraphMatchResult> cosine = List.of(
+                new TextMatcher.ParagraphMatchResult(tools, 1.0),
+                new TextMatcher.ParagraphMatchResult(staff, 0.8));
+
+        final List<TextMatcher.ParagraphMatchResult> fused = matcher.fuse(clause, cosine, index);
+
+        // tools (cosine rank 1) and facilities (lexical rank 1) tie at 1/(k+1) and keep
+        // cosine-first order; staff (cosine rank 2) scores 1/(k+2)
+        assertEquals(List.of(1L, 3L, 2L), fused.stream().map(m -> m.paragraph().getId()).toList());
+        assertSame(cosine.get(0), fused.get(0));
+        assertEquals(0.0, fused.get(1).similarity(), 1e-9, "lexical-only hits carry their real cosine");
+    }
+
+    @Test
+    void paragraphsInBothRankingsRankFirst() {
+        final TextMatcher matcher = matcher(true);
+        final TextMatcher.ParagraphIndex index = matcher.index(List.of(tools, staff, facilities));
+        final List<TextMatcher.ParagraphMatchResult> cosine = List.of(
+                new TextMatcher.ParagraphMatchResult(tools, 1.0),
+                new TextMatcher.ParagraphMatchResult(facilities, 0.1));
+
+        final List<TextMatcher.ParagraphMatchResult> fused = matcher.fuse(clause, cosine, index);
+
+        // facilities: 1/(k+2) + 1/(k+1) beats tools: 1/(k+1)
+        assertEquals(List.of(3L, 1L), fused.stream().map(m -> m.paragraph().getId()).toList());
+        assertEquals(0.1, fused.getFirst().similarity(), 1e-9, "cosine-ranked matches keep their score");
+    }
+
+    @Test
+    void cosineRankingIsKeptWhenHybridIsOff() {
+        final TextMatcher matcher = matcher(false);
+        final List<TextMatcher.ParagraphMatchResult> cosine = List.of(
+                new TextMatcher.ParagraphMatchResult(tools, 1.0));
+
+        assertSame(cosine, matcher.fuse(clause, cosine, matcher.index(List.of(tools, facilities))));
+    }
+
+    @Test
+    void storedLexicalIndexIsUsedOnlyWhenItCoversEveryParagraph() {
+        final TextMatcher matcher = matcher(true);
+        final List<TextMatcher.ParagraphMatchResult> cosine = List.of(
+                new TextMatcher.ParagraphMatchResult(tools, 1.0));
+
+        // Stored index without facilities: rebuilt from the paragraphs, so facilities is found
+        final TextMatcher.ParagraphIndex partial =
+                matcher.index(List.of(tools, facilities), Bm25Index.build(List.of(tools)));
+        assertEquals(2, matcher.fuse(clause, cosine, partial).size());
+
+        // Stored index covering both, but without the reference: nothing lexical to fuse
+        final TextMatcher.ParagraphIndex stored = matcher.index(List.of(tools, facilities),
+                Bm25Index.build(List.of(tools, paragraph(3, "Unrelated.", "[0.0, 1.0]"))));
+        assertSame(cosine, matcher.fuse(clause, cosine, stored));
+    }
+
+    @Test
+    void lexicalOnlyFindsParagraphsSharingARareReference() {
+        final TextMatcher matcher = matcher(true);
+        final TextMatcher.ParagraphIndex index = matcher.index(List.of(tools, staff, facilities));
+
+        final List<TextMatcher.ParagraphMatchResult> found = matcher.lexicalOnly(clause, index);
+
+        assertEquals(List.of(3L), found.stream().map(m -> m.paragraph().getId()).toList());
+        assertEquals(0.0, found.getFirst().similarity(), 1e-9, "lexical-only hits carry their real cosine");
+    }
+
+    @Test
+    void lexicalOnlyIgnoresCommonTermsAndPlainWords() {
+        final TextMatcher matcher = matcher(true);
+        final RegulationClause came = RegulationClause.builder()
+                .clauseId("145.A.70")
+                .title("Maintenance organisation exposition")
+                .content("The CAME and the tools are described.")
+                .embedding("[1.0, 0.0]")
+                .build();
+        // "CAME" is in both paragraphs, so not rare; "tools" is not a reference at all
+        final TextMatcher.ParagraphIndex index = matcher.index(List.of(
+                paragraph(4, "The CAME lists tools.", "[1.0, 0.0]"),
+                paragraph(5, "The CAME lists staff.", "[0.0, 1.0]")));
+
+        assertEquals(List.of(), matcher.lexicalOnly(came, index));
+        assertEquals(Set.of("145.a.70", "came"), TextMatcher.referenceTerms(came));
+    }
+
+    @Test
+    void lexicalOnlyIsEmptyWhenHybridIsOff() {
+        final TextMatcher matcher = matcher(false);
+
+        assertEquals(List.of(), matcher.lexicalOnly(clause, matcher.index(List.of(tools, facilities))));
+    }
+
+    private static TextMatcher matcher(final boolean hybrid) {
+        final TextMatcher matcher = new TextMatcher(null, null);
+        ReflectionTestUtils.setField(matcher, "hybrid", hybrid);
+        ReflectionTestUtils.setField(matcher, "rrfK", RRF_K);
+        ReflectionTestUtils.setField(matcher, "lexicalTopN", 20);
+        ReflectionTestUtils.setField(matcher, "lexicalOnlyMaxDf", 0.05);
+        return matcher;
+    }
+
+    private static Paragraph paragraph(final long id, final String content, final String embedding) {
+        final Paragraph p = new Paragraph(null, (int) id, content);
+        ReflectionTestUtils.setField(p, "id", id);
+        p.setEmbedding(embedding);
+        return p;
+    }
+}
@@ -0,0 +1,113 @@
+package com.unfinitas.backend.core.ingestion.service;
+
+import com.unfinitas.backend.core.ingestion.dto.MoeDiff.ChangeType;
+import com.unfinitas.backend.core.ingestion.dto.MoeDiff.ParagraphChange;
+import com.unfinitas.backend.core.ingestion.model.Paragraph;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoeDiffServiceTest {
+
+    private static final double MIN_SIMILARITY = 0.85;
+    private static final long BUDGET = 1_000;
+
+    @Test
+    void pairsOffTheLongestIncreasingRunAreMoved() {
+        final List<Paragraph> base = List.of(p(1, "A"), p(2, "B"), p(3, "C"), p(4, "D"), p(5, "E"));
+        final List<Paragraph> revised = List.of(p(11, "A"), p(14, "D"), p(12, "B"), p(13, "C"), p(15, "E"));
+
+        final MoeDiffService.Alignment a = MoeDiffService.align(base, revised, MIN_SIMILARITY, BUDGET);
+        final List<ParagraphChange> changes = a.changes();
+
+        assertEquals(4, a.unchanged);
+        assertEquals(1, changes.size());
+        assertEquals(ChangeType.MOVED, changes.getFirst().type());
+        assertEquals(4L, changes.getFirst().baseParagraphId());
+        assertEquals(14L, changes.getFirst().revisedParagraphId());
+        assertTrue(changes.getFirst().moved());
+    }
+
+    @Test
+    void repeatedContentPairsInDocumentOrder() {
+        final List<Paragraph> base = List.of(p(1, "Same"), p(2, "Same"), p(3, "Other"));
+        final List<Paragraph> revised = List.of(p(11, "Same"), p(12, "Same"));
+
+        final MoeDiffService.Alignment a = MoeDiffService.align(base, revised, MIN_SIMILARITY, BUDGET);
+        final List<ParagraphChange> changes = a.changes();
+
+        assertEquals(2, a.unchanged);
+        assertEquals(0, a.baseToRevised[0]);
+        assertEquals(1, a.baseToRevised[1]);
+        assertEquals(1, changes.size());
+        assertEquals(ChangeType.REMOVED, changes.getFirst().type());
+        assertEquals(3L, changes.getFirst().baseParagraphId());
+    }
+
+    @Test
+    void editedParagraphBetweenAnchorsIsModifiedInPlace() {
+        final List<Paragraph> base = List.of(p(1, "A"), p(2, "B", 1f, 0f), p(3, "C"));
+        final List<Paragraph> revised = List.of(p(11, "A"), p(12, "B edited", 0.99f, 0.1f), p(13, "C"));
+
+        final MoeDiffService.Alignment a = MoeDiffService.align(base, revised, MIN_SIMILARITY, BUDGET);
+        final List<ParagraphChange> changes = a.changes();
+
+        assertEquals(1, changes.size());
+        final ParagraphChange c = changes.getFirst();
+        assertEquals(ChangeType.MODIFIED, c.type());
+        assertEquals(2L, c.baseParagraphId());
+        assertEquals(12L, c.revisedParagraphId());
+        assertFalse(c.moved());
+        assertTrue(c.similarity() > 0.99);
+        assertFalse(a.fuzzySkipped);
+    }
+
+    @Test
+    void editedParagraphOutsideItsGapIsModifiedAndMoved() {
+        final List<Paragraph> base = List.of(p(1, "A"), p(2, "B", 1f, 0f), p(3, "C"), p(4, "D"));
+        final List<Paragraph> revised = List.of(p(12, "B edited", 0.99f, 0.1f), p(11, "A"), p(13, "C"), p(14, "D"));
+
+        final List<ParagraphChange> changes = MoeDiffService.align(base, revised, MIN_SIMILARITY, BUDGET).changes();
+
+        assertEquals(1, changes.size());
+        assertEquals(ChangeType.MODIFIED, changes.getFirst().type());
+        assertEquals(2L, changes.getFirst().baseParagraphId());
+        assertTrue(changes.getFirst().moved());
+    }
+
+    @Test
+    void dissimilarParagraphsAreAddedAndRemoved() {
+        final List<Paragraph> base = List.of(p(1, "A"), p(2, "B", 1f, 0f), p(3, "C"));
+        final List<Paragraph> revised = List.of(p(11, "A"), p(12, "New", 0f, 1f), p(13, "C"));
+
+        final MoeDiffService.Alignment a = MoeDiffService.align(base, revised, MIN_SIMILARITY, BUDGET);
+
+        assertEquals(List.of(ChangeType.ADDED, ChangeType.REMOVED),
+                a.changes().stream().map(ParagraphChange::type).toList());
+        assertFalse(a.fuzzySkipped);
+    }
+
+    @Test
+    void spentBudgetIsReportedAsFuzzySkipped() {
+        final List<Paragraph> base = List.of(p(1, "A"), p(2, "B", 1f, 0f), p(3, "C"));
+        final List<Paragraph> revised = List.of(p(11, "A"), p(12, "B edited", 0.99f, 0.1f), p(13, "C"));
+
+        final MoeDiffService.Alignment a = MoeDiffService.align(base, revised, MIN_SIMILARITY, 0);
+
+        assertEquals(List.of(ChangeType.ADDED, ChangeType.REMOVED),
+                a.changes().stream().map(ParagraphChange::type).toList());
+        assertTrue(a.fuzzySkipped);
+    }
+
+    private static Paragraph p(final long id, final String content, final float... embedding) {
+        final Paragraph p = new Paragraph(null, (int) id, content);
+        ReflectionTestUtils.setField(p, "id", id);
+        if (embedding.length > 0) p.setEmbeddingFromArray(embedding);
+        return p;
+    }
+}
@@ -0,0 +1,97 @@
+package com.unfinitas.backend.core.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComplianceResultStreamParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<ComplianceResult> results = new ArrayList<>();
+
+    @Test
+    void readsFencedArray() throws Exception {
+        final ComplianceResultStreamParser parser = parse(
+                "```json\n[" + result("145.A.30") + ",\n" + result("145.A.35") + "]\n```");
+
+        assertEquals(List.of("145.A.30", "145.A.35"), ids());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void readsEmptyFencedArray() throws Exception {
+        final ComplianceResultStreamParser parser = parse("```json\n[]\n```");
+
+        assertEquals(List.of(), ids());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void skipsBracketsInProsePreamble() throws Exception {
+        final ComplianceResultStreamParser parser = parse(
+                "Assessment per [1] and [AMC 145.A.30]:\n[ " + result("145.A.30") + "]");
+
+        assertEquals(List.of("145.A.30"), ids());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void readsResponseSplitIntoSingleCharacters() throws Exception {
+        final String text = "See [1].\n```json\n[\n  " + result("145.A.30") + ",\n  " + result("145.A.35") + "\n]\n```";
+        final ComplianceResultStreamParser parser = new ComplianceResultStreamParser(objectMapper, results::add);
+        for (final char c : text.toCharArray()) {
+            parser.feed(String.valueOf(c));
+        }
+
+        assertEquals(List.of("145.A.30", "145.A.35"), ids());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void waitsForTheCharacterAfterABracketAtAChunkEnd() throws Exception {
+        final ComplianceResultStreamParser parser = new ComplianceResultStreamParser(objectMapper, results::add);
+        parser.feed("Findings [");
+        parser.feed("2] below: [");
+        parser.feed(" ");
+        parser.feed(result("145.A.30") + "]");
+
+        assertEquals(List.of("145.A.30"), ids());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void truncatedResponseKeepsCompleteResults() throws Exception {
+        final String second = result("145.A.35");
+        final ComplianceResultStreamParser parser = parse(
+                "[" + result("145.A.30") + "," + second.substring(0, second.length() / 2));
+
+        assertEquals(List.of("145.A.30"), ids());
+        assertEquals(1, parser.emittedCount());
+        assertFalse(parser.isComplete());
+    }
+
+    private ComplianceResultStreamParser parse(final String text) throws Exception {
+        final ComplianceResultStreamParser parser = new ComplianceResultStreamParser(objectMapper, results::add);
+        parser.feed(text);
+        return parser;
+    }
+
+    private List<String> ids() {
+        return results.stream().map(ComplianceResult::requirement_id).toList();
+    }
+
+    private static String result(final String requirementId) {
+        return """
+                {"requirement_id": "%s", "evidence": [{"moe_paragraph_id": 7, "relevant_excerpt": "see [2]"}],
+                 "compliance_status": "partial", "justification": "Procedure exists [ref 3].",
+                 "missing_elements": ["records"], "finding_level": "Level 2", "recommended_actions": []}"""
+                .formatted(requirementId);
+    }
+}
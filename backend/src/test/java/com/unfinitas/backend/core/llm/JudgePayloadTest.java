@@ -0,0 +1,188 @@
+package com.unfinitas.backend.core.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unfinitas.backend.core.analysis.dto.MoeParagraphCandidate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JudgePayloadTest {
+
+    private static final String LONG_TEXT = "The organisation shall establish procedures for tool control. ".repeat(5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void sharedTableListsEachParagraphOnceInFirstSeenOrder() throws Exception {
+        final JudgePayload payload = build(List.of(
+                item("145.A.30", candidate(3), candidate(1)),
+                item("145.A.35", candidate(1), candidate(2))
+        ), 2, Set.of());
+
+        assertTrue(payload.shared());
+        final JsonNode root = objectMapper.readTree(payload.json());
+
+        assertEquals(List.of(3L, 1L, 2L), ids(root.get("paragraphs"), "id"));
+        for (final JsonNode item : root.get("items")) {
+            for (final JsonNode ref : item.get("moe")) {
+                assertFalse(ref.has("text"), "items reference paragraphs by id only");
+            }
+        }
+        assertTrue(payload.tokensSaved() > 0);
+    }
+
+    @Test
+    void itemAndCandidateOrderIsPreserved() throws Exception {
+        final JudgePayload payload = build(List.of(
+                item("145.A.50", candidate(7), candidate(5)),
+                item("145.A.10", candidate(5), candidate(7))
+        ), 2, Set.of());
+
+        final JsonNode items = objectMapper.readTree(payload.json()).get("items");
+
+        assertEquals("145.A.50", items.get(0).get("id").asText());
+        assertEquals("145.A.10", items.get(1).get("id").asText());
+        assertEquals(List.of(7L, 5L), ids(items.get(0).get("moe"), "paragraph_id"));
+        assertEquals(List.of(5L, 7L), ids(items.get(1).get("moe"), "paragraph_id"));
+    }
+
+    @Test
+    void candidatesAreCappedPerItemWithRoomForGroupedClauses() throws Exception {
+        final List<MoeParagraphCandidate> six = List.of(
+                candidate(1), candidate(2), candidate(3), candidate(4), candidate(5), candidate(6));
+
+        final JudgePayload payload = build(List.of(
+                new LlmJudge.ClauseBatchInput("145.A.30", "Requirement", six),
+                new LlmJudge.ClauseBatchInput("145.A.35", "Requirement", six, related(1)),
+                new LlmJudge.ClauseBatchInput("145.A.40", "Requirement", six, related(5))
+        ), 2, Set.of());
+
+        final JsonNode items = objectMapper.readTree(payload.inlineJson()).get("items");
+
+        assertEquals(2, items.get(0).get("moe").size());
+        assertEquals(3, items.get(1).get("moe").size());
+        assertEquals(4, items.get(2).get("moe").size(), "grouped clauses add at most maxCandidates");
+    }
+
+    @Test
+    void judgedCandidatesAreTheOnesSerialized() throws Exception {
+        final LlmJudge.ClauseBatchInput grouped = new LlmJudge.ClauseBatchInput("145.A.30", "Requirement",
+                List.of(candidate(4), candidate(2), candidate(9), candidate(1), candidate(3)), related(1));
+
+        final JsonNode moe = objectMapper.readTree(build(List.of(grouped), 2, Set.of()).inlineJson())
+                .get("items").get(0).get("moe");
+
+        assertEquals(List.of(4L, 2L, 9L), ids(moe, "paragraph_id"));
+        assertEquals(List.of(4L, 2L, 9L), JudgePayload.judgedCandidates(grouped, 2).stream()
+                .map(MoeParagraphCandidate::paragraphId)
+                .toList());
+    }
+
+    @Test
+    void inlineFormIsSentWhenNothingIsShared() throws Exception {
+        final JudgePayload payload = build(List.of(
+                item("145.A.30", candidate(1)),
+                item("145.A.35", candidate(2))
+        ), 2, Set.of());
+
+        assertFalse(payload.shared());
+        assertEquals(payload.inlineJson(), payload.json());
+        assertEquals(0, payload.tokensSaved());
+        assertEquals(LONG_TEXT.trim() + " #1",
+                objectMapper.readTree(payload.json()).get("items").get(0).get("moe").get(0).get("text").asText());
+    }
+
+    @Test
+    void cachedClauseTextsAreSentByIdOnly() throws Exception {
+        final JudgePayload payload = build(List.of(
+                new LlmJudge.ClauseBatchInput("145.A.30", "Requirement text", List.of(candidate(1)), related(1)),
+                item("145.A.35", candidate(1))
+        ), 2, Set.of("145.A.30", "AMC1 145.A.30"));
+
+        final JsonNode items = objectMapper.readTree(payload.json()).get("items");
+
+        assertFalse(items.get(0).has("text"));
+        assertFalse(items.get(0).get("related").get(0).has("text"));
+        assertEquals("Requirement", items.get(1).get("text").asText());
+    }
+
+    /**
+     * What the model receives in the shared form resolves to exactly the inline form.
+     */
+    @Test
+    void sharedFormResolvesToTheInlineForm() throws Exception {
+        final JudgePayload payload = build(List.of(
+                item("145.A.30", candidate(3), candidate(1)),
+                new LlmJudge.ClauseBatchInput("145.A.35", "Requirement", List.of(candidate(1), candidate(2)), related(1)),
+                item("145.A.40", candidate(2), candidate(3))
+        ), 2, Set.of());
+        assertTrue(payload.shared());
+
+        final JsonNode shared = objectMapper.readTree(payload.json());
+        final Map<Long, String> table = new HashMap<>();
+        for (final JsonNode p : shared.get("paragraphs")) {
+            table.put(p.get("id").asLong(), p.get("text").asText());
+        }
+
+        final JsonNode inline = objectMapper.readTree(payload.inlineJson()).get("items");
+        final JsonNode items = shared.get("items");
+        assertEquals(inline.size(), items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(inline.get(i).get("id").asText(), items.get(i).get("id").asText());
+            assertEquals(inline.get(i).get("text").asText(), items.get(i).get("text").asText());
+            assertEquals(inline.get(i).has("related"), items.get(i).has("related"));
+
+            final JsonNode refs = items.get(i).get("moe");
+            final JsonNode full = inline.get(i).get("moe");
+            assertEquals(full.size(), refs.size());
+            for (int k = 0; k < refs.size(); k++) {
+                final long id = refs.get(k).get("paragraph_id").asLong();
+                assertEquals(full.get(k).get("paragraph_id").asLong(), id);
+                assertEquals(full.get(k).get("score").asDouble(), refs.get(k).get("score").asDouble(), 0.0);
+                assertEquals(full.get(k).get("text").asText(), table.get(id));
+            }
+        }
+
+        assertEquals(payload.inline(), payload.inline().inline());
+        assertFalse(payload.inline().shared());
+        assertEquals(payload.inlineJson(), payload.inline().json());
+    }
+
+    private JudgePayload build(final List<LlmJudge.ClauseBatchInput> inputs,
+                               final int maxCandidates,
+                               final Set<String> cached) throws Exception {
+        return JudgePayload.build(objectMapper, inputs, maxCandidates, cached, String::trim);
+    }
+
+    private static LlmJudge.ClauseBatchInput item(final String id, final MoeParagraphCandidate... candidates) {
+        return new LlmJudge.ClauseBatchInput(id, "Requirement", List.of(candidates));
+    }
+
+    private static MoeParagraphCandidate candidate(final long id) {
+        return new MoeParagraphCandidate(id, LONG_TEXT + "#" + id, 0.9 - id * 0.01, "2." + id, (int) id);
+    }
+
+    private static List<LlmJudge.RelatedClause> related(final int count) {
+        final List<LlmJudge.RelatedClause> related = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            related.add(new LlmJudge.RelatedClause((i == 0 ? "AMC1 " : "GM" + i + " ") + "145.A.30", "AMC", "Guidance"));
+        }
+        return related;
+    }
+
+    private static List<Long> ids(final JsonNode array, final String field) {
+        final List<Long> ids = new ArrayList<>();
+        for (final JsonNode n : array) ids.add(n.get(field).asLong());
+        return ids;
+    }
+}
@@ -0,0 +1,43 @@
+package com.unfinitas.backend.core.llm;
+
+import com.unfinitas.backend.core.llm.dto.ComplianceResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VerdictAgreementTest {
+
+    @Test
+    void comparesOnlyClausesJudgedInBothForms() {
+        final VerdictAgreement agreement = new VerdictAgreement();
+
+        final VerdictAgreement.Stats batch = agreement.record(
+                Map.of("145.A.30", result("COMPLIANT", "NONE"),
+                        "145.A.35", result("PARTIAL", "LEVEL_2"),
+                        "145.A.40", result("MISSING", "LEVEL_1")),
+                Map.of("145.A.30", result("COMPLIANT", "NONE"),
+                        "145.A.35", result("PARTIAL", "LEVEL_1")));
+
+        assertEquals(new VerdictAgreement.Stats(1, 2, 2, 1), batch);
+    }
+
+    @Test
+    void accumulatesAcrossBatches() {
+        final VerdictAgreement agreement = new VerdictAgreement();
+        agreement.record(Map.of("a", result("COMPLIANT", "NONE")), Map.of("a", result("COMPLIANT", "NONE")));
+        agreement.record(Map.of("b", result("COMPLIANT", "NONE")), Map.of("b", result("MISSING", "NONE")));
+
+        final VerdictAgreement.Stats stats = agreement.stats();
+
+        assertEquals(new VerdictAgreement.Stats(2, 2, 1, 2), stats);
+        assertEquals(0.5, stats.statusAgreement(), 1e-9);
+        assertEquals(1.0, new VerdictAgreement().stats().statusAgreement(), 1e-9);
+    }
+
+    private static ComplianceResult result(final String status, final String level) {
+        return new ComplianceResult("", List.of(), status, "", List.of(), level, List.of());
+    }
+}
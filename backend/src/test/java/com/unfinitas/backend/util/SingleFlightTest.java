@@ -0,0 +1,87 @@
+package com.unfinitas.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @Test
+    void errorInTheCallReleasesTheKey() {
+        final SingleFlight<String, String> flights = new SingleFlight<>();
+
+        assertThrows(StackOverflowError.class, () -> flights.execute("k", () -> {
+            throw new StackOverflowError();
+        }, WAIT));
+
+        assertEquals(0, flights.stats().inFlight());
+        assertEquals("v", flights.execute("k", () -> "v", WAIT));
+    }
+
+    @Test
+    void waiterSharesTheOwnersResult() throws Exception {
+        final SingleFlight<String, String> flights = new SingleFlight<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Thread owner = Thread.ofVirtual().start(() -> flights.execute("k", () -> {
+            started.countDown();
+            await(release);
+            return "shared";
+        }, WAIT));
+        started.await();
+
+        final AtomicReference<String> seen = new AtomicReference<>();
+        final Thread waiter = Thread.ofVirtual().start(() -> seen.set(flights.execute("k", () -> "own", WAIT)));
+        while (flights.stats().coalesced() == 0) Thread.onSpinWait();
+        release.countDown();
+        owner.join();
+        waiter.join();
+
+        assertEquals("shared", seen.get());
+        assertEquals(1, flights.stats().issued());
+    }
+
+    @Test
+    void waiterGivesUpAfterMaxWait() throws Exception {
+        final SingleFlight<String, String> flights = new SingleFlight<>();
+        final SingleFlight.Claim<String> owner = flights.claim("k");
+        assertTrue(owner.owner());
+
+        final SingleFlight.Claim<String> waiter = flights.claim("k");
+        final IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> flights.await(waiter, Duration.ofMillis(20)));
+
+        assertTrue(e.getMessage().contains("did not finish"));
+        flights.complete("k", owner, "late");
+        assertEquals("late", flights.await(waiter, WAIT));
+    }
+
+    @Test
+    void waiterSeesTheOwnersErrorWrapped() {
+        final SingleFlight<String, String> flights = new SingleFlight<>();
+        final SingleFlight.Claim<String> owner = flights.claim("k");
+        final SingleFlight.Claim<String> waiter = flights.claim("k");
+
+        flights.fail("k", owner, new OutOfMemoryError("test"));
+
+        final IllegalStateException e = assertThrows(IllegalStateException.class, () -> flights.await(waiter, WAIT));
+        assertTrue(e.getCause() instanceof OutOfMemoryError);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}